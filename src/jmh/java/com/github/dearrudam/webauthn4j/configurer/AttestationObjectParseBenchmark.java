@@ -0,0 +1,50 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.converter.AttestationObjectConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.AttestationObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// the CBOR decoding of an attestation object, x5c chain included, with and without the certificate cache;
+// run with -prof gc to compare the allocation per ceremony
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttestationObjectParseBenchmark {
+
+    @Param({"packed", "android-key"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean certificateCache;
+
+    private AttestationObjectConverter attestationObjectConverter;
+    private byte[] attestationObject;
+
+    @Setup
+    public void setUp() {
+        ObjectConverter objectConverter = certificateCache ? new X509CertificateCache().newObjectConverter() : new ObjectConverter();
+        attestationObjectConverter = new AttestationObjectConverter(objectConverter);
+        attestationObject = new TestRegistrationPayloads().create(format).registrationRequest().getAttestationObject();
+    }
+
+    @Benchmark
+    public AttestationObject parse() {
+        return attestationObjectConverter.convert(attestationObject);
+    }
+}
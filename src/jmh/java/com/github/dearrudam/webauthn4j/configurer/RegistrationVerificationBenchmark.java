@@ -0,0 +1,76 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationVerificationBenchmark {
+
+    // no tpm: TestRegistrationPayloads does not generate its certInfo and pubArea, and the recorded TPM ceremonies of the
+    // webauthn4j-test artifact the pom declares cannot be resolved in this build, so the jmh profile runs without it
+    @Param({"none", "packed-self", "packed", "fido-u2f", "android-key"})
+    public String format;
+
+    @Param({"simplest", "version2"})
+    public String configurer;
+
+    @Param({"false", "true"})
+    public boolean memoizing;
+
+    private WebAuthnRegistrationManager registrationManager;
+    private TestRegistrationPayloads.Payload payload;
+
+    @Setup
+    public void setUp() {
+        TestRegistrationPayloads registrationPayloads = new TestRegistrationPayloads();
+        CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = new DefaultCertPathTrustworthinessVerifier(registrationPayloads.trustAnchorRepository());
+        if (memoizing) {
+            certPathTrustworthinessVerifier = new MemoizingCertPathTrustworthinessVerifier(certPathTrustworthinessVerifier);
+        }
+        CertPathTrustworthinessVerifier configuredCertPathTrustworthinessVerifier = certPathTrustworthinessVerifier;
+
+        // the whole chain is spelled out, the shortcut on SimplestWebAuthnRegistrationManagerConfigurer does not build
+        WebAuthnRegistrationManagerConfigurer.ConfigurerObjectConverter configure = switch (configurer) {
+            case "simplest" -> SimplestWebAuthnRegistrationManagerConfigurer.configure();
+            case "version2" -> WebAuthnRegistrationManagerConfigurerVersion2.configure();
+            default -> throw new IllegalArgumentException("Unsupported configurer: %s".formatted(configurer));
+        };
+        registrationManager = configure
+                .withDefaultObjectConverter()
+                .withDefaultAttestationStatementVerifiers()
+                .withCertPathTrustworthinessVerifier(objectConverter -> configuredCertPathTrustworthinessVerifier)
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .build();
+
+        payload = registrationPayloads.create(format);
+
+        // fail fast instead of measuring the cost of an exception
+        verify();
+    }
+
+    @Benchmark
+    public RegistrationData verify() {
+        return registrationManager.verify(payload.registrationRequest(), payload.registrationParameters());
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.util.HexUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// a seeded BLOB shaped like the MDS3 one (about 90% AAGUID entries, the rest U2F key identifiers), so runs are comparable offline
+final class BenchmarkMetadataBLOBs {
+
+    static final int NO = 42;
+    static final LocalDate NEXT_UPDATE = LocalDate.of(2099, 1, 1);
+
+    final List<UUID> aaguids = new ArrayList<>();
+    final List<byte[]> keyIds = new ArrayList<>();
+    final String blob;
+
+    BenchmarkMetadataBLOBs(int entries) {
+        Random random = new Random(entries);
+        List<ObjectNode> nodes = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            if (i % 10 == 9) {
+                byte[] keyId = new byte[20];
+                random.nextBytes(keyId);
+                keyIds.add(keyId);
+                nodes.add(TestMetadataBLOBs.keyIdEntry(HexUtil.encodeToString(keyId).toLowerCase(), "FIDO_CERTIFIED"));
+            } else {
+                UUID aaguid = new UUID(random.nextLong(), random.nextLong());
+                aaguids.add(aaguid);
+                nodes.add(TestMetadataBLOBs.entry(aaguid.toString(), "FIDO_CERTIFIED"));
+            }
+        }
+        blob = TestMetadataBLOBs.blob(NO, NEXT_UPDATE, nodes);
+    }
+}
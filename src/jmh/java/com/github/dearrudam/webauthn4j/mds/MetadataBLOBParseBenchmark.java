@@ -0,0 +1,56 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBLOBParseBenchmark {
+
+    // the production BLOB holds a bit more than 1500 entries
+    @Param({"100", "1500"})
+    public int entries;
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(objectConverter);
+    private final MetadataBLOBReader metadataBLOBReader = new MetadataBLOBReader(objectConverter, ByteBufferPool.shared());
+
+    private String blob;
+    private byte[] blobBytes;
+
+    @Setup
+    public void setUp() {
+        blob = new BenchmarkMetadataBLOBs(entries).blob;
+        blobBytes = blob.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public MetadataBLOB factoryParse() {
+        return metadataBLOBFactory.parse(blob);
+    }
+
+    @Benchmark
+    public MetadataBLOB readerRead() {
+        return metadataBLOBReader.read(new ByteArrayInputStream(blobBytes));
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// a refresh to a BLOB parsed anew but without changed entries, the usual case between two MDS releases
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrustAnchorIndexUpdateBenchmark {
+
+    @Param({"100", "1500"})
+    public int entries;
+
+    private TrustAnchorIndex current;
+    private List<MetadataBLOB> next;
+
+    @Setup
+    public void setUp() {
+        MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(new ObjectConverter());
+        String blob = new BenchmarkMetadataBLOBs(entries).blob;
+        current = TrustAnchorIndex.of(List.of(metadataBLOBFactory.parse(blob)));
+        next = List.of(metadataBLOBFactory.parse(blob));
+    }
+
+    @Benchmark
+    public TrustAnchorIndex rebuild() {
+        return TrustAnchorIndex.of(next);
+    }
+
+    @Benchmark
+    public TrustAnchorIndex update() {
+        return current.update(next);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.anchor.MetadataBLOBBasedTrustAnchorRepository;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.TrustAnchor;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrustAnchorLookupBenchmark {
+
+    @Param({"1500"})
+    public int entries;
+
+    // the webauthn4j repository scans the BLOB entries, the other two look the key up in the index or in the snapshot
+    @Param({"webauthn4j", "index", "snapshot"})
+    public String repository;
+
+    private MetadataBLOBBasedTrustAnchorRepository metadataBLOBBasedTrustAnchorRepository;
+    private RefreshableTrustAnchorRepository refreshableTrustAnchorRepository;
+    private MetadataBLOBSnapshot metadataBLOBSnapshot;
+    private Path snapshotPath;
+
+    private AAGUID[] aaguids;
+    private byte[][] keyIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkMetadataBLOBs fixture = new BenchmarkMetadataBLOBs(entries);
+        MetadataBLOB metadataBLOB = new MetadataBLOBFactory(new ObjectConverter()).parse(fixture.blob);
+        aaguids = fixture.aaguids.stream().map(AAGUID::new).toArray(AAGUID[]::new);
+        keyIds = fixture.keyIds.toArray(byte[][]::new);
+
+        switch (repository) {
+            case "webauthn4j" -> metadataBLOBBasedTrustAnchorRepository = new MetadataBLOBBasedTrustAnchorRepository(() -> metadataBLOB);
+            case "index" -> refreshableTrustAnchorRepository = new RefreshableTrustAnchorRepository(TrustAnchorIndex.of(List.of(metadataBLOB)));
+            case "snapshot" -> {
+                snapshotPath = Files.createTempFile("trust-anchor-lookup", ".snapshot");
+                MetadataBLOBSnapshot.write(metadataBLOB, snapshotPath);
+                metadataBLOBSnapshot = MetadataBLOBSnapshot.open(snapshotPath);
+            }
+            default -> throw new IllegalArgumentException("Unsupported repository: %s".formatted(repository));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (snapshotPath != null) {
+            try {
+                Files.deleteIfExists(snapshotPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<TrustAnchor> findByAAGUID() {
+        AAGUID aaguid = aaguids[next++ % aaguids.length];
+        return switch (repository) {
+            case "webauthn4j" -> metadataBLOBBasedTrustAnchorRepository.find(aaguid);
+            case "index" -> refreshableTrustAnchorRepository.find(aaguid);
+            default -> metadataBLOBSnapshot.find(aaguid);
+        };
+    }
+
+    @Benchmark
+    public Set<TrustAnchor> findByKeyId() {
+        byte[] keyId = keyIds[next++ % keyIds.length];
+        return switch (repository) {
+            case "webauthn4j" -> metadataBLOBBasedTrustAnchorRepository.find(keyId);
+            case "index" -> refreshableTrustAnchorRepository.find(keyId);
+            default -> metadataBLOBSnapshot.find(keyId);
+        };
+    }
+}
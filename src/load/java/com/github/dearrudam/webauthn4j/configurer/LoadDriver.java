@@ -0,0 +1,174 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.LocalMDSServer;
+import com.github.dearrudam.webauthn4j.mds.MetadataRefresher;
+import com.github.dearrudam.webauthn4j.mds.PersistentMetadataBLOBProvider;
+import com.github.dearrudam.webauthn4j.mds.RefreshableTrustAnchorRepository;
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.LatencyHistogram;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// replays synthetic registration ceremonies against a configurer-built manager whose trust anchors come from a local
+// MDS stand-in, and reports the throughput and latency percentiles; arguments are key=value pairs:
+//   registrations=20000 concurrency=64 ceremonies=200 entries=1500  the replay
+//   latency=50 redirects=1 failures=0                               what the MDS stand-in injects, in ms for the latency
+//   refreshes=4                                                     BLOBs published and loaded while the replay runs
+//   certificateCache=true                                           whether the attestation certificates are parsed once
+public final class LoadDriver {
+
+    static final List<String> FORMATS = List.of("packed", "android-key", "packed-self", "none");
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected key=value but got %s".formatted(arg));
+            }
+            options.put(option[0], option[1]);
+        }
+        int registrations = Integer.parseInt(options.getOrDefault("registrations", "20000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int ceremonyCount = Integer.parseInt(options.getOrDefault("ceremonies", "200"));
+        int entries = Integer.parseInt(options.getOrDefault("entries", "1500"));
+        int refreshes = Integer.parseInt(options.getOrDefault("refreshes", "4"));
+        boolean certificateCache = Boolean.parseBoolean(options.getOrDefault("certificateCache", "true"));
+
+        TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+        X509Certificate attestationRootCertificate = payloads.trustAnchorRepository()
+                .find(TestRegistrationPayloads.AUTHENTICATOR_AAGUID).iterator().next().getTrustedCert();
+        List<TestRegistrationPayloads.Payload> ceremonies = new ArrayList<>(ceremonyCount);
+        for (int i = 0; i < ceremonyCount; i++) {
+            ceremonies.add(payloads.create(FORMATS.get(i % FORMATS.size())));
+        }
+
+        ObjectConverter objectConverter = new ObjectConverter();
+        InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+        Path cacheDirectory = Files.createTempDirectory("webauthn4j-load");
+        try (LocalMDSServer server = LocalMDSServer.start()) {
+            server.setLatency(Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "50"))));
+            server.setRedirects(Integer.parseInt(options.getOrDefault("redirects", "1")));
+            server.failNext(Integer.parseInt(options.getOrDefault("failures", "0")), 503);
+            int no = 1;
+            server.publish(no, LocalDate.now().plusMonths(1), entries, TestRegistrationPayloads.AUTHENTICATOR_AAGUID, attestationRootCertificate);
+
+            PersistentMetadataBLOBProvider metadataBLOBProvider = new PersistentMetadataBLOBProvider(objectConverter, server.url(), server.trustAnchors(), cacheDirectory);
+            metadataBLOBProvider.setMetrics(metrics);
+            // the refreshes block on the stand-in from virtual threads, the provider and the refresher hold locks rather than monitors
+            // while they wait, so the carriers stay free for the verifications
+            try (MetadataRefresher metadataRefresher = new MetadataRefresher(new RefreshableTrustAnchorRepository(), metadataBLOBProvider);
+                 ExecutorService refresherThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+                metadataRefresher.setMetrics(metrics);
+                refreshWithRetries(metadataRefresher);
+
+                WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild build = WebAuthnRegistrationManagerConfigurerVersion2
+                        .configure()
+                        .withObjectConverter(ObjectConverter::new)
+                        .withDefaultAttestationStatementVerifiers()
+                        .withCertPathTrustworthinessVerifier(converter -> new DefaultCertPathTrustworthinessVerifier(metadataRefresher.getRepository()))
+                        .withDefaultSelfAttestationTrustworthinessVerifier()
+                        .withNoCustomRegistrationVerifiers()
+                        .withMetrics(metrics)
+                        .withWarmUp();
+                if (certificateCache) {
+                    build = build.withCertificateCache(new X509CertificateCache(X509CertificateCache.DEFAULT_MAXIMUM_SIZE, metrics));
+                }
+                AsyncRegistrationVerifier verifier = build.buildAsync();
+
+                // one more BLOB is published and loaded every refreshInterval registrations, so index swaps happen under load
+                int refreshInterval = refreshes > 0 ? Math.max(1, registrations / (refreshes + 1)) : Integer.MAX_VALUE;
+                List<CompletableFuture<Void>> refreshing = new ArrayList<>();
+                long[] latencies = new long[registrations];
+                AtomicInteger failures = new AtomicInteger();
+                Semaphore inFlight = new Semaphore(concurrency);
+                long start = System.nanoTime();
+                for (int i = 0; i < registrations; i++) {
+                    if (i > 0 && i % refreshInterval == 0) {
+                        server.publish(++no, LocalDate.now().plusMonths(1), entries, TestRegistrationPayloads.AUTHENTICATOR_AAGUID, attestationRootCertificate);
+                        refreshing.add(CompletableFuture.runAsync(() -> {
+                            metadataBLOBProvider.refresh();
+                            metadataRefresher.refresh();
+                        }, refresherThreads));
+                    }
+                    TestRegistrationPayloads.Payload ceremony = ceremonies.get(i % ceremonies.size());
+                    int index = i;
+                    inFlight.acquire();
+                    long verificationStart = System.nanoTime();
+                    verifier.verify(ceremony.registrationRequest(), ceremony.registrationParameters()).whenComplete((registrationData, failure) -> {
+                        latencies[index] = System.nanoTime() - verificationStart;
+                        if (failure != null) {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+                }
+                inFlight.acquire(concurrency);
+                long elapsed = System.nanoTime() - start;
+                CompletableFuture.allOf(refreshing.toArray(CompletableFuture[]::new)).join();
+
+                report(registrations, concurrency, elapsed, latencies, failures.get(), metrics, server.getRequestCount());
+            }
+        }
+    }
+
+    // the stand-in may be told to fail the first requests, the first load retries like a deployment would
+    private static void refreshWithRetries(MetadataRefresher metadataRefresher) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                metadataRefresher.refresh();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= 10) {
+                    throw e;
+                }
+                System.out.printf("metadata load attempt %d failed: %s%n", attempt, e.getMessage());
+                Thread.sleep(100L * attempt);
+            }
+        }
+    }
+
+    private static void report(int registrations, int concurrency, long elapsedNanos, long[] latencies, int failures,
+                               InMemoryWebAuthnMetrics metrics, int mdsRequests) {
+        Arrays.sort(latencies);
+        System.out.printf("%d registrations, %d in flight, %d failed: %.0f registrations/s%n",
+                registrations, concurrency, failures, registrations / (elapsedNanos / 1e9));
+        System.out.printf("verify latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6);
+        for (WebAuthnMetrics.MetadataOperation operation : WebAuthnMetrics.MetadataOperation.values()) {
+            LatencyHistogram histogram = metrics.getMetadataOperation(operation);
+            System.out.printf("metadata %s: %d times, %d failed, p50 <= %.3f ms, p99 <= %.3f ms%n",
+                    operation, histogram.count(), metrics.getMetadataFailures(operation), histogram.quantile(0.5) / 1e6, histogram.quantile(0.99) / 1e6);
+        }
+        System.out.printf("certificate cache: %d hits, %d misses, %d evictions, %.1f%% hit ratio%n",
+                metrics.getCacheHits(WebAuthnMetrics.Cache.CERTIFICATE), metrics.getCacheMisses(WebAuthnMetrics.Cache.CERTIFICATE),
+                metrics.getCacheEvictions(WebAuthnMetrics.Cache.CERTIFICATE), metrics.getCacheHitRatio(WebAuthnMetrics.Cache.CERTIFICATE) * 100);
+        System.out.printf("%d requests to the MDS stand-in%n", mdsRequests);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
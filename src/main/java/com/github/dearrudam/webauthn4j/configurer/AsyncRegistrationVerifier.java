@@ -0,0 +1,208 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Optional.ofNullable;
+
+// verifies on the executor, by default one virtual thread per registration, so a verification that waits for trust anchors
+// or revocation data parks its virtual thread instead of holding a carrier thread
+public final class AsyncRegistrationVerifier {
+
+    static final Logger logger = LoggerFactory.getLogger(AsyncRegistrationVerifier.class);
+
+    public static final Executor VIRTUAL_THREADS = runnable -> Thread.ofVirtual().name("webauthn4j-verify").start(runnable);
+
+    private final WebAuthnRegistrationManager registrationManager;
+    private final Executor executor;
+    private final CompletableFuture<Void> readiness;
+
+    AsyncRegistrationVerifier(WebAuthnRegistrationManager registrationManager, Executor executor) {
+        this(registrationManager, executor, CompletableFuture.completedFuture(null));
+    }
+
+    private AsyncRegistrationVerifier(WebAuthnRegistrationManager registrationManager, Executor executor, CompletableFuture<Void> readiness) {
+        this.registrationManager = registrationManager;
+        this.executor = ofNullable(executor).orElseThrow(() -> new IllegalArgumentException("executor must not be null"));
+        this.readiness = readiness;
+    }
+
+    public WebAuthnRegistrationManager getRegistrationManager() {
+        return registrationManager;
+    }
+
+    // a verifier whose verifications start once every stage completed, e.g. awaiting(repository.whenLoaded(), crlCache.prefetchAsync(roots));
+    // a stage that fails fails the verifications
+    public AsyncRegistrationVerifier awaiting(CompletionStage<?>... stages) {
+        CompletableFuture<?>[] futures = Arrays.stream(ofNullable(stages)
+                        .orElseThrow(() -> new IllegalArgumentException("stages must not be null")))
+                .map(stage -> ofNullable(stage)
+                        .orElseThrow(() -> new IllegalArgumentException("stage must not be null"))
+                        .toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        return new AsyncRegistrationVerifier(registrationManager, executor, CompletableFuture.allOf(readiness, CompletableFuture.allOf(futures)));
+    }
+
+    public boolean isReady() {
+        return readiness.isDone() && !readiness.isCompletedExceptionally();
+    }
+
+    public CompletionStage<RegistrationData> verify(RegistrationRequest registrationRequest, RegistrationParameters registrationParameters) {
+        return verify(new BatchRegistrationVerifier.Registration(registrationRequest, registrationParameters));
+    }
+
+    public CompletionStage<RegistrationData> verify(BatchRegistrationVerifier.Registration registration) {
+        ofNullable(registration).orElseThrow(() -> new IllegalArgumentException("registration must not be null"));
+        return readiness.thenApplyAsync(ready -> registrationManager.verify(registration.registrationRequest(), registration.registrationParameters()), executor);
+    }
+
+    // the outcomes of the registrations in the order they complete, at most maxInFlight are verified at a time and a failed
+    // registration does not stop the others; no more registrations are requested while the subscriber lags bufferSize outcomes behind
+    public Flow.Publisher<BatchRegistrationVerifier.Outcome> verifyAll(Flow.Publisher<BatchRegistrationVerifier.Registration> registrations, int maxInFlight) {
+        ofNullable(registrations).orElseThrow(() -> new IllegalArgumentException("registrations must not be null"));
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        return subscriber -> registrations.subscribe(new VerifyingSubscription(
+                ofNullable(subscriber).orElseThrow(() -> new NullPointerException("subscriber must not be null")), maxInFlight, Flow.defaultBufferSize()));
+    }
+
+    // every request and cancel upstream and every signal downstream is made by one drain loop at a time, whichever thread gets
+    // there first runs it and the others leave their work to it, so neither side is signalled concurrently and no executor
+    // thread ever waits for the subscriber
+    private final class VerifyingSubscription implements Flow.Subscriber<BatchRegistrationVerifier.Registration>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super BatchRegistrationVerifier.Outcome> subscriber;
+        private final int maxInFlight;
+        private final int bufferSize;
+        private final Queue<BatchRegistrationVerifier.Outcome> outcomes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        // requested from the registrations and not received yet, and received and not verified yet
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger verifying = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger drains = new AtomicInteger();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean upstreamDone;
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private boolean terminated;
+
+        VerifyingSubscription(Flow.Subscriber<? super BatchRegistrationVerifier.Outcome> subscriber, int maxInFlight, int bufferSize) {
+            this.subscriber = subscriber;
+            this.maxInFlight = maxInFlight;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscriber.onSubscribe(this);
+            drain();
+        }
+
+        @Override
+        public void onNext(BatchRegistrationVerifier.Registration registration) {
+            verifying.incrementAndGet();
+            pending.decrementAndGet();
+            verify(registration).whenComplete((registrationData, failure) -> {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                outcomes.add(new BatchRegistrationVerifier.Outcome(registration, registrationData, cause));
+                buffered.incrementAndGet();
+                verifying.decrementAndGet();
+                drain();
+            });
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            logger.debug("Registrations failed, failing the outcomes once the verifications in flight are delivered", failure);
+            this.failure = failure;
+            onComplete();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("n must be positive");
+                cancelled = true;
+            } else {
+                requested.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (drains.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    signal();
+                }
+                missed = drains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void signal() {
+            BatchRegistrationVerifier.Outcome outcome;
+            while (!cancelled && requested.get() > 0 && (outcome = outcomes.poll()) != null) {
+                buffered.decrementAndGet();
+                requested.decrementAndGet();
+                subscriber.onNext(outcome);
+            }
+            if (cancelled) {
+                terminated = true;
+                outcomes.clear();
+                subscription.cancel();
+                if (invalidRequest != null) {
+                    subscriber.onError(invalidRequest);
+                }
+            } else if (upstreamDone) {
+                if (verifying.get() == 0 && outcomes.isEmpty()) {
+                    terminated = true;
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                }
+            } else {
+                int more = maxInFlight - pending.get() - verifying.get() - Math.max(0, buffered.get() - bufferSize);
+                if (more > 0) {
+                    pending.addAndGet(more);
+                    subscription.request(more);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.AttestationObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import static java.util.Optional.ofNullable;
+
+public final class BatchRegistrationVerifier {
+
+    static final Logger logger = LoggerFactory.getLogger(BatchRegistrationVerifier.class);
+
+    private final WebAuthnRegistrationManager registrationManager;
+    private final DeduplicatingCertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
+    private final Executor executor;
+
+    BatchRegistrationVerifier(WebAuthnRegistrationManager registrationManager,
+                              DeduplicatingCertPathTrustworthinessVerifier certPathTrustworthinessVerifier,
+                              Executor executor) {
+        this.registrationManager = registrationManager;
+        this.certPathTrustworthinessVerifier = certPathTrustworthinessVerifier;
+        this.executor = ofNullable(executor).orElseThrow(() -> new IllegalArgumentException("executor must not be null"));
+    }
+
+    public WebAuthnRegistrationManager getRegistrationManager() {
+        return registrationManager;
+    }
+
+    // the outcomes come back in the order of the registrations, a failed registration does not stop the others
+    public List<Outcome> verifyAll(List<Registration> registrations) {
+        ofNullable(registrations).orElseThrow(() -> new IllegalArgumentException("registrations must not be null"));
+
+        Outcome[] outcomes = new Outcome[registrations.size()];
+        List<CompletableFuture<RegistrationData>> parsing = registrations.stream()
+                .map(registration -> CompletableFuture.supplyAsync(() -> registrationManager.parse(registration.registrationRequest()), executor))
+                .toList();
+
+        Map<String, List<Integer>> formats = new LinkedHashMap<>();
+        RegistrationData[] parsed = new RegistrationData[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            try {
+                parsed[i] = parsing.get(i).join();
+                String format = ofNullable(parsed[i].getAttestationObject()).map(AttestationObject::getFormat).orElse("");
+                formats.computeIfAbsent(format, key -> new ArrayList<>()).add(i);
+            } catch (CompletionException e) {
+                outcomes[i] = new Outcome(registrations.get(i), null, e.getCause());
+            }
+        }
+
+        // submitted format by format, so that the registrations of one authenticator model, which mostly share
+        // their certificate path, run back to back and find the path already verified
+        Map<DeduplicatingCertPathTrustworthinessVerifier.CertPath, FutureTask<Void>> verifications = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> verifying = new ArrayList<>(outcomes.length);
+        for (List<Integer> indexes : formats.values()) {
+            for (int index : indexes) {
+                Registration registration = registrations.get(index);
+                verifying.add(CompletableFuture.runAsync(() -> outcomes[index] = certPathTrustworthinessVerifier.inBatch(verifications, () -> {
+                    try {
+                        return new Outcome(registration, registrationManager.verify(parsed[index], registration.registrationParameters()), null);
+                    } catch (RuntimeException e) {
+                        return new Outcome(registration, null, e);
+                    }
+                }), executor));
+            }
+        }
+        CompletableFuture.allOf(verifying.toArray(CompletableFuture[]::new)).join();
+
+        logger.debug("Verified {} registrations in {} attestation formats, {} distinct certificate paths",
+                outcomes.length, formats.size(), verifications.size());
+        return List.of(outcomes);
+    }
+
+    public record Registration(RegistrationRequest registrationRequest, RegistrationParameters registrationParameters) {
+
+        public Registration {
+            ofNullable(registrationRequest).orElseThrow(() -> new IllegalArgumentException("registrationRequest must not be null"));
+            ofNullable(registrationParameters).orElseThrow(() -> new IllegalArgumentException("registrationParameters must not be null"));
+        }
+    }
+
+    public record Outcome(Registration registration, RegistrationData registrationData, Throwable failure) {
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import static java.util.Optional.ofNullable;
+
+// validates each distinct (AAGUID, certificate path) once per batch, the registrations sharing it wait for that outcome and each
+// gets its own exception when it failed
+final class DeduplicatingCertPathTrustworthinessVerifier implements CertPathTrustworthinessVerifier {
+
+    private final CertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
+
+    // set by BatchRegistrationVerifier on the thread running a registration, empty outside a batch
+    private final ThreadLocal<Map<CertPath, FutureTask<Void>>> batch = new ThreadLocal<>();
+
+    DeduplicatingCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        this.certPathTrustworthinessVerifier = ofNullable(certPathTrustworthinessVerifier)
+                .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifier must not be null"));
+    }
+
+    @Override
+    public void verify(AAGUID aaguid, CertificateBaseAttestationStatement attestationStatement, Instant timestamp) {
+        Map<CertPath, FutureTask<Void>> verifications = batch.get();
+        if (verifications == null || attestationStatement.getX5c() == null) {
+            certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+            return;
+        }
+
+        FutureTask<Void> verification = new FutureTask<>(() -> {
+            certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+            return null;
+        });
+        FutureTask<Void> existing = verifications.putIfAbsent(CertPath.of(aaguid, attestationStatement.getX5c(), timestamp), verification);
+        boolean owner = existing == null;
+        if (owner) {
+            verification.run();
+            existing = verification;
+        }
+        try {
+            existing.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw owner ? runtimeException : VerificationFailures.copyOf(runtimeException);
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the certificate path verification", e);
+        }
+    }
+
+    <T> T inBatch(Map<CertPath, FutureTask<Void>> verifications, Supplier<T> task) {
+        Map<CertPath, FutureTask<Void>> previous = batch.get();
+        batch.set(verifications);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                batch.remove();
+            } else {
+                batch.set(previous);
+            }
+        }
+    }
+
+    // X509Certificate compares by its encoding, so equal chains make equal keys. Every registration has its own timestamp, so
+    // the key holds the validity window it falls in instead: how many of the chain's notBefore and notAfter bounds it is past.
+    // Two registrations in the same window see every certificate of the chain equally valid, and the trust anchors
+    // and revocation lists they are checked against are not expected to change in the seconds a batch takes
+    record CertPath(AAGUID aaguid, List<X509Certificate> certificates, int validityWindow) {
+
+        static CertPath of(AAGUID aaguid, List<X509Certificate> certificates, Instant timestamp) {
+            long time = timestamp.toEpochMilli();
+            int validityWindow = 0;
+            for (X509Certificate certificate : certificates) {
+                if (certificate.getNotBefore().getTime() <= time) {
+                    validityWindow++;
+                }
+                if (certificate.getNotAfter().getTime() < time) {
+                    validityWindow++;
+                }
+            }
+            return new CertPath(aaguid, List.copyOf(certificates), validityWindow);
+        }
+    }
+}
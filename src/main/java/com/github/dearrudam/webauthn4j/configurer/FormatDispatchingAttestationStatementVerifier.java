@@ -0,0 +1,125 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.data.attestation.statement.AttestationType;
+import com.webauthn4j.verifier.CoreRegistrationObject;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.androidkey.AndroidKeyAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.androidsafetynet.AndroidSafetyNetAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.apple.AppleAnonymousAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.none.NoneAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.packed.PackedAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.tpm.TPMAttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.u2f.FIDOU2FAttestationStatementVerifier;
+import com.webauthn4j.verifier.exception.BadAttestationStatementException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static java.util.Optional.ofNullable;
+
+// a single verifier for the manager, picking the verifier by the attestation fmt instead of asking each one whether it supports
+// the statement, the verifier of a format is only created, and its classes loaded, by the first registration using it
+final class FormatDispatchingAttestationStatementVerifier implements AttestationStatementVerifier {
+
+    // lambdas rather than constructor references, a constructor reference loads its class as soon as the map is built
+    static final Map<String, Supplier<AttestationStatementVerifier>> DEFAULT_FORMATS = defaultFormats();
+
+    private final Map<String, LazyVerifier> verifiers;
+
+    private FormatDispatchingAttestationStatementVerifier(Map<String, LazyVerifier> verifiers) {
+        this.verifiers = verifiers;
+    }
+
+    static FormatDispatchingAttestationStatementVerifier of(Collection<String> formats) {
+        ofNullable(formats).orElseThrow(() -> new IllegalArgumentException("formats must not be null"));
+        if (formats.isEmpty()) {
+            throw new IllegalArgumentException("formats must not be empty");
+        }
+        Map<String, LazyVerifier> verifiers = new HashMap<>(formats.size() * 2);
+        for (String format : formats) {
+            Supplier<AttestationStatementVerifier> supplier = DEFAULT_FORMATS.get(format);
+            if (supplier == null) {
+                throw new IllegalArgumentException("Unknown attestation format %s, expected one of %s".formatted(format, DEFAULT_FORMATS.keySet()));
+            }
+            verifiers.put(format, new LazyVerifier(supplier));
+        }
+        return new FormatDispatchingAttestationStatementVerifier(verifiers);
+    }
+
+    Set<String> getFormats() {
+        return Collections.unmodifiableSet(new TreeSet<>(verifiers.keySet()));
+    }
+
+    @Override
+    public boolean supports(CoreRegistrationObject registrationObject) {
+        LazyVerifier verifier = verifiers.get(registrationObject.getAttestationObject().getFormat());
+        return verifier != null && verifier.get().supports(registrationObject);
+    }
+
+    @Override
+    public AttestationType verify(CoreRegistrationObject registrationObject) {
+        String format = registrationObject.getAttestationObject().getFormat();
+        LazyVerifier verifier = verifiers.get(format);
+        if (verifier == null) {
+            throw new BadAttestationStatementException("Attestation format %s is not enabled".formatted(format));
+        }
+        return verifier.get().verify(registrationObject);
+    }
+
+    // the same formats verify the same way, so buildShared() can share managers configured with equal format sets
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FormatDispatchingAttestationStatementVerifier other && verifiers.keySet().equals(other.verifiers.keySet());
+    }
+
+    @Override
+    public int hashCode() {
+        return verifiers.keySet().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FormatDispatchingAttestationStatementVerifier" + getFormats();
+    }
+
+    private static Map<String, Supplier<AttestationStatementVerifier>> defaultFormats() {
+        Map<String, Supplier<AttestationStatementVerifier>> formats = new LinkedHashMap<>();
+        formats.put("packed", () -> new PackedAttestationStatementVerifier());
+        formats.put("fido-u2f", () -> new FIDOU2FAttestationStatementVerifier());
+        formats.put("android-key", () -> new AndroidKeyAttestationStatementVerifier());
+        formats.put("android-safetynet", () -> new AndroidSafetyNetAttestationStatementVerifier());
+        formats.put("tpm", () -> new TPMAttestationStatementVerifier());
+        formats.put("apple", () -> new AppleAnonymousAttestationStatementVerifier());
+        formats.put("none", () -> new NoneAttestationStatementVerifier());
+        return Collections.unmodifiableMap(formats);
+    }
+
+    private static final class LazyVerifier {
+
+        private final Supplier<AttestationStatementVerifier> supplier;
+        private volatile AttestationStatementVerifier verifier;
+
+        LazyVerifier(Supplier<AttestationStatementVerifier> supplier) {
+            this.supplier = supplier;
+        }
+
+        AttestationStatementVerifier get() {
+            AttestationStatementVerifier verifier = this.verifier;
+            if (verifier == null) {
+                synchronized (this) {
+                    verifier = this.verifier;
+                    if (verifier == null) {
+                        this.verifier = verifier = supplier.get();
+                    }
+                }
+            }
+            return verifier;
+        }
+    }
+}
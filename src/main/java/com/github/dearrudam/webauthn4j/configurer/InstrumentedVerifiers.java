@@ -0,0 +1,144 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.AttestationType;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.verifier.CoreRegistrationObject;
+import com.webauthn4j.verifier.CustomRegistrationVerifier;
+import com.webauthn4j.verifier.RegistrationObject;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.self.SelfAttestationTrustworthinessVerifier;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// times the verifiers handed to WebAuthnRegistrationManager, left out entirely when metrics are disabled
+final class InstrumentedVerifiers {
+
+    // the format comes from the attestation object, so it is replaced by the constant naming the same format before it
+    // reaches the metrics, and a format no verifier knows by UNKNOWN_FORMAT
+    private static final Map<String, String> KNOWN_FORMATS = knownFormats();
+
+    private InstrumentedVerifiers() {
+    }
+
+    static List<AttestationStatementVerifier> attestationStatementVerifiers(List<AttestationStatementVerifier> attestationStatementVerifiers, WebAuthnMetrics metrics) {
+        if (metrics == WebAuthnMetrics.NOOP) {
+            return attestationStatementVerifiers;
+        }
+        List<AttestationStatementVerifier> instrumented = new ArrayList<>(attestationStatementVerifiers.size());
+        attestationStatementVerifiers.forEach(verifier -> instrumented.add(new InstrumentedAttestationStatementVerifier(verifier, metrics)));
+        return instrumented;
+    }
+
+    static CertPathTrustworthinessVerifier certPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier, WebAuthnMetrics metrics) {
+        return metrics == WebAuthnMetrics.NOOP
+                ? certPathTrustworthinessVerifier
+                : new InstrumentedCertPathTrustworthinessVerifier(certPathTrustworthinessVerifier, metrics);
+    }
+
+    static SelfAttestationTrustworthinessVerifier selfAttestationTrustworthinessVerifier(SelfAttestationTrustworthinessVerifier selfAttestationTrustworthinessVerifier, WebAuthnMetrics metrics) {
+        return metrics == WebAuthnMetrics.NOOP
+                ? selfAttestationTrustworthinessVerifier
+                : new InstrumentedSelfAttestationTrustworthinessVerifier(selfAttestationTrustworthinessVerifier, metrics);
+    }
+
+    static List<CustomRegistrationVerifier> customRegistrationVerifiers(List<CustomRegistrationVerifier> customRegistrationVerifiers, WebAuthnMetrics metrics) {
+        if (metrics == WebAuthnMetrics.NOOP) {
+            return customRegistrationVerifiers;
+        }
+        List<CustomRegistrationVerifier> instrumented = new ArrayList<>(customRegistrationVerifiers.size());
+        customRegistrationVerifiers.forEach(verifier -> instrumented.add(new InstrumentedCustomRegistrationVerifier(verifier, metrics)));
+        return instrumented;
+    }
+
+    private record InstrumentedAttestationStatementVerifier(AttestationStatementVerifier attestationStatementVerifier,
+                                                            WebAuthnMetrics metrics) implements AttestationStatementVerifier {
+
+        @Override
+        public AttestationType verify(CoreRegistrationObject registrationObject) {
+            long start = System.nanoTime();
+            try {
+                AttestationType attestationType = attestationStatementVerifier.verify(registrationObject);
+                metrics.recordVerification(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT, formatOf(registrationObject), System.nanoTime() - start, null);
+                return attestationType;
+            } catch (RuntimeException e) {
+                metrics.recordVerification(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT, formatOf(registrationObject), System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean supports(CoreRegistrationObject registrationObject) {
+            return attestationStatementVerifier.supports(registrationObject);
+        }
+    }
+
+    private record InstrumentedCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier,
+                                                               WebAuthnMetrics metrics) implements CertPathTrustworthinessVerifier {
+
+        @Override
+        public void verify(AAGUID aaguid, CertificateBaseAttestationStatement attestationStatement, Instant timestamp) {
+            long start = System.nanoTime();
+            try {
+                certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+                metrics.recordVerification(WebAuthnMetrics.Verification.CERT_PATH_TRUSTWORTHINESS, knownFormat(attestationStatement.getFormat()), System.nanoTime() - start, null);
+            } catch (RuntimeException e) {
+                metrics.recordVerification(WebAuthnMetrics.Verification.CERT_PATH_TRUSTWORTHINESS, knownFormat(attestationStatement.getFormat()), System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+    }
+
+    private record InstrumentedSelfAttestationTrustworthinessVerifier(SelfAttestationTrustworthinessVerifier selfAttestationTrustworthinessVerifier,
+                                                                      WebAuthnMetrics metrics) implements SelfAttestationTrustworthinessVerifier {
+
+        @Override
+        public void verify(CertificateBaseAttestationStatement attestationStatement) {
+            long start = System.nanoTime();
+            try {
+                selfAttestationTrustworthinessVerifier.verify(attestationStatement);
+                metrics.recordVerification(WebAuthnMetrics.Verification.SELF_ATTESTATION_TRUSTWORTHINESS, knownFormat(attestationStatement.getFormat()), System.nanoTime() - start, null);
+            } catch (RuntimeException e) {
+                metrics.recordVerification(WebAuthnMetrics.Verification.SELF_ATTESTATION_TRUSTWORTHINESS, knownFormat(attestationStatement.getFormat()), System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+    }
+
+    private record InstrumentedCustomRegistrationVerifier(CustomRegistrationVerifier customRegistrationVerifier,
+                                                          WebAuthnMetrics metrics) implements CustomRegistrationVerifier {
+
+        @Override
+        public void verify(RegistrationObject registrationObject) {
+            long start = System.nanoTime();
+            try {
+                customRegistrationVerifier.verify(registrationObject);
+                metrics.recordVerification(WebAuthnMetrics.Verification.CUSTOM_REGISTRATION, formatOf(registrationObject), System.nanoTime() - start, null);
+            } catch (RuntimeException e) {
+                metrics.recordVerification(WebAuthnMetrics.Verification.CUSTOM_REGISTRATION, formatOf(registrationObject), System.nanoTime() - start, e);
+                throw e;
+            }
+        }
+    }
+
+    private static String formatOf(CoreRegistrationObject registrationObject) {
+        return registrationObject.getAttestationObject() == null ? WebAuthnMetrics.UNKNOWN_FORMAT : knownFormat(registrationObject.getAttestationObject().getFormat());
+    }
+
+    static String knownFormat(String format) {
+        return format == null ? WebAuthnMetrics.UNKNOWN_FORMAT : KNOWN_FORMATS.getOrDefault(format, WebAuthnMetrics.UNKNOWN_FORMAT);
+    }
+
+    private static Map<String, String> knownFormats() {
+        Map<String, String> knownFormats = new HashMap<>();
+        FormatDispatchingAttestationStatementVerifier.DEFAULT_FORMATS.keySet().forEach(format -> knownFormats.put(format, format));
+        return Collections.unmodifiableMap(knownFormats);
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.RefreshableTrustAnchorRepository;
+import com.github.dearrudam.webauthn4j.mds.TrustAnchorIndex;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.util.MessageDigestUtil;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static java.util.Optional.ofNullable;
+
+// remembers the verdict of the delegate per AAGUID and certificate chain, invalidatedBy(repository, verifier) or the configurer's
+// withMemoizedCertPathTrustworthinessVerifier(...) forget the verdicts whenever the repository swaps its trust anchors
+public final class MemoizingCertPathTrustworthinessVerifier implements CertPathTrustworthinessVerifier {
+
+    static final Logger logger = LoggerFactory.getLogger(MemoizingCertPathTrustworthinessVerifier.class);
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+    // a rejection may be transient, e.g. a revocation list not fetched yet, so it is retried much sooner than a trusted chain
+    public static final Duration DEFAULT_FAILURE_TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    private final CertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
+    private final int maximumSize;
+    private final Duration timeToLive;
+    private final Duration failureTimeToLive;
+    private final Clock clock;
+
+    // read without a lock, only an insertion beyond the maximum size takes the eviction lock
+    private final ConcurrentHashMap<ChainKey, Verdict> verdicts = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // stamps each verdict on use, the least recently used chain is evicted first
+    private final AtomicLong uses = new AtomicLong();
+
+    // bumped by invalidateAll(), a verdict of an earlier generation was computed against the previous trust anchors and is
+    // ignored even if it was stored after the map was cleared
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemoizingCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        this(certPathTrustworthinessVerifier, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, Clock.systemUTC());
+    }
+
+    public MemoizingCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier, int maximumSize, Duration timeToLive, Clock clock) {
+        this(certPathTrustworthinessVerifier, maximumSize, timeToLive,
+                timeToLive == null || DEFAULT_FAILURE_TIME_TO_LIVE.compareTo(timeToLive) < 0 ? DEFAULT_FAILURE_TIME_TO_LIVE : timeToLive, clock);
+    }
+
+    public MemoizingCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier, int maximumSize, Duration timeToLive,
+                                                    Duration failureTimeToLive, Clock clock) {
+        this.certPathTrustworthinessVerifier = ofNullable(certPathTrustworthinessVerifier)
+                .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifier must not be null"));
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLive = ofNullable(timeToLive).orElseThrow(() -> new IllegalArgumentException("timeToLive must not be null"));
+        this.failureTimeToLive = ofNullable(failureTimeToLive).orElseThrow(() -> new IllegalArgumentException("failureTimeToLive must not be null"));
+        this.clock = ofNullable(clock).orElseThrow(() -> new IllegalArgumentException("clock must not be null"));
+    }
+
+    // the memoizer forgets its verdicts on every swap of the repository, which only holds it weakly, so a discarded
+    // memoizer is collected and its listener dropped on the next swap
+    public static MemoizingCertPathTrustworthinessVerifier invalidatedBy(RefreshableTrustAnchorRepository trustAnchorRepository,
+                                                                         CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        ofNullable(trustAnchorRepository).orElseThrow(() -> new IllegalArgumentException("trustAnchorRepository must not be null"));
+        MemoizingCertPathTrustworthinessVerifier memoizer = new MemoizingCertPathTrustworthinessVerifier(certPathTrustworthinessVerifier);
+        WeakReference<MemoizingCertPathTrustworthinessVerifier> reference = new WeakReference<>(memoizer);
+        trustAnchorRepository.addRefreshListener(new Consumer<>() {
+            @Override
+            public void accept(TrustAnchorIndex index) {
+                MemoizingCertPathTrustworthinessVerifier referenced = reference.get();
+                if (referenced == null) {
+                    trustAnchorRepository.removeRefreshListener(this);
+                } else {
+                    referenced.invalidateAll();
+                }
+            }
+        });
+        return memoizer;
+    }
+
+    @Override
+    public void verify(AAGUID aaguid, CertificateBaseAttestationStatement attestationStatement, Instant timestamp) {
+        ChainKey key = ChainKey.of(aaguid, attestationStatement.getX5c());
+        if (key == null) {
+            certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+            return;
+        }
+
+        Instant now = clock.instant();
+        long currentGeneration = generation.get();
+        Verdict verdict = verdicts.get(key);
+        if (verdict != null && (verdict.generation() != currentGeneration || !now.isBefore(verdict.expiresAt()))) {
+            verdicts.remove(key, verdict);
+            verdict = null;
+        }
+
+        boolean computed = verdict == null;
+        if (computed) {
+            RuntimeException failure = null;
+            try {
+                certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            verdict = new Verdict(failure, expiresAt(now, failure, attestationStatement.getX5c()), currentGeneration);
+            if (generation.get() == currentGeneration) {
+                verdict.lastUsed = uses.incrementAndGet();
+                verdicts.put(key, verdict);
+                if (verdicts.size() > maximumSize) {
+                    evictLeastRecentlyUsed();
+                }
+            }
+        } else {
+            verdict.lastUsed = uses.incrementAndGet();
+        }
+
+        if (verdict.failure() != null) {
+            throw computed ? verdict.failure() : VerificationFailures.copyOf(verdict.failure());
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        logger.debug("Invalidating {} certificate path verdicts", verdicts.size());
+        verdicts.clear();
+    }
+
+    public int size() {
+        return verdicts.size();
+    }
+
+    // a scan, but only by the insertions that overflow the map, a hit never waits for it
+    private void evictLeastRecentlyUsed() {
+        evictionLock.lock();
+        try {
+            while (verdicts.size() > maximumSize) {
+                Map.Entry<ChainKey, Verdict> eldest = null;
+                for (Map.Entry<ChainKey, Verdict> entry : verdicts.entrySet()) {
+                    if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                        eldest = entry;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                verdicts.remove(eldest.getKey(), eldest.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // a trusted chain is only trusted until its first certificate expires, whatever the time to live
+    private Instant expiresAt(Instant now, RuntimeException failure, List<X509Certificate> certificates) {
+        if (failure != null) {
+            return now.plus(failureTimeToLive);
+        }
+        Instant expiresAt = now.plus(timeToLive);
+        for (X509Certificate certificate : certificates) {
+            Instant notAfter = certificate.getNotAfter().toInstant();
+            if (notAfter.isBefore(expiresAt)) {
+                expiresAt = notAfter;
+            }
+        }
+        return expiresAt;
+    }
+
+    private static final class Verdict {
+
+        private final RuntimeException failure;
+        private final Instant expiresAt;
+        private final long generation;
+        private volatile long lastUsed;
+
+        Verdict(RuntimeException failure, Instant expiresAt, long generation) {
+            this.failure = failure;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+
+        RuntimeException failure() {
+            return failure;
+        }
+
+        Instant expiresAt() {
+            return expiresAt;
+        }
+
+        long generation() {
+            return generation;
+        }
+    }
+
+    private record ChainKey(AAGUID aaguid, ByteBuffer chainHash) {
+
+        static ChainKey of(AAGUID aaguid, List<X509Certificate> certificates) {
+            if (certificates == null || certificates.isEmpty()) {
+                return null;
+            }
+            MessageDigest messageDigest = MessageDigestUtil.createSHA256();
+            try {
+                for (X509Certificate certificate : certificates) {
+                    messageDigest.update(certificate.getEncoded());
+                }
+            } catch (CertificateEncodingException e) {
+                logger.debug("Certificate path can not be encoded, it will not be memoized", e);
+                return null;
+            }
+            return new ChainKey(aaguid, ByteBuffer.wrap(messageDigest.digest()));
+        }
+    }
+}
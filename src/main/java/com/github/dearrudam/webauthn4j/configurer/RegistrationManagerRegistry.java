@@ -0,0 +1,216 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+
+// the registration managers of many relying parties, keyed by RP ID and a policy such as a record of the attestation formats the RP
+// accepts; a manager verifies for any RP ID, so tenants whose policies are equal share one, built on first use and dropped with
+// its last tenant
+public final class RegistrationManagerRegistry<P> implements AutoCloseable {
+
+    static final Logger logger = LoggerFactory.getLogger(RegistrationManagerRegistry.class);
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofHours(1);
+
+    // a tenant's last access is only written again after this long, so a busy tenant does not bounce a cache line between cores
+    static final long ACCESS_GRANULARITY_MILLIS = 1_000;
+
+    private final Function<? super P, WebAuthnRegistrationManager> registrationManagerFactory;
+    private final Duration idleTimeout;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    // lookups never lock, updates only lock the bin of their key
+    private final ConcurrentHashMap<String, Tenant<P>> tenants = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<P, SharedManager<P>> registrationManagers = new ConcurrentHashMap<>();
+
+    public RegistrationManagerRegistry(Function<? super P, WebAuthnRegistrationManager> registrationManagerFactory) {
+        this(registrationManagerFactory, DEFAULT_IDLE_TIMEOUT, Clock.systemUTC());
+    }
+
+    public RegistrationManagerRegistry(Function<? super P, WebAuthnRegistrationManager> registrationManagerFactory, Duration idleTimeout, Clock clock) {
+        this.registrationManagerFactory = ofNullable(registrationManagerFactory)
+                .orElseThrow(() -> new IllegalArgumentException("registrationManagerFactory must not be null"));
+        this.idleTimeout = ofNullable(idleTimeout).orElseThrow(() -> new IllegalArgumentException("idleTimeout must not be null"));
+        this.clock = ofNullable(clock).orElseThrow(() -> new IllegalArgumentException("clock must not be null"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tenant-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // the policy should be a record or another value with equals, a tenant given a new policy moves to its manager
+    public WebAuthnRegistrationManager get(String rpId, P policy) {
+        ofNullable(rpId).orElseThrow(() -> new IllegalArgumentException("rpId must not be null"));
+        ofNullable(policy).orElseThrow(() -> new IllegalArgumentException("policy must not be null"));
+        long now = clock.millis();
+        Tenant<P> tenant = tenants.get(rpId);
+        if (tenant == null || !tenant.policy().equals(policy)) {
+            tenant = tenants.compute(rpId, (key, current) -> {
+                if (current != null && current.policy().equals(policy)) {
+                    return current;
+                }
+                SharedManager<P> registrationManager = retain(policy);
+                if (current != null) {
+                    release(current.registrationManager());
+                }
+                return new Tenant<>(policy, registrationManager, now);
+            });
+        }
+        tenant.touch(now);
+        return tenant.registrationManager().get(registrationManagerFactory);
+    }
+
+    public void remove(String rpId) {
+        ofNullable(rpId).orElseThrow(() -> new IllegalArgumentException("rpId must not be null"));
+        tenants.computeIfPresent(rpId, (key, tenant) -> {
+            release(tenant.registrationManager());
+            return null;
+        });
+    }
+
+    // drops the tenants not looked up within the idle timeout, and the managers no tenant uses anymore
+    public int evictIdle() {
+        long cutoff = clock.millis() - idleTimeout.toMillis();
+        int evicted = 0;
+        for (Map.Entry<String, Tenant<P>> entry : tenants.entrySet()) {
+            if (entry.getValue().lastAccess() > cutoff) {
+                continue;
+            }
+            // checked again under the bin lock, a tenant looked up in the meantime stays
+            boolean[] removed = new boolean[1];
+            tenants.computeIfPresent(entry.getKey(), (rpId, tenant) -> {
+                if (tenant.lastAccess() > cutoff) {
+                    return tenant;
+                }
+                release(tenant.registrationManager());
+                removed[0] = true;
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Evicted {} idle tenants, {} tenants share {} registration managers", evicted, tenants.size(), registrationManagers.size());
+        }
+        return evicted;
+    }
+
+    public int getTenantCount() {
+        return tenants.size();
+    }
+
+    public int getRegistrationManagerCount() {
+        return registrationManagers.size();
+    }
+
+    public void start(Duration interval) {
+        ofNullable(interval).orElseThrow(() -> new IllegalArgumentException("interval must not be null"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdle();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to evict the idle tenants", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private SharedManager<P> retain(P policy) {
+        return registrationManagers.compute(policy, (key, current) -> current == null ? new SharedManager<>(key) : current.retain());
+    }
+
+    private void release(SharedManager<P> registrationManager) {
+        registrationManagers.computeIfPresent(registrationManager.policy(), (key, current) -> current.release() == 0 ? null : current);
+    }
+
+    private static final class Tenant<P> {
+
+        private final P policy;
+        private final SharedManager<P> registrationManager;
+        private volatile long lastAccess;
+
+        private Tenant(P policy, SharedManager<P> registrationManager, long lastAccess) {
+            this.policy = policy;
+            this.registrationManager = registrationManager;
+            this.lastAccess = lastAccess;
+        }
+
+        P policy() {
+            return policy;
+        }
+
+        SharedManager<P> registrationManager() {
+            return registrationManager;
+        }
+
+        long lastAccess() {
+            return lastAccess;
+        }
+
+        void touch(long now) {
+            if (now - lastAccess >= ACCESS_GRANULARITY_MILLIS) {
+                lastAccess = now;
+            }
+        }
+    }
+
+    // tenants are only counted under the bin lock of registrationManagers, the manager is built outside of it
+    private static final class SharedManager<P> {
+
+        private final P policy;
+        private int tenants = 1;
+        private volatile WebAuthnRegistrationManager registrationManager;
+
+        private SharedManager(P policy) {
+            this.policy = policy;
+        }
+
+        P policy() {
+            return policy;
+        }
+
+        SharedManager<P> retain() {
+            tenants++;
+            return this;
+        }
+
+        int release() {
+            return --tenants;
+        }
+
+        WebAuthnRegistrationManager get(Function<? super P, WebAuthnRegistrationManager> registrationManagerFactory) {
+            WebAuthnRegistrationManager current = registrationManager;
+            if (current != null) {
+                return current;
+            }
+            // the first tenants of a policy wait for one build, the other policies are not held up
+            synchronized (this) {
+                if (registrationManager == null) {
+                    registrationManager = ofNullable(registrationManagerFactory.apply(policy))
+                            .orElseThrow(() -> new IllegalStateException("registrationManagerFactory returned null for %s".formatted(policy)));
+                    logger.debug("Built the registration manager for {}", policy);
+                }
+                return registrationManager;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.AttestationObjectConverter;
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialParameters;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.data.extension.authenticator.RegistrationExtensionAuthenticatorOutput;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.util.ECUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+// runs one made up "none" registration through a bare manager over the same converter and attestation statement verifiers, so
+// Jackson, the CBOR module, the converters and the verifier classes are initialized while the instance starts instead of during
+// its first request; the metrics and the custom registration verifiers of the real manager never see it
+final class RegistrationWarmup {
+
+    static final Logger logger = LoggerFactory.getLogger(RegistrationWarmup.class);
+
+    static final String RP_ID = "warmup.invalid";
+    static final Origin ORIGIN = new Origin("https://warmup.invalid");
+
+    private RegistrationWarmup() {
+    }
+
+    static void warmUp(ObjectConverter objectConverter, List<AttestationStatementVerifier> attestationStatementVerifiers) {
+        long start = System.nanoTime();
+        try {
+            // a none attestation is never checked for trustworthiness, these verifiers are only there to satisfy the manager
+            WebAuthnRegistrationManager registrationManager = new WebAuthnRegistrationManager(
+                    attestationStatementVerifiers,
+                    (aaguid, attestationStatement, timestamp) -> {
+                    },
+                    attestationStatement -> {
+                    },
+                    List.of(),
+                    objectConverter);
+            DefaultChallenge challenge = new DefaultChallenge();
+            byte[] clientDataJSON = new CollectedClientDataConverter(objectConverter)
+                    .convertToBytes(new CollectedClientData(ClientDataType.WEBAUTHN_CREATE, challenge, ORIGIN, null));
+            AuthenticatorData<RegistrationExtensionAuthenticatorOutput> authenticatorData = new AuthenticatorData<>(
+                    MessageDigestUtil.createSHA256().digest(RP_ID.getBytes(StandardCharsets.UTF_8)),
+                    (byte) (AuthenticatorData.BIT_UP | AuthenticatorData.BIT_AT),
+                    0,
+                    new AttestedCredentialData(AAGUID.ZERO, new byte[32], EC2COSEKey.create(ECUtil.createKeyPair(), COSEAlgorithmIdentifier.ES256)));
+            byte[] attestationObject = new AttestationObjectConverter(objectConverter)
+                    .convertToBytes(new AttestationObject(authenticatorData, new NoneAttestationStatement()));
+
+            registrationManager.verify(
+                    new RegistrationRequest(attestationObject, clientDataJSON),
+                    new RegistrationParameters(
+                            new ServerProperty(ORIGIN, RP_ID, challenge),
+                            List.of(new PublicKeyCredentialParameters(PublicKeyCredentialType.PUBLIC_KEY, COSEAlgorithmIdentifier.ES256)),
+                            false,
+                            true));
+            logger.debug("Warmed up the registration manager in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (RuntimeException e) {
+            // e.g. the none format is not enabled, the converters were still exercised
+            logger.debug("The warm-up registration was rejected after {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis(), e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// interning behind buildShared(), the ObjectConverter and verifiers hold Jackson mappers that are costly to create and warm up
+final class SharedRegistrationComponents {
+
+    // the least recently used configurations are forgotten beyond this, the components they share stay with their users
+    static final int MAX_SHARED_ENTRIES = 1024;
+
+    // a future per configuration, so racing callers wait for the one building it instead of each building their own
+    private static final Map<Object, CompletableFuture<ObjectConverter>> objectConverters = leastRecentlyUsed();
+    private static final Map<Object, CompletableFuture<WebAuthnRegistrationManager>> registrationManagers = leastRecentlyUsed();
+
+    private SharedRegistrationComponents() {
+    }
+
+    static List<AttestationStatementVerifier> newDefaultAttestationStatementVerifiers() {
+        return newAttestationStatementVerifiers(FormatDispatchingAttestationStatementVerifier.DEFAULT_FORMATS.keySet());
+    }
+
+    static List<AttestationStatementVerifier> newAttestationStatementVerifiers(Collection<String> formats) {
+        return List.of(FormatDispatchingAttestationStatementVerifier.of(formats));
+    }
+
+    static List<AttestationStatementVerifier> defaultAttestationStatementVerifiers() {
+        return DefaultAttestationStatementVerifiers.INSTANCE;
+    }
+
+    // a converter parsing through a certificate cache is the cache's own, shared by every configuration with that cache
+    static ObjectConverter objectConverter(Supplier<ObjectConverter> objectConverterSupplier, X509CertificateCache certificateCache) {
+        return certificateCache == null
+                ? intern(objectConverters, key(objectConverterSupplier), objectConverterSupplier)
+                : intern(objectConverters, key(X509CertificateCache.class, certificateCache), certificateCache::newObjectConverter);
+    }
+
+    static WebAuthnRegistrationManager registrationManager(Object configuration, Supplier<WebAuthnRegistrationManager> registrationManagerSupplier) {
+        return intern(registrationManagers, configuration, registrationManagerSupplier);
+    }
+
+    // the components of a configuration as compared by buildShared(): each by its own equals, so functions, suppliers and
+    // verifiers by identity unless they define one, a capturing lambda is a new object on every evaluation and is only
+    // shared when held in a field or when the caller passes its own key to buildShared(Object)
+    static List<Object> key(Object... components) {
+        return Collections.unmodifiableList(Arrays.asList(components.clone()));
+    }
+
+    // the lock is only held to find or add the future, the component is built by the caller that added it
+    private static <V> V intern(Map<Object, CompletableFuture<V>> components, Object key, Supplier<V> supplier) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> component = components.putIfAbsent(key, created);
+        if (component == null) {
+            try {
+                created.complete(supplier.get());
+            } catch (RuntimeException | Error e) {
+                // the next caller tries again rather than getting this failure
+                components.remove(key, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+            return created.join();
+        }
+        try {
+            return component.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw VerificationFailures.copyOf(failure);
+            }
+            throw e;
+        }
+    }
+
+    static int sharedCount() {
+        return objectConverters.size() + registrationManagers.size();
+    }
+
+    private static <V> Map<Object, V> leastRecentlyUsed() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, V> eldest) {
+                return size() > MAX_SHARED_ENTRIES;
+            }
+        });
+    }
+
+    private static final class DefaultAttestationStatementVerifiers {
+
+        private static final List<AttestationStatementVerifier> INSTANCE = List.copyOf(newDefaultAttestationStatementVerifiers());
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.dearrudam.webauthn4j.configurer;
 
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
 import com.webauthn4j.WebAuthnRegistrationManager;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.util.AssertUtil;
@@ -9,6 +10,7 @@ import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrus
 import com.webauthn4j.verifier.attestation.trustworthiness.self.SelfAttestationTrustworthinessVerifier;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -26,17 +28,21 @@ final class SimplestWebAuthnRegistrationManagerConfigurer implements
         return new SimplestWebAuthnRegistrationManagerConfigurer();
     }
 
-    private ObjectConverter objectConverter;
+    // the steps only record what was asked for, the components are created by build(), so a buildShared() finding the
+    // configuration already built creates none of them
+    private Supplier<ObjectConverter> objectConverterSupplier;
+    private Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction;
+    private Function<ObjectConverter, SelfAttestationTrustworthinessVerifier> selfAttestationTrustworthinessVerifierFunction;
+    private Function<ObjectConverter, List<CustomRegistrationVerifier>> customRegistrationVerifiersFunction;
     private List<AttestationStatementVerifier> attestationStatementVerifiers;
-    private CertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
-    private SelfAttestationTrustworthinessVerifier selfAttestationTrustworthinessVerifier;
-    private List<CustomRegistrationVerifier> customRegistrationVerifiers;
+    private WebAuthnMetrics metrics = WebAuthnMetrics.NOOP;
+    private boolean warmUp;
+    private X509CertificateCache certificateCache;
 
     @Override
     public WebAuthnRegistrationManagerConfigurer.ConfigurerAttestationStatementVerifiers withObjectConverter(Supplier<ObjectConverter> objectConverterSupplier) {
-        this.objectConverter = ofNullable(objectConverterSupplier)
-                .orElseThrow(()-> new IllegalArgumentException("objectConverterSupplier must not be null"))
-                .get();
+        this.objectConverterSupplier = ofNullable(objectConverterSupplier)
+                .orElseThrow(()-> new IllegalArgumentException("objectConverterSupplier must not be null"));
         return this;
     }
 
@@ -49,37 +55,124 @@ final class SimplestWebAuthnRegistrationManagerConfigurer implements
 
     @Override
     public WebAuthnRegistrationManagerConfigurer.ConfigurerSelfAttestationTrustworthinessVerifier withCertPathTrustworthinessVerifier(Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction) {
-        this.certPathTrustworthinessVerifier = ofNullable(certPathTrustworthinessVerifierFunction)
-                .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifierFunction must not be null"))
-                .apply(this.objectConverter);
-        AssertUtil.notNull(this.certPathTrustworthinessVerifier, "certPathTrustworthinessVerifier must not be null");
+        this.certPathTrustworthinessVerifierFunction = ofNullable(certPathTrustworthinessVerifierFunction)
+                .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifierFunction must not be null"));
         return this;
     }
 
     @Override
     public WebAuthnRegistrationManagerConfigurer.ConfigurerCustomRegistrationVerifiers withSelfAttestationTrustworthinessVerifier(Function<ObjectConverter, SelfAttestationTrustworthinessVerifier> selfAttestationTrustworthinessVerifierFunction) {
-        this.selfAttestationTrustworthinessVerifier = ofNullable(selfAttestationTrustworthinessVerifierFunction)
-                .orElseThrow(() -> new IllegalArgumentException("selfAttestationTrustworthinessVerifierFunction must not be null"))
-                .apply(this.objectConverter);
+        this.selfAttestationTrustworthinessVerifierFunction = ofNullable(selfAttestationTrustworthinessVerifierFunction)
+                .orElseThrow(() -> new IllegalArgumentException("selfAttestationTrustworthinessVerifierFunction must not be null"));
         return this;
     }
 
     @Override
     public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withCustomRegistrationVerifiers(Function<ObjectConverter, List<CustomRegistrationVerifier>> customRegistrationVerifiersFunction) {
-        this.customRegistrationVerifiers = ofNullable(customRegistrationVerifiersFunction)
-                .orElseThrow(() -> new IllegalArgumentException("customRegistrationVerifiersFunction must not be null"))
-                .apply(this.objectConverter);
+        this.customRegistrationVerifiersFunction = ofNullable(customRegistrationVerifiersFunction)
+                .orElseThrow(() -> new IllegalArgumentException("customRegistrationVerifiersFunction must not be null"));
         return this;
     }
 
     @Override
     public WebAuthnRegistrationManager build() {
+        ObjectConverter objectConverter = objectConverter();
+        return create(objectConverter, InstrumentedVerifiers.certPathTrustworthinessVerifier(certPathTrustworthinessVerifier(objectConverter), this.metrics));
+    }
+
+    @Override
+    public WebAuthnRegistrationManager buildShared() {
+        return SharedRegistrationComponents.registrationManager(
+                SharedRegistrationComponents.key(
+                        SimplestWebAuthnRegistrationManagerConfigurer.class,
+                        this.objectConverterSupplier,
+                        this.attestationStatementVerifiers,
+                        this.certPathTrustworthinessVerifierFunction,
+                        this.selfAttestationTrustworthinessVerifierFunction,
+                        this.customRegistrationVerifiersFunction,
+                        this.metrics,
+                        this.warmUp,
+                        this.certificateCache),
+                this::build);
+    }
+
+    @Override
+    public WebAuthnRegistrationManager buildShared(Object key) {
+        return SharedRegistrationComponents.registrationManager(
+                SharedRegistrationComponents.key(SimplestWebAuthnRegistrationManagerConfigurer.class, key),
+                this::build);
+    }
+
+    @Override
+    public BatchRegistrationVerifier buildBatch(Executor executor) {
+        ObjectConverter objectConverter = objectConverter();
+        DeduplicatingCertPathTrustworthinessVerifier certPathTrustworthinessVerifier =
+                new DeduplicatingCertPathTrustworthinessVerifier(InstrumentedVerifiers.certPathTrustworthinessVerifier(certPathTrustworthinessVerifier(objectConverter), this.metrics));
+        return new BatchRegistrationVerifier(
+                create(objectConverter, certPathTrustworthinessVerifier),
+                certPathTrustworthinessVerifier,
+                executor);
+    }
+
+    @Override
+    public AsyncRegistrationVerifier buildAsync() {
+        return buildAsync(AsyncRegistrationVerifier.VIRTUAL_THREADS);
+    }
+
+    @Override
+    public AsyncRegistrationVerifier buildAsync(Executor executor) {
+        return new AsyncRegistrationVerifier(build(), executor);
+    }
+
+    @Override
+    public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withMetrics(WebAuthnMetrics metrics) {
+        this.metrics = ofNullable(metrics)
+                .orElseThrow(() -> new IllegalArgumentException("metrics must not be null"));
+        return this;
+    }
+
+    @Override
+    public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withWarmUp() {
+        this.warmUp = true;
+        return this;
+    }
+
+    @Override
+    public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withCertificateCache(X509CertificateCache certificateCache) {
+        this.certificateCache = ofNullable(certificateCache)
+                .orElseThrow(() -> new IllegalArgumentException("certificateCache must not be null"));
+        return this;
+    }
+
+    // null when no converter was configured, the manager then rejects the configuration
+    private ObjectConverter objectConverter() {
+        if (this.objectConverterSupplier == null) {
+            return null;
+        }
+        return this.certificateCache == null ? this.objectConverterSupplier.get() : this.certificateCache.newObjectConverter();
+    }
+
+    private CertPathTrustworthinessVerifier certPathTrustworthinessVerifier(ObjectConverter objectConverter) {
+        CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = apply(this.certPathTrustworthinessVerifierFunction, objectConverter);
+        AssertUtil.notNull(certPathTrustworthinessVerifier, "certPathTrustworthinessVerifier must not be null");
+        return certPathTrustworthinessVerifier;
+    }
+
+    private WebAuthnRegistrationManager create(ObjectConverter objectConverter, CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        if (this.warmUp) {
+            RegistrationWarmup.warmUp(objectConverter, this.attestationStatementVerifiers);
+        }
         return new WebAuthnRegistrationManager(
-                this.attestationStatementVerifiers,
-                this.certPathTrustworthinessVerifier,
-                this.selfAttestationTrustworthinessVerifier,
-                this.customRegistrationVerifiers,
-                this.objectConverter
+                InstrumentedVerifiers.attestationStatementVerifiers(this.attestationStatementVerifiers, this.metrics),
+                certPathTrustworthinessVerifier,
+                InstrumentedVerifiers.selfAttestationTrustworthinessVerifier(apply(this.selfAttestationTrustworthinessVerifierFunction, objectConverter), this.metrics),
+                InstrumentedVerifiers.customRegistrationVerifiers(apply(this.customRegistrationVerifiersFunction, objectConverter), this.metrics),
+                objectConverter
         );
     }
+
+    // a step that was skipped leaves its component null for the manager to reject
+    private static <T> T apply(Function<ObjectConverter, T> function, ObjectConverter objectConverter) {
+        return function == null ? null : function.apply(objectConverter);
+    }
 }
@@ -0,0 +1,36 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import java.lang.reflect.Constructor;
+
+// a failure shared by several registrations is rethrown to each of them as its own exception, of the same type and with the
+// shared one as its cause, so a caller adding suppressed exceptions or filling the stack trace does not touch the others
+final class VerificationFailures {
+
+    // the (message, cause) constructor every webauthn4j verification exception has, null for a type without it
+    private static final ClassValue<Constructor<? extends RuntimeException>> CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Constructor<? extends RuntimeException> computeValue(Class<?> type) {
+            try {
+                return (Constructor<? extends RuntimeException>) type.getConstructor(String.class, Throwable.class);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    private VerificationFailures() {
+    }
+
+    static RuntimeException copyOf(RuntimeException failure) {
+        Constructor<? extends RuntimeException> constructor = CONSTRUCTORS.get(failure.getClass());
+        if (constructor != null) {
+            try {
+                return constructor.newInstance(failure.getMessage(), failure);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // falls through to the generic wrapper
+            }
+        }
+        return new IllegalStateException(failure.getMessage(), failure);
+    }
+}
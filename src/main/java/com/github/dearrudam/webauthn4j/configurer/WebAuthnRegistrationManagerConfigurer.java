@@ -1,16 +1,11 @@
 package com.github.dearrudam.webauthn4j.configurer;
 
+import com.github.dearrudam.webauthn4j.mds.RefreshableTrustAnchorRepository;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
 import com.webauthn4j.WebAuthnRegistrationManager;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.verifier.CustomRegistrationVerifier;
 import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.androidkey.AndroidKeyAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.androidsafetynet.AndroidSafetyNetAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.apple.AppleAnonymousAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.none.NoneAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.packed.PackedAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.tpm.TPMAttestationStatementVerifier;
-import com.webauthn4j.verifier.attestation.statement.u2f.FIDOU2FAttestationStatementVerifier;
 import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
 import com.webauthn4j.verifier.attestation.trustworthiness.self.DefaultSelfAttestationTrustworthinessVerifier;
 import com.webauthn4j.verifier.attestation.trustworthiness.self.SelfAttestationTrustworthinessVerifier;
@@ -18,9 +13,12 @@ import com.webauthn4j.verifier.attestation.trustworthiness.self.SelfAttestationT
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static java.util.Optional.ofNullable;
+
 public interface WebAuthnRegistrationManagerConfigurer {
 
     interface ConfigurerObjectConverter {
@@ -46,16 +44,14 @@ public interface WebAuthnRegistrationManagerConfigurer {
                 List<AttestationStatementVerifier> attestationStatementVerifiers);
 
         default ConfigurerCertPathTrustworthinessVerifier withDefaultAttestationStatementVerifiers() {
-            return withAttestationStatementVerifiers(
-                    Arrays.asList(
-                            new PackedAttestationStatementVerifier(),
-                            new FIDOU2FAttestationStatementVerifier(),
-                            new AndroidKeyAttestationStatementVerifier(),
-                            new AndroidSafetyNetAttestationStatementVerifier(),
-                            new TPMAttestationStatementVerifier(),
-                            new AppleAnonymousAttestationStatementVerifier(),
-                            new NoneAttestationStatementVerifier()
-                    ));
+            return withAttestationStatementVerifiers(SharedRegistrationComponents.newDefaultAttestationStatementVerifiers());
+        }
+
+        // only the given attestation formats are accepted, e.g. withAttestationFormats("packed", "none"),
+        // the verifiers of the other formats are never created
+        default ConfigurerCertPathTrustworthinessVerifier withAttestationFormats(String... formats) {
+            return withAttestationStatementVerifiers(SharedRegistrationComponents.newAttestationStatementVerifiers(
+                    Arrays.asList(ofNullable(formats).orElseThrow(() -> new IllegalArgumentException("formats must not be null")))));
         }
 
         default ConfigurerSelfAttestationTrustworthinessVerifier withCertPathTrustworthinessVerifier(
@@ -71,6 +67,17 @@ public interface WebAuthnRegistrationManagerConfigurer {
         ConfigurerSelfAttestationTrustworthinessVerifier withCertPathTrustworthinessVerifier(
                 Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction);
 
+        // remembers the verdicts of the verifier per AAGUID and certificate chain until the repository swaps its trust anchors
+        default ConfigurerSelfAttestationTrustworthinessVerifier withMemoizedCertPathTrustworthinessVerifier(
+                RefreshableTrustAnchorRepository trustAnchorRepository,
+                Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction) {
+            ofNullable(trustAnchorRepository).orElseThrow(() -> new IllegalArgumentException("trustAnchorRepository must not be null"));
+            ofNullable(certPathTrustworthinessVerifierFunction)
+                    .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifierFunction must not be null"));
+            return withCertPathTrustworthinessVerifier(objectConverter -> MemoizingCertPathTrustworthinessVerifier.invalidatedBy(
+                    trustAnchorRepository, certPathTrustworthinessVerifierFunction.apply(objectConverter)));
+        }
+
     }
 
     interface ConfigurerSelfAttestationTrustworthinessVerifier {
@@ -88,6 +95,24 @@ public interface WebAuthnRegistrationManagerConfigurer {
                     .withNoCustomRegistrationVerifiers()
                     .build();
         }
+
+        default WebAuthnRegistrationManager buildShared(){
+            return withDefaultSelfAttestationTrustworthinessVerifier()
+                    .withNoCustomRegistrationVerifiers()
+                    .buildShared();
+        }
+
+        default BatchRegistrationVerifier buildBatch(Executor executor){
+            return withDefaultSelfAttestationTrustworthinessVerifier()
+                    .withNoCustomRegistrationVerifiers()
+                    .buildBatch(executor);
+        }
+
+        default AsyncRegistrationVerifier buildAsync(){
+            return withDefaultSelfAttestationTrustworthinessVerifier()
+                    .withNoCustomRegistrationVerifiers()
+                    .buildAsync();
+        }
     }
 
     interface ConfigurerCustomRegistrationVerifiers {
@@ -105,6 +130,35 @@ public interface WebAuthnRegistrationManagerConfigurer {
 
         WebAuthnRegistrationManager build();
 
+        // returns the same thread-safe manager for every identical configuration, the functions and suppliers compare
+        // by identity, so a lambda evaluated anew on each configure is only identical when held in a field
+        WebAuthnRegistrationManager buildShared();
+
+        // returns the same thread-safe manager for every configuration built with an equal key, the caller vouches that
+        // equal keys configure equal managers
+        WebAuthnRegistrationManager buildShared(Object key);
+
+        // verifies registrations in bulk on the executor, validating each distinct certificate path once per batch
+        BatchRegistrationVerifier buildBatch(Executor executor);
+
+        // verifies without blocking the caller, on the executor
+        AsyncRegistrationVerifier buildAsync(Executor executor);
+
+        default AsyncRegistrationVerifier buildAsync() {
+            return buildAsync(AsyncRegistrationVerifier.VIRTUAL_THREADS);
+        }
+
+        // times every verifier into the metrics, WebAuthnMetrics.NOOP (the default) leaves the verifiers unwrapped
+        WebAuthnRegistrationManagerBuild withMetrics(WebAuthnMetrics metrics);
+
+        // the manager verifies a made up registration before it is returned, moving the converter and verifier
+        // initialization from the first request to startup
+        WebAuthnRegistrationManagerBuild withWarmUp();
+
+        // the manager parses with the cache's own converter, X509CertificateCache.newObjectConverter(), in place of the
+        // configured one, so the attestation certificates go through the cache, which may be shared by several managers
+        WebAuthnRegistrationManagerBuild withCertificateCache(X509CertificateCache certificateCache);
+
     }
 
 }
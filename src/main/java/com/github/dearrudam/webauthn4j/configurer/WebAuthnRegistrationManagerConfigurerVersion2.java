@@ -1,5 +1,6 @@
 package com.github.dearrudam.webauthn4j.configurer;
 
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
 import com.webauthn4j.WebAuthnRegistrationManager;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.verifier.CustomRegistrationVerifier;
@@ -8,6 +9,7 @@ import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrus
 import com.webauthn4j.verifier.attestation.trustworthiness.self.SelfAttestationTrustworthinessVerifier;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -15,11 +17,16 @@ import static java.util.Optional.ofNullable;
 
 public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
-    private ObjectConverter objectConverter;
+    // the steps only record what was asked for, components are created by build() or looked up by buildShared()
+    private Supplier<ObjectConverter> objectConverterSupplier;
     private List<AttestationStatementVerifier> attestationStatementVerifiers;
-    private CertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
-    private SelfAttestationTrustworthinessVerifier selfAttestationTrustworthinessVerifier;
-    private List<CustomRegistrationVerifier> customRegistrationVerifiers;
+    private boolean defaultAttestationStatementVerifiers;
+    private Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction;
+    private Function<ObjectConverter, SelfAttestationTrustworthinessVerifier> selfAttestationTrustworthinessVerifierFunction;
+    private Function<ObjectConverter, List<CustomRegistrationVerifier>> customRegistrationVerifiersFunction;
+    private WebAuthnMetrics metrics = WebAuthnMetrics.NOOP;
+    private boolean warmUp;
+    private X509CertificateCache certificateCache;
 
     public static WebAuthnRegistrationManagerConfigurer.ConfigurerObjectConverter configure() {
         return new WebAuthnRegistrationManagerConfigurerVersion2.ObjectConverterConfigurer(new WebAuthnRegistrationManagerConfigurerVersion2());
@@ -35,9 +42,8 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
         @Override
         public WebAuthnRegistrationManagerConfigurer.ConfigurerAttestationStatementVerifiers withObjectConverter(Supplier<ObjectConverter> objectConverterSupplier) {
-            this.configurer.objectConverter = ofNullable(objectConverterSupplier)
-                    .orElseThrow(() -> new IllegalArgumentException("objectConverterSupplier must not be null"))
-                    .get();
+            this.configurer.objectConverterSupplier = ofNullable(objectConverterSupplier)
+                    .orElseThrow(() -> new IllegalArgumentException("objectConverterSupplier must not be null"));
             return new WebAuthnRegistrationManagerConfigurerVersion2.AttestationStatementVerifiersConfigurer(this.configurer);
         }
     }
@@ -54,6 +60,14 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
         public WebAuthnRegistrationManagerConfigurer.ConfigurerCertPathTrustworthinessVerifier withAttestationStatementVerifiers(List<AttestationStatementVerifier> attestationStatementVerifiers) {
             this.configurer.attestationStatementVerifiers = ofNullable(attestationStatementVerifiers)
                     .orElseThrow(() -> new IllegalArgumentException("attestationStatementVerifiers must not be null"));
+            this.configurer.defaultAttestationStatementVerifiers = false;
+            return new WebAuthnRegistrationManagerConfigurerVersion2.CertPathTrustworthinessVerifierConfigurer(this.configurer);
+        }
+
+        @Override
+        public WebAuthnRegistrationManagerConfigurer.ConfigurerCertPathTrustworthinessVerifier withDefaultAttestationStatementVerifiers() {
+            this.configurer.attestationStatementVerifiers = null;
+            this.configurer.defaultAttestationStatementVerifiers = true;
             return new WebAuthnRegistrationManagerConfigurerVersion2.CertPathTrustworthinessVerifierConfigurer(this.configurer);
         }
     }
@@ -68,9 +82,8 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
         @Override
         public WebAuthnRegistrationManagerConfigurer.ConfigurerSelfAttestationTrustworthinessVerifier withCertPathTrustworthinessVerifier(Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction) {
-            this.configurer.certPathTrustworthinessVerifier = ofNullable(certPathTrustworthinessVerifierFunction)
-                    .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifierFunction must not be null"))
-                    .apply(this.configurer.objectConverter);
+            this.configurer.certPathTrustworthinessVerifierFunction = ofNullable(certPathTrustworthinessVerifierFunction)
+                    .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifierFunction must not be null"));
             return new WebAuthnRegistrationManagerConfigurerVersion2.SelfAttestationTrustworthinessVerifierConfigurer(this.configurer);
         }
 
@@ -86,9 +99,8 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
         @Override
         public WebAuthnRegistrationManagerConfigurer.ConfigurerCustomRegistrationVerifiers withSelfAttestationTrustworthinessVerifier(Function<ObjectConverter, SelfAttestationTrustworthinessVerifier> selfAttestationTrustworthinessVerifierFunction) {
-            this.configurer.selfAttestationTrustworthinessVerifier = ofNullable(selfAttestationTrustworthinessVerifierFunction)
-                    .orElseThrow(() -> new IllegalArgumentException("selfAttestationTrustworthinessVerifierFunction must not be null"))
-                    .apply(this.configurer.objectConverter);
+            this.configurer.selfAttestationTrustworthinessVerifierFunction = ofNullable(selfAttestationTrustworthinessVerifierFunction)
+                    .orElseThrow(() -> new IllegalArgumentException("selfAttestationTrustworthinessVerifierFunction must not be null"));
             return new WebAuthnRegistrationManagerConfigurerVersion2.CustomRegistrationVerifiersConfigurer(this.configurer);
         }
     }
@@ -103,9 +115,8 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
         @Override
         public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withCustomRegistrationVerifiers(Function<ObjectConverter, List<CustomRegistrationVerifier>> customRegistrationVerifiersFunction) {
-            this.configurer.customRegistrationVerifiers = ofNullable(customRegistrationVerifiersFunction)
-                    .orElseThrow(() -> new IllegalArgumentException("customRegistrationVerifiersFunction must not be null"))
-                    .apply(this.configurer.objectConverter);
+            this.configurer.customRegistrationVerifiersFunction = ofNullable(customRegistrationVerifiersFunction)
+                    .orElseThrow(() -> new IllegalArgumentException("customRegistrationVerifiersFunction must not be null"));
             return new WebAuthnRegistrationManagerConfigurerVersion2.WebAuthnRegistrationManagerBuilder(this.configurer);
         }
     }
@@ -120,13 +131,106 @@ public final class WebAuthnRegistrationManagerConfigurerVersion2 {
 
         @Override
         public WebAuthnRegistrationManager build() {
-            return new WebAuthnRegistrationManager(
-                    this.configurer.attestationStatementVerifiers,
-                    this.configurer.certPathTrustworthinessVerifier,
-                    this.configurer.selfAttestationTrustworthinessVerifier,
-                    this.configurer.customRegistrationVerifiers,
-                    this.configurer.objectConverter
-            );
+            return this.configurer.create(
+                    this.configurer.objectConverter(),
+                    this.configurer.defaultAttestationStatementVerifiers
+                            ? SharedRegistrationComponents.newDefaultAttestationStatementVerifiers()
+                            : this.configurer.attestationStatementVerifiers);
+        }
+
+        @Override
+        public WebAuthnRegistrationManager buildShared() {
+            // the format set compares by value, the functions and suppliers by identity
+            return buildSharedAs(SharedRegistrationComponents.key(
+                    WebAuthnRegistrationManagerConfigurerVersion2.class,
+                    this.configurer.objectConverterSupplier,
+                    this.configurer.defaultAttestationStatementVerifiers ? null : this.configurer.attestationStatementVerifiers,
+                    this.configurer.certPathTrustworthinessVerifierFunction,
+                    this.configurer.selfAttestationTrustworthinessVerifierFunction,
+                    this.configurer.customRegistrationVerifiersFunction,
+                    this.configurer.metrics,
+                    this.configurer.warmUp,
+                    this.configurer.certificateCache));
+        }
+
+        @Override
+        public WebAuthnRegistrationManager buildShared(Object key) {
+            return buildSharedAs(SharedRegistrationComponents.key(WebAuthnRegistrationManagerConfigurerVersion2.class, key));
+        }
+
+        private WebAuthnRegistrationManager buildSharedAs(List<Object> configuration) {
+            return SharedRegistrationComponents.registrationManager(configuration, () -> this.configurer.create(
+                    SharedRegistrationComponents.objectConverter(this.configurer.objectConverterSupplier, this.configurer.certificateCache),
+                    this.configurer.defaultAttestationStatementVerifiers
+                            ? SharedRegistrationComponents.defaultAttestationStatementVerifiers()
+                            : this.configurer.attestationStatementVerifiers));
+        }
+
+        @Override
+        public BatchRegistrationVerifier buildBatch(Executor executor) {
+            ObjectConverter objectConverter = this.configurer.objectConverter();
+            // only the verifications that actually run are timed, not the ones answered by the batch
+            DeduplicatingCertPathTrustworthinessVerifier certPathTrustworthinessVerifier =
+                    new DeduplicatingCertPathTrustworthinessVerifier(InstrumentedVerifiers.certPathTrustworthinessVerifier(
+                            this.configurer.certPathTrustworthinessVerifierFunction.apply(objectConverter), this.configurer.metrics));
+            return new BatchRegistrationVerifier(
+                    this.configurer.create(
+                            objectConverter,
+                            this.configurer.defaultAttestationStatementVerifiers
+                                    ? SharedRegistrationComponents.defaultAttestationStatementVerifiers()
+                                    : this.configurer.attestationStatementVerifiers,
+                            certPathTrustworthinessVerifier),
+                    certPathTrustworthinessVerifier,
+                    executor);
+        }
+
+        @Override
+        public AsyncRegistrationVerifier buildAsync(Executor executor) {
+            return new AsyncRegistrationVerifier(build(), executor);
+        }
+
+        @Override
+        public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withMetrics(WebAuthnMetrics metrics) {
+            this.configurer.metrics = ofNullable(metrics)
+                    .orElseThrow(() -> new IllegalArgumentException("metrics must not be null"));
+            return this;
+        }
+
+        @Override
+        public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withWarmUp() {
+            this.configurer.warmUp = true;
+            return this;
+        }
+
+        @Override
+        public WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild withCertificateCache(X509CertificateCache certificateCache) {
+            this.configurer.certificateCache = ofNullable(certificateCache)
+                    .orElseThrow(() -> new IllegalArgumentException("certificateCache must not be null"));
+            return this;
+        }
+    }
+
+    private ObjectConverter objectConverter() {
+        return this.certificateCache == null ? this.objectConverterSupplier.get() : this.certificateCache.newObjectConverter();
+    }
+
+    private WebAuthnRegistrationManager create(ObjectConverter objectConverter, List<AttestationStatementVerifier> attestationStatementVerifiers) {
+        return create(objectConverter, attestationStatementVerifiers,
+                InstrumentedVerifiers.certPathTrustworthinessVerifier(this.certPathTrustworthinessVerifierFunction.apply(objectConverter), this.metrics));
+    }
+
+    private WebAuthnRegistrationManager create(ObjectConverter objectConverter,
+                                               List<AttestationStatementVerifier> attestationStatementVerifiers,
+                                               CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        if (this.warmUp) {
+            RegistrationWarmup.warmUp(objectConverter, attestationStatementVerifiers);
         }
+        return new WebAuthnRegistrationManager(
+                InstrumentedVerifiers.attestationStatementVerifiers(attestationStatementVerifiers, this.metrics),
+                certPathTrustworthinessVerifier,
+                InstrumentedVerifiers.selfAttestationTrustworthinessVerifier(this.selfAttestationTrustworthinessVerifierFunction.apply(objectConverter), this.metrics),
+                InstrumentedVerifiers.customRegistrationVerifiers(this.customRegistrationVerifiersFunction.apply(objectConverter), this.metrics),
+                objectConverter
+        );
     }
 }
@@ -0,0 +1,152 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.util.CertificateUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Optional.ofNullable;
+
+// parses each distinct DER encoded attestation certificate once, a few authenticator models send almost every x5c chain;
+// the certificates are shared between registrations, which is safe because X509Certificate from the JDK provider is immutable
+public final class X509CertificateCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1_000;
+
+    private final int maximumSize;
+    private final WebAuthnMetrics metrics;
+
+    // keyed by the DER bytes themselves, their hash picks the bucket and a colliding certificate is told apart by its bytes
+    private final ConcurrentHashMap<ByteBuffer, Entry> certificates = new ConcurrentHashMap<>();
+
+    // the hand of the second chance eviction, only moved while holding evictionLock
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<ByteBuffer, Entry>> hand = Collections.emptyIterator();
+
+    public X509CertificateCache() {
+        this(DEFAULT_MAXIMUM_SIZE, WebAuthnMetrics.NOOP);
+    }
+
+    public X509CertificateCache(int maximumSize, WebAuthnMetrics metrics) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.metrics = ofNullable(metrics).orElseThrow(() -> new IllegalArgumentException("metrics must not be null"));
+    }
+
+    public X509Certificate get(byte[] der) {
+        ofNullable(der).orElseThrow(() -> new IllegalArgumentException("der must not be null"));
+        Entry entry = certificates.get(ByteBuffer.wrap(der));
+        if (entry != null) {
+            // only the first hit since the hand passed writes, the others just read the flag
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            metrics.recordCacheLookup(WebAuthnMetrics.Cache.CERTIFICATE, true);
+            return entry.certificate;
+        }
+        metrics.recordCacheLookup(WebAuthnMetrics.Cache.CERTIFICATE, false);
+
+        // parsed outside the map, two registrations racing on a new certificate both parse it and the first one is kept
+        X509Certificate certificate = CertificateUtil.generateX509Certificate(der);
+        Entry previous = certificates.putIfAbsent(ByteBuffer.wrap(der.clone()), new Entry(certificate));
+        if (previous != null) {
+            return previous.certificate;
+        }
+        if (certificates.size() > maximumSize) {
+            evict();
+        }
+        return certificate;
+    }
+
+    public int size() {
+        return certificates.size();
+    }
+
+    // a deserializer for the CBOR mapper, so the x5c chains of every attestation statement format are parsed through the cache
+    public Module module() {
+        SimpleModule module = new SimpleModule("X509CertificateCache") {
+            // the same cache is registered once per mapper, another cache replaces it
+            @Override
+            public Object getTypeId() {
+                return X509CertificateCache.this;
+            }
+        };
+        module.addDeserializer(X509Certificate.class, new CachingX509CertificateDeserializer(this));
+        return module;
+    }
+
+    // a converter of its own whose CBOR mapper parses through the cache, registered after webauthn4j's modules so it takes over
+    // their certificate deserializer; the mappers are new, so no deserializer was built without it and no other converter sees it
+    public ObjectConverter newObjectConverter() {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        ObjectConverter objectConverter = new ObjectConverter(new ObjectMapper(), cborMapper);
+        cborMapper.registerModule(module());
+        return objectConverter;
+    }
+
+    // CLOCK: a certificate used since the hand last passed gets a second chance, so the models seen every day stay
+    // while a burst of one-off certificates only evicts each other
+    private void evict() {
+        synchronized (evictionLock) {
+            while (certificates.size() > maximumSize) {
+                if (!hand.hasNext()) {
+                    hand = certificates.entrySet().iterator();
+                    continue;
+                }
+                Map.Entry<ByteBuffer, Entry> candidate = hand.next();
+                Entry entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (certificates.remove(candidate.getKey(), entry)) {
+                    metrics.recordCacheEviction(WebAuthnMetrics.Cache.CERTIFICATE);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final X509Certificate certificate;
+        // set on insertion too, so a certificate just parsed is not the next one evicted
+        private volatile boolean referenced = true;
+
+        private Entry(X509Certificate certificate) {
+            this.certificate = certificate;
+        }
+    }
+
+    // the CBOR counterpart of webauthn4j's X509CertificateDeserializer, an empty byte string is no certificate
+    private static final class CachingX509CertificateDeserializer extends StdDeserializer<X509Certificate> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient X509CertificateCache certificateCache;
+
+        private CachingX509CertificateDeserializer(X509CertificateCache certificateCache) {
+            super(X509Certificate.class);
+            this.certificateCache = certificateCache;
+        }
+
+        @Override
+        public X509Certificate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            byte[] der = parser.getBinaryValue();
+            return der.length == 0 ? null : certificateCache.get(der);
+        }
+    }
+}
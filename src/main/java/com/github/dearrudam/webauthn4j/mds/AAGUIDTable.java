@@ -0,0 +1,75 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.UUID;
+
+// open addressing over the two halves of the AAGUID, so lookups neither box nor allocate
+final class AAGUIDTable<V> {
+
+    private static final VarHandle LONG_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    private AAGUIDTable(int capacity, int size) {
+        this.keys = new long[capacity * 2];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = size;
+    }
+
+    static <V> AAGUIDTable<V> of(Map<UUID, V> entries) {
+        // at most half full keeps the probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(entries.size(), 1) * 2 - 1) << 1;
+        AAGUIDTable<V> table = new AAGUIDTable<>(capacity, entries.size());
+        entries.forEach((uuid, value) -> table.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value));
+        return table;
+    }
+
+    private void put(long mostSignificantBits, long leastSignificantBits, V value) {
+        int slot = slotOf(mostSignificantBits, leastSignificantBits);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot * 2] = mostSignificantBits;
+        keys[slot * 2 + 1] = leastSignificantBits;
+        values[slot] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long mostSignificantBits, long leastSignificantBits) {
+        int slot = slotOf(mostSignificantBits, leastSignificantBits);
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot * 2] == mostSignificantBits && keys[slot * 2 + 1] == leastSignificantBits) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    V get(byte[] aaguid, int offset) {
+        return get((long) LONG_BIG_ENDIAN.get(aaguid, offset), (long) LONG_BIG_ENDIAN.get(aaguid, offset + 8));
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slotOf(long mostSignificantBits, long leastSignificantBits) {
+        // murmur3 finalizer
+        long hash = mostSignificantBits ^ Long.rotateLeft(leastSignificantBits, 32);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.metadata.exception.BadStatusException;
+import com.webauthn4j.util.HexUtil;
+import com.webauthn4j.verifier.CustomRegistrationVerifier;
+import com.webauthn4j.verifier.RegistrationObject;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import static java.util.Optional.ofNullable;
+
+// rejects registrations from authenticators whose metadata status is untrustworthy, e.g. REVOKED or ATTESTATION_KEY_COMPROMISE,
+// with one lookup in the verdicts the index precomputed; they follow the repository across refreshes, e.g.
+// withCustomRegistrationVerifiers(objectConverter -> List.of(new AuthenticatorStatusRegistrationVerifier(metadataRefresher.getRepository())))
+public class AuthenticatorStatusRegistrationVerifier implements CustomRegistrationVerifier {
+
+    private final RefreshableTrustAnchorRepository repository;
+
+    public AuthenticatorStatusRegistrationVerifier(RefreshableTrustAnchorRepository repository) {
+        this.repository = ofNullable(repository)
+                .orElseThrow(() -> new IllegalArgumentException("repository must not be null"));
+    }
+
+    @Override
+    public void verify(RegistrationObject registrationObject) {
+        AttestationObject attestationObject = registrationObject.getAttestationObject();
+        AttestedCredentialData attestedCredentialData = attestationObject.getAuthenticatorData().getAttestedCredentialData();
+        AAGUID aaguid = attestedCredentialData == null ? null : attestedCredentialData.getAaguid();
+
+        if (aaguid != null && !AAGUID.ZERO.equals(aaguid)) {
+            if (repository.isRejected(aaguid)) {
+                throw new BadStatusException("Authenticator %s is not trustworthy according to its metadata status".formatted(aaguid));
+            }
+            return;
+        }
+
+        // the same lookup as DefaultCertPathTrustworthinessVerifier, U2F authenticators are found by key identifier
+        if (attestationObject.getAttestationStatement() instanceof CertificateBaseAttestationStatement attestationStatement) {
+            List<X509Certificate> certificates = attestationStatement.getX5c();
+            if (certificates == null || certificates.isEmpty()) {
+                return;
+            }
+            byte[] attestationCertificateKeyIdentifier = DefaultCertPathTrustworthinessVerifier.extractSubjectKeyIdentifier(certificates.get(0));
+            if (repository.isRejected(attestationCertificateKeyIdentifier)) {
+                throw new BadStatusException("Authenticator with attestation certificate key identifier %s is not trustworthy according to its metadata status"
+                        .formatted(HexUtil.encodeToString(attestationCertificateKeyIdentifier)));
+            }
+        }
+    }
+}
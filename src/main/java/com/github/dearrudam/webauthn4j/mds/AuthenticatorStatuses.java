@@ -0,0 +1,46 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.metadata.data.toc.AuthenticatorStatus;
+import com.webauthn4j.metadata.data.toc.StatusReport;
+
+import java.util.List;
+
+final class AuthenticatorStatuses {
+
+    // the statuses MetadataBLOBUtil.checkMetadataBLOBPayloadEntry always rejects
+    static final long UNTRUSTWORTHY = flagOf(AuthenticatorStatus.ATTESTATION_KEY_COMPROMISE)
+            | flagOf(AuthenticatorStatus.USER_VERIFICATION_BYPASS)
+            | flagOf(AuthenticatorStatus.USER_KEY_REMOTE_COMPROMISE)
+            | flagOf(AuthenticatorStatus.USER_KEY_PHYSICAL_COMPROMISE)
+            | flagOf(AuthenticatorStatus.REVOKED);
+
+    private AuthenticatorStatuses() {
+    }
+
+    static long flagOf(AuthenticatorStatus status) {
+        return 1L << status.ordinal();
+    }
+
+    static long flagsOf(List<StatusReport> statusReports) {
+        long flags = 0L;
+        if (statusReports != null) {
+            for (StatusReport statusReport : statusReports) {
+                if (statusReport.getStatus() != null) {
+                    flags |= flagOf(statusReport.getStatus());
+                }
+            }
+        }
+        return flags;
+    }
+
+    static boolean isTrustworthy(long flags, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        long rejected = UNTRUSTWORTHY;
+        if (!notFidoCertifiedAllowed) {
+            rejected |= flagOf(AuthenticatorStatus.NOT_FIDO_CERTIFIED);
+        }
+        if (!selfAssertionSubmittedAllowed) {
+            rejected |= flagOf(AuthenticatorStatus.SELF_ASSERTION_SUBMITTED);
+        }
+        return (flags & rejected) == 0L;
+    }
+}
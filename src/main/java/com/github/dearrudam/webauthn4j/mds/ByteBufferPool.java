@@ -0,0 +1,54 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public final class ByteBufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // one buffer per concurrent fetch, 512 KiB kept between refreshes; a BLOB needs more while it is read, the rest are
+    // allocated then and left to the garbage collector
+    public static final int DEFAULT_MAX_RETAINED = MetadataFetchPipeline.DEFAULT_MAX_CONCURRENCY;
+
+    private static final ByteBufferPool SHARED = new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_RETAINED);
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> retained;
+
+    public ByteBufferPool(int bufferSize, int maxRetained) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be greater than zero");
+        }
+        if (maxRetained < 1) {
+            throw new IllegalArgumentException("maxRetained must be greater than zero");
+        }
+        this.bufferSize = bufferSize;
+        this.retained = new ArrayBlockingQueue<>(maxRetained);
+    }
+
+    public static ByteBufferPool shared() {
+        return SHARED;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getRetained() {
+        return retained.size();
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = retained.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocate(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() == bufferSize) {
+            // buffers beyond the retention limit are simply left to the garbage collector
+            retained.offer(buffer);
+        }
+    }
+}
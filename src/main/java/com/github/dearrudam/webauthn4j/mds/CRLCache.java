@@ -0,0 +1,421 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.util.HexUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Optional.ofNullable;
+
+// CRLs fetched ahead of time and kept by issuer, so that revocation checks during a ceremony never leave the process
+public class CRLCache implements AutoCloseable {
+
+    static final Logger logger = LoggerFactory.getLogger(CRLCache.class);
+
+    static final String CRL_DISTRIBUTION_POINTS_OID = "2.5.29.31";
+    static final String CRL_FILE_SUFFIX = ".crl";
+    static final String ENTRY_FILE_SUFFIX = ".properties";
+
+    // CRLDistributionPoints nests a URI five elements deep
+    static final int MAX_DER_DEPTH = 8;
+
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofHours(1);
+
+    private final MetadataHttpClient httpClient;
+    private final Path directory;
+    private final Clock clock;
+    private final Duration refreshAhead;
+
+    // every distribution point ever seen, an absent CRL is fetched by the next refresh
+    private final Map<String, CachedCRL> crls = new ConcurrentHashMap<>();
+    private final Set<String> distributionPoints = ConcurrentHashMap.newKeySet();
+
+    // rebuilt on every change, lookups read the published map without locking
+    private volatile Map<X500Principal, List<CachedCRL>> crlsByIssuer = Map.of();
+
+    private final ScheduledExecutorService scheduler;
+
+    public CRLCache(MetadataHttpClient httpClient, Path directory) {
+        this(httpClient, directory, Clock.systemUTC(), DEFAULT_REFRESH_AHEAD);
+    }
+
+    public CRLCache(MetadataHttpClient httpClient, Path directory, Clock clock, Duration refreshAhead) {
+        this.httpClient = ofNullable(httpClient)
+                .orElseThrow(() -> new IllegalArgumentException("httpClient must not be null"));
+        this.directory = ofNullable(directory)
+                .orElseThrow(() -> new IllegalArgumentException("directory must not be null"));
+        this.clock = ofNullable(clock)
+                .orElseThrow(() -> new IllegalArgumentException("clock must not be null"));
+        this.refreshAhead = ofNullable(refreshAhead)
+                .orElseThrow(() -> new IllegalArgumentException("refreshAhead must not be null"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crl-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        load();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // remembers the distribution points of the certificates and fetches the CRLs that are not cached yet or no longer current,
+    // e.g. loaded from disk after a long downtime
+    public void prefetch(Collection<X509Certificate> certificates) {
+        ofNullable(certificates).orElseThrow(() -> new IllegalArgumentException("certificates must not be null"));
+        Date now = Date.from(clock.instant());
+        for (X509Certificate certificate : certificates) {
+            for (String distributionPoint : distributionPointsOf(certificate)) {
+                distributionPoints.add(distributionPoint);
+                CachedCRL cached = crls.get(distributionPoint);
+                if (cached == null || !cached.isCurrent(now)) {
+                    fetchQuietly(distributionPoint);
+                }
+            }
+        }
+    }
+
+    // prefetches on the refresh thread, the future completes once the CRLs are cached or could not be fetched
+    public CompletableFuture<Void> prefetchAsync(Collection<X509Certificate> certificates) {
+        ofNullable(certificates).orElseThrow(() -> new IllegalArgumentException("certificates must not be null"));
+        return CompletableFuture.runAsync(() -> prefetch(certificates), scheduler);
+    }
+
+    // only records the distribution points, for callers that must not wait on the network
+    public void register(X509Certificate certificate) {
+        distributionPoints.addAll(distributionPointsOf(ofNullable(certificate)
+                .orElseThrow(() -> new IllegalArgumentException("certificate must not be null"))));
+    }
+
+    // fetches the missing CRLs and the ones whose nextUpdate is closer than refreshAhead, keeps the cached ones on failure
+    public synchronized int refresh() {
+        Instant refreshBefore = clock.instant().plus(refreshAhead);
+        int refreshed = 0;
+        for (String distributionPoint : distributionPoints) {
+            CachedCRL cached = crls.get(distributionPoint);
+            if (cached == null || cached.nextUpdate() == null || !cached.nextUpdate().isAfter(refreshBefore)) {
+                if (fetchQuietly(distributionPoint)) {
+                    refreshed++;
+                }
+            }
+        }
+        return refreshed;
+    }
+
+    public void start(Duration interval) {
+        ofNullable(interval).orElseThrow(() -> new IllegalArgumentException("interval must not be null"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to refresh the CRLs", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int size() {
+        return crls.size();
+    }
+
+    // served from memory only, the issuer key authenticates the CRL the first time it is used
+    public RevocationStatus check(X509Certificate certificate, PublicKey issuerKey, Instant at) {
+        ofNullable(certificate).orElseThrow(() -> new IllegalArgumentException("certificate must not be null"));
+        ofNullable(issuerKey).orElseThrow(() -> new IllegalArgumentException("issuerKey must not be null"));
+        Date date = Date.from(ofNullable(at).orElseThrow(() -> new IllegalArgumentException("at must not be null")));
+
+        for (CachedCRL cached : crlsByIssuer.getOrDefault(certificate.getIssuerX500Principal(), List.of())) {
+            if (!cached.isCurrent(date) || !cached.isSignedBy(issuerKey)) {
+                continue;
+            }
+            return cached.crl().isRevoked(certificate) ? RevocationStatus.REVOKED : RevocationStatus.GOOD;
+        }
+        if (distributionPointsOf(certificate).isEmpty()) {
+            return RevocationStatus.NOT_APPLICABLE;
+        }
+        register(certificate);
+        return RevocationStatus.UNKNOWN;
+    }
+
+    // certificates leaf first, each one issued by the next and the last one by one of the trust anchors
+    public RevocationStatus checkPath(List<X509Certificate> certificates, Set<TrustAnchor> trustAnchors, Instant at) {
+        ofNullable(certificates).orElseThrow(() -> new IllegalArgumentException("certificates must not be null"));
+        ofNullable(trustAnchors).orElseThrow(() -> new IllegalArgumentException("trustAnchors must not be null"));
+
+        RevocationStatus status = RevocationStatus.GOOD;
+        for (int i = 0; i < certificates.size(); i++) {
+            X509Certificate certificate = certificates.get(i);
+            PublicKey issuerKey = i + 1 < certificates.size()
+                    ? certificates.get(i + 1).getPublicKey()
+                    : issuerKeyOf(certificate, trustAnchors);
+            RevocationStatus certificateStatus = issuerKey == null ? RevocationStatus.UNKNOWN : check(certificate, issuerKey, at);
+            if (certificateStatus == RevocationStatus.REVOKED) {
+                return RevocationStatus.REVOKED;
+            }
+            if (certificateStatus == RevocationStatus.UNKNOWN) {
+                status = RevocationStatus.UNKNOWN;
+            }
+        }
+        return status;
+    }
+
+    private static PublicKey issuerKeyOf(X509Certificate certificate, Set<TrustAnchor> trustAnchors) {
+        for (TrustAnchor trustAnchor : trustAnchors) {
+            if (trustAnchor.getTrustedCert() != null) {
+                if (trustAnchor.getTrustedCert().getSubjectX500Principal().equals(certificate.getIssuerX500Principal())) {
+                    return trustAnchor.getTrustedCert().getPublicKey();
+                }
+            } else if (certificate.getIssuerX500Principal().equals(trustAnchor.getCA())) {
+                return trustAnchor.getCAPublicKey();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private boolean fetchQuietly(String distributionPoint) {
+        try {
+            fetch(distributionPoint);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to fetch the CRL from {}", distributionPoint, e);
+            return false;
+        }
+    }
+
+    private void fetch(String distributionPoint) {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(URI.create(distributionPoint)).GET(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("Failed to fetch the CRL from %s, Status Code: %d".formatted(distributionPoint, response.statusCode()));
+        }
+        X509CRL crl = parse(response.body());
+        store(distributionPoint, response.body());
+        put(distributionPoint, crl);
+        logger.info("Cached the CRL of {} from {}, next update {}", crl.getIssuerX500Principal(), distributionPoint, crl.getNextUpdate());
+    }
+
+    private synchronized void put(String distributionPoint, X509CRL crl) {
+        distributionPoints.add(distributionPoint);
+        crls.put(distributionPoint, new CachedCRL(crl));
+        Map<X500Principal, List<CachedCRL>> byIssuer = new HashMap<>();
+        for (CachedCRL cached : crls.values()) {
+            byIssuer.computeIfAbsent(cached.crl().getIssuerX500Principal(), issuer -> new ArrayList<>(1)).add(cached);
+        }
+        byIssuer.replaceAll((issuer, cached) -> List.copyOf(cached));
+        crlsByIssuer = Map.copyOf(byIssuer);
+    }
+
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_FILE_SUFFIX)) {
+            for (Path entryFile : entries) {
+                String name = entryFile.getFileName().toString();
+                Path crlFile = directory.resolve(name.substring(0, name.length() - ENTRY_FILE_SUFFIX.length()) + CRL_FILE_SUFFIX);
+                try (Reader reader = Files.newBufferedReader(entryFile, StandardCharsets.UTF_8)) {
+                    Properties properties = new Properties();
+                    properties.load(reader);
+                    put(properties.getProperty("distributionPoint"), parse(Files.readAllBytes(crlFile)));
+                } catch (IOException | RuntimeException e) {
+                    // a corrupted entry is fetched again by the next refresh
+                    logger.warn("Ignoring unreadable CRL cache entry {}", entryFile, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable CRL cache at {}", directory, e);
+        }
+        logger.info("Loaded {} CRLs from {}", crls.size(), directory);
+    }
+
+    // the CRL goes first so that an interrupted store never points an entry at a missing or partial CRL
+    private void store(String distributionPoint, byte[] crl) {
+        String name = HexUtil.encodeToString(MessageDigestUtil.createSHA256().digest(distributionPoint.getBytes(StandardCharsets.UTF_8))).toLowerCase();
+        Properties properties = new Properties();
+        properties.setProperty("distributionPoint", distributionPoint);
+        properties.setProperty("fetchedAt", clock.instant().toString());
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, name, ".tmp");
+            Files.write(temporary, crl);
+            Files.move(temporary, directory.resolve(name + CRL_FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temporary = Files.createTempFile(directory, name, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "CRL cache entry");
+            }
+            Files.move(temporary, directory.resolve(name + ENTRY_FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store the CRL cache at %s".formatted(directory), e);
+        }
+    }
+
+    private static X509CRL parse(byte[] crl) {
+        try {
+            return (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(new ByteArrayInputStream(crl));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Invalid CRL", e);
+        }
+    }
+
+    // a malformed extension names no distribution point, the JDK already refuses a certificate whose critical one is malformed
+    static List<String> distributionPointsOf(X509Certificate certificate) {
+        byte[] extensionValue = certificate.getExtensionValue(CRL_DISTRIBUTION_POINTS_OID);
+        if (extensionValue == null) {
+            return List.of();
+        }
+        List<String> uris = new ArrayList<>(1);
+        try {
+            // the extension value is an OCTET STRING wrapping the CRLDistributionPoints SEQUENCE
+            int[] octetString = header(extensionValue, 0, extensionValue.length);
+            if (octetString[0] != 0x04) {
+                throw new IllegalArgumentException("tag 0x%02x instead of an OCTET STRING".formatted(octetString[0]));
+            }
+            collectURIs(extensionValue, octetString[1], octetString[1] + octetString[2], uris, 0);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring the malformed CRL distribution points of {}: {}", certificate.getSubjectX500Principal(), e.getMessage());
+            return List.of();
+        }
+        return uris;
+    }
+
+    // walks the constructed elements, a primitive [6] is always a uniformResourceIdentifier GeneralName in this structure
+    private static void collectURIs(byte[] der, int from, int to, List<String> uris, int depth) {
+        if (depth > MAX_DER_DEPTH) {
+            throw new IllegalArgumentException("nested deeper than %d".formatted(MAX_DER_DEPTH));
+        }
+        int offset = from;
+        while (offset < to) {
+            int[] header = header(der, offset, to);
+            int tag = header[0];
+            int contentOffset = header[1];
+            int length = header[2];
+            if (tag == 0x86) {
+                String uri = new String(der, contentOffset, length, StandardCharsets.US_ASCII);
+                if (uri.startsWith("http://") || uri.startsWith("https://")) {
+                    uris.add(uri);
+                }
+            } else if ((tag & 0x20) != 0) {
+                collectURIs(der, contentOffset, contentOffset + length, uris, depth + 1);
+            }
+            offset = contentOffset + length;
+        }
+    }
+
+    // tag, content offset and content length of the element at offset, which must end by to
+    private static int[] header(byte[] der, int offset, int to) {
+        if (offset + 2 > to) {
+            throw new IllegalArgumentException("truncated header at %d".formatted(offset));
+        }
+        int tag = der[offset] & 0xff;
+        if ((tag & 0x1f) == 0x1f) {
+            throw new IllegalArgumentException("multi-byte tag at %d".formatted(offset));
+        }
+        int length = der[offset + 1] & 0xff;
+        int contentOffset = offset + 2;
+        if (length == 0x80) {
+            throw new IllegalArgumentException("indefinite length at %d".formatted(offset));
+        }
+        if (length > 0x80) {
+            int lengthBytes = length & 0x7f;
+            if (lengthBytes > 3 || contentOffset + lengthBytes > to) {
+                throw new IllegalArgumentException("unsupported or truncated length at %d".formatted(offset));
+            }
+            length = 0;
+            for (int i = 0; i < lengthBytes; i++) {
+                length = (length << 8) | (der[contentOffset + i] & 0xff);
+            }
+            contentOffset += lengthBytes;
+        }
+        if (length > to - contentOffset) {
+            throw new IllegalArgumentException("length %d overruns the enclosing element at %d".formatted(length, offset));
+        }
+        return new int[]{tag, contentOffset, length};
+    }
+
+    public enum RevocationStatus {
+        GOOD,
+        REVOKED,
+        // the certificate names a distribution point whose current CRL is not cached
+        UNKNOWN,
+        // the certificate names no distribution point
+        NOT_APPLICABLE
+    }
+
+    private static final class CachedCRL {
+
+        private final X509CRL crl;
+        private final Instant nextUpdate;
+        private volatile PublicKey verifiedWith;
+
+        CachedCRL(X509CRL crl) {
+            this.crl = crl;
+            this.nextUpdate = ofNullable(crl.getNextUpdate()).map(Date::toInstant).orElse(null);
+        }
+
+        X509CRL crl() {
+            return crl;
+        }
+
+        Instant nextUpdate() {
+            return nextUpdate;
+        }
+
+        boolean isCurrent(Date date) {
+            return !crl.getThisUpdate().after(date) && (crl.getNextUpdate() == null || crl.getNextUpdate().after(date));
+        }
+
+        boolean isSignedBy(PublicKey issuerKey) {
+            if (issuerKey.equals(verifiedWith)) {
+                return true;
+            }
+            try {
+                crl.verify(issuerKey);
+                verifiedWith = issuerKey;
+                return true;
+            } catch (GeneralSecurityException e) {
+                return false;
+            }
+        }
+    }
+}
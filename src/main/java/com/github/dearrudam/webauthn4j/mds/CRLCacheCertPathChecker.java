@@ -0,0 +1,58 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.metadata.CertPathCheckContext;
+import com.webauthn4j.metadata.CertPathChecker;
+import com.webauthn4j.metadata.exception.CertPathCheckException;
+import com.webauthn4j.util.CertificateUtil;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.PKIXParameters;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.util.List;
+
+import static java.util.Optional.ofNullable;
+
+// replaces the PKIX revocation checker of FidoMDS3MetadataBLOBProvider, which fetches the CRLs again on every provide
+public class CRLCacheCertPathChecker implements CertPathChecker {
+
+    private final CRLCache crlCache;
+    private final Clock clock;
+
+    public CRLCacheCertPathChecker(CRLCache crlCache) {
+        this(crlCache, Clock.systemUTC());
+    }
+
+    public CRLCacheCertPathChecker(CRLCache crlCache, Clock clock) {
+        this.crlCache = ofNullable(crlCache).orElseThrow(() -> new IllegalArgumentException("crlCache must not be null"));
+        this.clock = ofNullable(clock).orElseThrow(() -> new IllegalArgumentException("clock must not be null"));
+    }
+
+    @Override
+    public void check(CertPathCheckContext context) {
+        try {
+            PKIXParameters parameters = CertificateUtil.createPKIXParameters(context.getTrustAnchors());
+            parameters.setRevocationEnabled(false);
+            CertificateUtil.createCertPathValidator().validate(context.getCertPath(), parameters);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new CertPathCheckException("invalid algorithm parameter", e);
+        } catch (CertPathValidatorException e) {
+            throw new CertPathCheckException("invalid cert path", e);
+        }
+        if (!context.isRevocationCheckEnabled()) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<X509Certificate> certificates = (List<X509Certificate>) context.getCertPath().getCertificates();
+        // providing a BLOB is not a ceremony, a cold cache may fetch the CRLs it is missing here
+        crlCache.prefetch(certificates);
+        switch (crlCache.checkPath(certificates, context.getTrustAnchors(), clock.instant())) {
+            case REVOKED -> throw new CertPathCheckException("revoked certificate in cert path");
+            case UNKNOWN -> throw new CertPathCheckException("no current CRL for the cert path");
+            default -> {
+            }
+        }
+    }
+}
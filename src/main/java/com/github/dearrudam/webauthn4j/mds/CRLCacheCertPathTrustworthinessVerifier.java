@@ -0,0 +1,51 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.anchor.TrustAnchorRepository;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.exception.CertificateException;
+
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+// checks the attestation certificates against the cached CRLs after the delegate accepted the path, the delegate
+// should run with its own revocation check disabled; a CRL that is not cached fails the ceremony and is fetched by the next refresh
+public class CRLCacheCertPathTrustworthinessVerifier implements CertPathTrustworthinessVerifier {
+
+    private final CertPathTrustworthinessVerifier certPathTrustworthinessVerifier;
+    private final TrustAnchorRepository trustAnchorRepository;
+    private final CRLCache crlCache;
+
+    public CRLCacheCertPathTrustworthinessVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier, TrustAnchorRepository trustAnchorRepository, CRLCache crlCache) {
+        this.certPathTrustworthinessVerifier = ofNullable(certPathTrustworthinessVerifier)
+                .orElseThrow(() -> new IllegalArgumentException("certPathTrustworthinessVerifier must not be null"));
+        this.trustAnchorRepository = ofNullable(trustAnchorRepository)
+                .orElseThrow(() -> new IllegalArgumentException("trustAnchorRepository must not be null"));
+        this.crlCache = ofNullable(crlCache)
+                .orElseThrow(() -> new IllegalArgumentException("crlCache must not be null"));
+    }
+
+    @Override
+    public void verify(AAGUID aaguid, CertificateBaseAttestationStatement attestationStatement, Instant timestamp) {
+        certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+
+        List<X509Certificate> certificates = attestationStatement.getX5c();
+        // the same lookup as DefaultCertPathTrustworthinessVerifier, U2F authenticators are found by key identifier
+        Set<TrustAnchor> trustAnchors = aaguid == null || AAGUID.ZERO.equals(aaguid)
+                ? trustAnchorRepository.find(DefaultCertPathTrustworthinessVerifier.extractSubjectKeyIdentifier(certificates.get(0)))
+                : trustAnchorRepository.find(aaguid);
+        switch (crlCache.checkPath(certificates, trustAnchors, timestamp)) {
+            case REVOKED -> throw new CertificateException("Attestation certificate path contains a revoked certificate");
+            case UNKNOWN -> throw new CertificateException("No current CRL is cached for the attestation certificate path");
+            default -> {
+            }
+        }
+    }
+}
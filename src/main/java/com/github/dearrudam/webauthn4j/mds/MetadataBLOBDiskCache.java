@@ -0,0 +1,116 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Properties;
+
+import static java.util.Optional.ofNullable;
+
+public class MetadataBLOBDiskCache {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataBLOBDiskCache.class);
+
+    static final String BLOB_FILE_NAME = "blob.jwt";
+    static final String ENTRY_FILE_NAME = "blob.properties";
+
+    private final Path directory;
+
+    public MetadataBLOBDiskCache(Path directory) {
+        this.directory = ofNullable(directory)
+                .orElseThrow(() -> new IllegalArgumentException("directory must not be null"));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Optional<Entry> load() {
+        Path blobFile = directory.resolve(BLOB_FILE_NAME);
+        Path entryFile = directory.resolve(ENTRY_FILE_NAME);
+        if (!Files.isRegularFile(blobFile) || !Files.isRegularFile(entryFile)) {
+            return Optional.empty();
+        }
+        try (Reader reader = Files.newBufferedReader(entryFile, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            return Optional.of(new Entry(
+                    Integer.parseInt(properties.getProperty("no")),
+                    LocalDate.parse(properties.getProperty("nextUpdate")),
+                    properties.getProperty("etag"),
+                    properties.getProperty("lastModified"),
+                    Instant.parse(properties.getProperty("fetchedAt"))));
+        } catch (IOException | RuntimeException e) {
+            // a corrupted cache must never prevent the BLOB from being fetched again
+            logger.warn("Ignoring unreadable MDS BLOB cache at {}", directory, e);
+            return Optional.empty();
+        }
+    }
+
+    public InputStream openBlob() throws IOException {
+        return Files.newInputStream(directory.resolve(BLOB_FILE_NAME));
+    }
+
+    // the BLOB goes first so that an interrupted store never pairs new metadata with an old BLOB
+    public void store(Entry entry, PooledBytes blob) {
+        ofNullable(entry).orElseThrow(() -> new IllegalArgumentException("entry must not be null"));
+        ofNullable(blob).orElseThrow(() -> new IllegalArgumentException("blob must not be null"));
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, BLOB_FILE_NAME, ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                blob.writeTo(channel);
+            }
+            Files.move(temporary, directory.resolve(BLOB_FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store the MDS BLOB cache at %s".formatted(directory), e);
+        }
+        store(entry);
+    }
+
+    // only the metadata changes when a BLOB is revalidated, the BLOB file is left untouched
+    public void store(Entry entry) {
+        ofNullable(entry).orElseThrow(() -> new IllegalArgumentException("entry must not be null"));
+        Properties properties = new Properties();
+        properties.setProperty("no", Integer.toString(entry.no()));
+        properties.setProperty("nextUpdate", entry.nextUpdate().toString());
+        properties.setProperty("fetchedAt", entry.fetchedAt().toString());
+        ofNullable(entry.etag()).ifPresent(etag -> properties.setProperty("etag", etag));
+        ofNullable(entry.lastModified()).ifPresent(lastModified -> properties.setProperty("lastModified", lastModified));
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, ENTRY_FILE_NAME, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "FIDO MDS3 BLOB cache entry");
+            }
+            Files.move(temporary, directory.resolve(ENTRY_FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store the MDS BLOB cache at %s".formatted(directory), e);
+        }
+    }
+
+    public record Entry(int no, LocalDate nextUpdate, String etag, String lastModified, Instant fetchedAt) {
+
+        public boolean isStale(LocalDate today) {
+            return !today.isBefore(nextUpdate);
+        }
+
+        Entry revalidated(Instant now) {
+            return new Entry(no, nextUpdate, etag, lastModified, now);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.converter.util.JsonConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.jws.JWSHeader;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBPayload;
+import com.webauthn4j.util.SignatureUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static java.util.Optional.ofNullable;
+
+// parses the compact JWS straight from pooled buffers, so the BLOB never exists as one String or byte[]
+public final class MetadataBLOBReader {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataBLOBReader.class);
+
+    private final JsonConverter jsonConverter;
+    private final ByteBufferPool pool;
+
+    public MetadataBLOBReader(ObjectConverter objectConverter) {
+        this(objectConverter, ByteBufferPool.shared());
+    }
+
+    public MetadataBLOBReader(ObjectConverter objectConverter, ByteBufferPool pool) {
+        this.jsonConverter = ofNullable(objectConverter)
+                .orElseThrow(() -> new IllegalArgumentException("objectConverter must not be null"))
+                .getJsonConverter();
+        this.pool = ofNullable(pool)
+                .orElseThrow(() -> new IllegalArgumentException("pool must not be null"));
+    }
+
+    public ByteBufferPool getPool() {
+        return pool;
+    }
+
+    public MetadataBLOB read(InputStream inputStream) {
+        try (PooledBytes bytes = PooledBytes.read(inputStream, pool)) {
+            return read(bytes);
+        }
+    }
+
+    public MetadataBLOB read(PooledBytes bytes) {
+        ofNullable(bytes)
+                .orElseThrow(() -> new IllegalArgumentException("bytes must not be null"));
+
+        long end = bytes.size();
+        // tolerate a trailing line break, e.g. from a BLOB saved by hand
+        while (end > 0 && Character.isWhitespace(bytes.get(end - 1))) {
+            end--;
+        }
+        long headerEnd = bytes.indexOf((byte) '.', 0);
+        long payloadEnd = headerEnd < 0 ? -1 : bytes.indexOf((byte) '.', headerEnd + 1);
+        if (headerEnd < 0 || payloadEnd < 0 || payloadEnd >= end || bytes.indexOf((byte) '.', payloadEnd + 1) >= 0) {
+            throw new IllegalArgumentException("JWS value is not divided by two period.");
+        }
+
+        JWSHeader header = jsonConverter.readValue(decoding(bytes, 0, headerEnd), JWSHeader.class);
+        MetadataBLOBPayload payload = jsonConverter.readValue(decoding(bytes, headerEnd + 1, payloadEnd), MetadataBLOBPayload.class);
+        byte[] signature = readAll(decoding(bytes, payloadEnd + 1, end));
+
+        boolean validSignature = verify(header, bytes, payloadEnd, signature);
+
+        return new ReadMetadataBLOB(header, payload, signature, validSignature);
+    }
+
+    private static InputStream decoding(PooledBytes bytes, long fromIndex, long toIndex) {
+        return Base64.getUrlDecoder().wrap(bytes.inputStream(fromIndex, toIndex));
+    }
+
+    private static byte[] readAll(InputStream inputStream) {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // same rules as JWS.isValidSignature, fed slice by slice over the signing input
+    private static boolean verify(JWSHeader header, PooledBytes bytes, long signingInputEnd, byte[] signature) {
+        if (header.getAlg() == null || header.getX5c() == null || header.getX5c().getCertificates().isEmpty()) {
+            return false;
+        }
+        try {
+            PublicKey publicKey = header.getX5c().getCertificates().get(0).getPublicKey();
+            Signature verifier = SignatureUtil.createSignature(header.getAlg().getJcaName());
+            verifier.initVerify(publicKey);
+            bytes.forEachSlice(0, signingInputEnd, slice -> {
+                try {
+                    verifier.update(slice);
+                } catch (SignatureException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            return verifier.verify(publicKey instanceof ECPublicKey ? toDerSignature(signature) : signature);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            logger.debug("MetadataBLOB signature could not be verified", e);
+            return false;
+        }
+    }
+
+    // JWS carries ECDSA signatures as the fixed length R || S, the JCA expects an ASN.1 SEQUENCE of two INTEGERs
+    static byte[] toDerSignature(byte[] signature) {
+        if (signature.length == 0 || signature.length % 2 != 0) {
+            throw new IllegalArgumentException("Invalid JWS ECDSA signature length %d".formatted(signature.length));
+        }
+        int half = signature.length / 2;
+        byte[] r = new BigInteger(1, Arrays.copyOfRange(signature, 0, half)).toByteArray();
+        byte[] s = new BigInteger(1, Arrays.copyOfRange(signature, half, signature.length)).toByteArray();
+
+        ByteArrayOutputStream integers = new ByteArrayOutputStream();
+        writeTlv(integers, 0x02, r);
+        writeTlv(integers, 0x02, s);
+        ByteArrayOutputStream sequence = new ByteArrayOutputStream();
+        writeTlv(sequence, 0x30, integers.toByteArray());
+        return sequence.toByteArray();
+    }
+
+    private static void writeTlv(ByteArrayOutputStream output, int tag, byte[] value) {
+        output.write(tag);
+        if (value.length < 0x80) {
+            output.write(value.length);
+        } else {
+            output.write(0x81);
+            output.write(value.length);
+        }
+        output.writeBytes(value);
+    }
+
+    private static final class ReadMetadataBLOB extends MetadataBLOB {
+
+        private final JWSHeader header;
+        private final MetadataBLOBPayload payload;
+        private final byte[] signature;
+        private final boolean validSignature;
+
+        private ReadMetadataBLOB(JWSHeader header, MetadataBLOBPayload payload, byte[] signature, boolean validSignature) {
+            // the JWS would keep the encoded payload alive as a String, everything it serves is held here instead
+            super(null);
+            this.header = header;
+            this.payload = payload;
+            this.signature = signature;
+            this.validSignature = validSignature;
+        }
+
+        @Override
+        public JWSHeader getHeader() {
+            return header;
+        }
+
+        @Override
+        public MetadataBLOBPayload getPayload() {
+            return payload;
+        }
+
+        @Override
+        public byte[] getSignature() {
+            return signature.clone();
+        }
+
+        @Override
+        public boolean isValidSignature() {
+            return validSignature;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.anchor.TrustAnchorRepository;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBPayload;
+import com.webauthn4j.metadata.data.MetadataBLOBPayloadEntry;
+import com.webauthn4j.metadata.data.statement.MetadataStatement;
+import com.webauthn4j.metadata.data.toc.AuthenticatorStatus;
+import com.webauthn4j.metadata.data.toc.StatusReport;
+import com.webauthn4j.util.CertificateUtil;
+import com.webauthn4j.util.HexUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Optional.ofNullable;
+
+public final class MetadataBLOBSnapshot implements TrustAnchorRepository {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataBLOBSnapshot.class);
+
+    static final int MAGIC = 0x57344a53; // "W4JS"
+    static final short VERSION = 1;
+
+    // magic, version, reserved, no, nextUpdate, aaguid count, key id count, aaguid index, key id index
+    static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 8 + 4 + 4 + 4 + 4;
+    static final int AAGUID_SLOT_SIZE = 8 + 8 + 4;
+    static final int KEY_ID_MAX_LENGTH = 31;
+    static final int KEY_ID_SLOT_SIZE = 1 + KEY_ID_MAX_LENGTH + 4;
+
+    private static final Comparator<byte[]> KEY_ID_ORDER = (left, right) -> {
+        int comparison = Integer.compare(left.length, right.length);
+        return comparison != 0 ? comparison : Arrays.compareUnsigned(left, right);
+    };
+
+    private final ByteBuffer buffer;
+    private final int no;
+    private final LocalDate nextUpdate;
+    private final int aaguidCount;
+    private final int keyIdCount;
+    private final int aaguidIndex;
+    private final int keyIdIndex;
+    private final ConcurrentMap<Integer, DecodedEntry> decodedEntries = new ConcurrentHashMap<>();
+
+    private boolean notFidoCertifiedAllowed;
+    private boolean selfAssertionSubmittedAllowed;
+
+    private MetadataBLOBSnapshot(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("buffer does not hold a MetadataBLOB snapshot");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported MetadataBLOB snapshot version: %s".formatted(buffer.getShort(4)));
+        }
+        this.buffer = buffer;
+        this.no = buffer.getInt(8);
+        this.nextUpdate = LocalDate.ofEpochDay(buffer.getLong(12));
+        this.aaguidCount = buffer.getInt(20);
+        this.keyIdCount = buffer.getInt(24);
+        this.aaguidIndex = buffer.getInt(28);
+        this.keyIdIndex = buffer.getInt(32);
+    }
+
+    public static MetadataBLOBSnapshot open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new MetadataBLOBSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the MetadataBLOB snapshot %s".formatted(path), e);
+        }
+    }
+
+    public static void write(MetadataBLOB metadataBLOB, Path path) {
+        MetadataBLOBPayload payload = ofNullable(metadataBLOB)
+                .orElseThrow(() -> new IllegalArgumentException("metadataBLOB must not be null"))
+                .getPayload();
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        List<AAGUIDSlot> aaguidSlots = new ArrayList<>();
+        List<KeyIdSlot> keyIdSlots = new ArrayList<>();
+
+        try {
+            DataOutputStream entriesOutput = new DataOutputStream(entries);
+            for (MetadataBLOBPayloadEntry entry : payload.getEntries()) {
+                MetadataStatement metadataStatement = entry.getMetadataStatement();
+                if (metadataStatement == null) {
+                    continue;
+                }
+                List<byte[]> keyIds = keyIdsOf(metadataStatement);
+                if (entry.getAaguid() == null && keyIds.isEmpty()) {
+                    continue;
+                }
+                int offset = entriesOutput.size();
+                writeEntry(entriesOutput, entry, metadataStatement);
+                if (entry.getAaguid() != null) {
+                    UUID uuid = entry.getAaguid().getValue();
+                    aaguidSlots.add(new AAGUIDSlot(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), offset));
+                }
+                keyIds.forEach(keyId -> keyIdSlots.add(new KeyIdSlot(keyId, offset)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        aaguidSlots.sort(AAGUIDSlot.ORDER);
+        keyIdSlots.sort(Comparator.comparing(KeyIdSlot::keyId, KEY_ID_ORDER));
+
+        int aaguidIndex = HEADER_SIZE;
+        int keyIdIndex = aaguidIndex + aaguidSlots.size() * AAGUID_SLOT_SIZE;
+        int entriesStart = keyIdIndex + keyIdSlots.size() * KEY_ID_SLOT_SIZE;
+
+        ByteBuffer index = ByteBuffer.allocate(entriesStart)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(payload.getNo())
+                .putLong(payload.getNextUpdate().toEpochDay())
+                .putInt(aaguidSlots.size())
+                .putInt(keyIdSlots.size())
+                .putInt(aaguidIndex)
+                .putInt(keyIdIndex);
+        for (AAGUIDSlot slot : aaguidSlots) {
+            index.putLong(slot.mostSignificantBits())
+                    .putLong(slot.leastSignificantBits())
+                    .putInt(entriesStart + slot.offset());
+        }
+        for (KeyIdSlot slot : keyIdSlots) {
+            index.put((byte) slot.keyId().length)
+                    .put(Arrays.copyOf(slot.keyId(), KEY_ID_MAX_LENGTH))
+                    .putInt(entriesStart + slot.offset());
+        }
+
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                output.write(index.array());
+                entries.writeTo(output);
+            }
+            // replacing the file keeps mappings of the previous snapshot intact
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the MetadataBLOB snapshot %s".formatted(path), e);
+        }
+        logger.info("Wrote MetadataBLOB snapshot no {} with {} AAGUIDs and {} key identifiers to {}", payload.getNo(), aaguidSlots.size(), keyIdSlots.size(), path);
+    }
+
+    private static List<byte[]> keyIdsOf(MetadataStatement metadataStatement) {
+        List<String> attestationCertificateKeyIdentifiers = metadataStatement.getAttestationCertificateKeyIdentifiers();
+        if (attestationCertificateKeyIdentifiers == null) {
+            return Collections.emptyList();
+        }
+        List<byte[]> keyIds = new ArrayList<>(attestationCertificateKeyIdentifiers.size());
+        for (String attestationCertificateKeyIdentifier : attestationCertificateKeyIdentifiers) {
+            byte[] keyId = HexUtil.decode(attestationCertificateKeyIdentifier);
+            if (keyId.length > KEY_ID_MAX_LENGTH) {
+                logger.warn("Skipping the attestation certificate key identifier {} longer than {} bytes", attestationCertificateKeyIdentifier, KEY_ID_MAX_LENGTH);
+                continue;
+            }
+            keyIds.add(keyId);
+        }
+        return keyIds;
+    }
+
+    private static void writeEntry(DataOutputStream output, MetadataBLOBPayloadEntry entry, MetadataStatement metadataStatement) throws IOException {
+        List<StatusReport> statusReports = ofNullable(entry.getStatusReports()).orElse(Collections.emptyList());
+        output.writeShort(statusReports.size());
+        for (StatusReport statusReport : statusReports) {
+            output.writeUTF(statusReport.getStatus() == null ? "" : statusReport.getStatus().getValue());
+            output.writeLong(statusReport.getEffectiveDate() == null ? Long.MIN_VALUE : statusReport.getEffectiveDate().toEpochDay());
+        }
+        List<X509Certificate> certificates = ofNullable(metadataStatement.getAttestationRootCertificates()).orElse(Collections.emptyList());
+        output.writeShort(certificates.size());
+        for (X509Certificate certificate : certificates) {
+            try {
+                byte[] encoded = certificate.getEncoded();
+                output.writeInt(encoded.length);
+                output.write(encoded);
+            } catch (CertificateEncodingException e) {
+                throw new IllegalArgumentException("Failed to encode the attestation root certificate of %s".formatted(entry.getAaguid()), e);
+            }
+        }
+    }
+
+    public int getNo() {
+        return no;
+    }
+
+    public LocalDate getNextUpdate() {
+        return nextUpdate;
+    }
+
+    public boolean isStale(LocalDate today) {
+        return !today.isBefore(nextUpdate);
+    }
+
+    public boolean isNotFidoCertifiedAllowed() {
+        return notFidoCertifiedAllowed;
+    }
+
+    public void setNotFidoCertifiedAllowed(boolean notFidoCertifiedAllowed) {
+        this.notFidoCertifiedAllowed = notFidoCertifiedAllowed;
+    }
+
+    public boolean isSelfAssertionSubmittedAllowed() {
+        return selfAssertionSubmittedAllowed;
+    }
+
+    public void setSelfAssertionSubmittedAllowed(boolean selfAssertionSubmittedAllowed) {
+        this.selfAssertionSubmittedAllowed = selfAssertionSubmittedAllowed;
+    }
+
+    @Override
+    public Set<TrustAnchor> find(AAGUID aaguid) {
+        if (aaguid == null) {
+            return Collections.emptySet();
+        }
+        UUID uuid = aaguid.getValue();
+        long mostSignificantBits = uuid.getMostSignificantBits();
+        long leastSignificantBits = uuid.getLeastSignificantBits();
+
+        int low = 0;
+        int high = aaguidCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareAAGUIDAt(middle, mostSignificantBits, leastSignificantBits);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                // an AAGUID listed by several entries has adjacent slots, the search may land on any of them
+                int first = middle;
+                while (first > 0 && compareAAGUIDAt(first - 1, mostSignificantBits, leastSignificantBits) == 0) {
+                    first--;
+                }
+                int last = middle;
+                while (last < aaguidCount - 1 && compareAAGUIDAt(last + 1, mostSignificantBits, leastSignificantBits) == 0) {
+                    last++;
+                }
+                return trustAnchorsAt(aaguidIndex, AAGUID_SLOT_SIZE, 16, first, last);
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<TrustAnchor> find(byte[] attestationCertificateKeyIdentifier) {
+        if (attestationCertificateKeyIdentifier == null || attestationCertificateKeyIdentifier.length > KEY_ID_MAX_LENGTH) {
+            return Collections.emptySet();
+        }
+        byte[] candidate = new byte[KEY_ID_MAX_LENGTH];
+        int low = 0;
+        int high = keyIdCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareKeyIdAt(middle, attestationCertificateKeyIdentifier, candidate);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                int first = middle;
+                while (first > 0 && compareKeyIdAt(first - 1, attestationCertificateKeyIdentifier, candidate) == 0) {
+                    first--;
+                }
+                int last = middle;
+                while (last < keyIdCount - 1 && compareKeyIdAt(last + 1, attestationCertificateKeyIdentifier, candidate) == 0) {
+                    last++;
+                }
+                return trustAnchorsAt(keyIdIndex, KEY_ID_SLOT_SIZE, 1 + KEY_ID_MAX_LENGTH, first, last);
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    private int compareAAGUIDAt(int position, long mostSignificantBits, long leastSignificantBits) {
+        int slot = aaguidIndex + position * AAGUID_SLOT_SIZE;
+        int comparison = Long.compareUnsigned(buffer.getLong(slot), mostSignificantBits);
+        return comparison != 0 ? comparison : Long.compareUnsigned(buffer.getLong(slot + 8), leastSignificantBits);
+    }
+
+    private int compareKeyIdAt(int position, byte[] keyId, byte[] candidate) {
+        int slot = keyIdIndex + position * KEY_ID_SLOT_SIZE;
+        int length = Byte.toUnsignedInt(buffer.get(slot));
+        int comparison = Integer.compare(length, keyId.length);
+        if (comparison != 0) {
+            return comparison;
+        }
+        buffer.get(slot + 1, candidate, 0, length);
+        return Arrays.compareUnsigned(candidate, 0, length, keyId, 0, length);
+    }
+
+    // like webauthn4j's MetadataBLOBBasedTrustAnchorRepository, the trust anchors of every trustworthy entry are merged,
+    // so an untrustworthy duplicate does not hide a trustworthy one
+    private Set<TrustAnchor> trustAnchorsAt(int index, int slotSize, int offsetPosition, int first, int last) {
+        if (first == last) {
+            return trustAnchorsAt(buffer.getInt(index + first * slotSize + offsetPosition));
+        }
+        Set<TrustAnchor> trustAnchors = new HashSet<>();
+        for (int position = first; position <= last; position++) {
+            trustAnchors.addAll(trustAnchorsAt(buffer.getInt(index + position * slotSize + offsetPosition)));
+        }
+        return Collections.unmodifiableSet(trustAnchors);
+    }
+
+    private Set<TrustAnchor> trustAnchorsAt(int offset) {
+        DecodedEntry decodedEntry = decodedEntries.computeIfAbsent(offset, this::decode);
+        if (!AuthenticatorStatuses.isTrustworthy(decodedEntry.statusFlags(), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed)) {
+            return Collections.emptySet();
+        }
+        return decodedEntry.trustAnchors();
+    }
+
+    private DecodedEntry decode(int offset) {
+        ByteBuffer entry = buffer.duplicate().position(offset);
+
+        long statusFlags = 0L;
+        int statusCount = Short.toUnsignedInt(entry.getShort());
+        for (int i = 0; i < statusCount; i++) {
+            byte[] status = new byte[Short.toUnsignedInt(entry.getShort())];
+            entry.get(status);
+            entry.getLong(); // effective date, kept for tooling
+            if (status.length > 0) {
+                statusFlags |= AuthenticatorStatuses.flagOf(AuthenticatorStatus.create(new String(status, StandardCharsets.UTF_8)));
+            }
+        }
+
+        int certificateCount = Short.toUnsignedInt(entry.getShort());
+        Set<TrustAnchor> trustAnchors = new HashSet<>(certificateCount * 2);
+        for (int i = 0; i < certificateCount; i++) {
+            byte[] encoded = new byte[entry.getInt()];
+            entry.get(encoded);
+            trustAnchors.add(new TrustAnchor(CertificateUtil.generateX509Certificate(encoded), null));
+        }
+        return new DecodedEntry(statusFlags, Collections.unmodifiableSet(trustAnchors));
+    }
+
+    private record DecodedEntry(long statusFlags, Set<TrustAnchor> trustAnchors) {
+    }
+
+    private record AAGUIDSlot(long mostSignificantBits, long leastSignificantBits, int offset) {
+
+        static final Comparator<AAGUIDSlot> ORDER = (left, right) -> {
+            int comparison = Long.compareUnsigned(left.mostSignificantBits(), right.mostSignificantBits());
+            return comparison != 0 ? comparison : Long.compareUnsigned(left.leastSignificantBits(), right.leastSignificantBits());
+        };
+    }
+
+    private record KeyIdSlot(byte[] keyId, int offset) {
+    }
+}
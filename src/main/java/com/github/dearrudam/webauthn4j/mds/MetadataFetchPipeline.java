@@ -0,0 +1,148 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+
+public final class MetadataFetchPipeline {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataFetchPipeline.class);
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+
+    private final int maxConcurrency;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    public MetadataFetchPipeline() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_TIMEOUT, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF);
+    }
+
+    public MetadataFetchPipeline(int maxConcurrency, Duration timeout, int maxAttempts, Duration initialBackoff) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than zero");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be greater than zero");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = ofNullable(timeout)
+                .orElseThrow(() -> new IllegalArgumentException("timeout must not be null"));
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = ofNullable(initialBackoff)
+                .orElseThrow(() -> new IllegalArgumentException("initialBackoff must not be null"));
+    }
+
+    public <T> MetadataFetchReport<T> fetchAll(List<String> endpoints, Function<String, T> fetcher) {
+        ofNullable(endpoints)
+                .orElseThrow(() -> new IllegalArgumentException("endpoints must not be null"));
+        ofNullable(fetcher)
+                .orElseThrow(() -> new IllegalArgumentException("fetcher must not be null"));
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        // what the endpoints take when each wave of maxConcurrency uses up every attempt, an attempt that ignores its
+        // cancellation keeps its permit past it and the endpoints still waiting for one give up instead of blocking the report
+        long rounds = Math.max(1, (endpoints.size() + maxConcurrency - 1) / maxConcurrency);
+        long deadline = System.nanoTime() + budget().multipliedBy(rounds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<MetadataFetchReport.Outcome<T>>> futures = new ArrayList<>(endpoints.size());
+            for (String endpoint : endpoints) {
+                futures.add(executor.submit(() -> fetch(endpoint, fetcher, permits, deadline)));
+            }
+
+            // outcomes are reported in the same order as the endpoints
+            List<MetadataFetchReport.Outcome<T>> outcomes = new ArrayList<>(endpoints.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    outcomes.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    outcomes.add(new MetadataFetchReport.Outcome<>(endpoints.get(i), null, e.getCause(), 0, Duration.ZERO));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(future -> future.cancel(true));
+                    throw new RuntimeException("Interrupted while fetching %s".formatted(endpoints), e);
+                }
+            }
+
+            MetadataFetchReport<T> report = new MetadataFetchReport<>(outcomes);
+            logger.info("Fetched metadata: {}", report);
+            return report;
+        }
+    }
+
+    // every attempt timing out, with the backoffs in between
+    private Duration budget() {
+        Duration budget = timeout.multipliedBy(maxAttempts);
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            budget = budget.plus(initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20)));
+        }
+        return budget;
+    }
+
+    private <T> MetadataFetchReport.Outcome<T> fetch(String endpoint, Function<String, T> fetcher, Semaphore permits, long deadline) throws InterruptedException {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        int attempt = 0;
+
+        while (attempt < maxAttempts) {
+            if (attempt > 0) {
+                Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+                logger.debug("Retrying {} in {} ms after attempt {} failed", endpoint, backoff.toMillis(), attempt);
+                Thread.sleep(backoff);
+            }
+
+            // started outside the executor so that an attempt ignoring the cancellation does not hold up the report, but it
+            // keeps its permit until it actually ends, so a timed out attempt still counts against maxConcurrency
+            if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                failure = new TimeoutException("Fetching %s got no permit before the deadline, %d attempts are still running past their timeout"
+                        .formatted(endpoint, maxConcurrency - permits.availablePermits()));
+                logger.warn("Attempt {} of {} to fetch {} got no permit before the deadline", attempt + 1, maxAttempts, endpoint);
+                break;
+            }
+            attempt++;
+            FutureTask<T> future = new FutureTask<>(() -> fetcher.apply(endpoint));
+            Thread.ofVirtual().name("mds-fetch-%s-%d".formatted(endpoint, attempt)).start(() -> {
+                try {
+                    future.run();
+                } finally {
+                    permits.release();
+                }
+            });
+            try {
+                T value = future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+                return new MetadataFetchReport.Outcome<>(endpoint, value, null, attempt, Duration.ofNanos(System.nanoTime() - start));
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+                logger.warn("Attempt {} of {} to fetch {} failed", attempt, maxAttempts, endpoint, failure);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failure = new TimeoutException("Fetching %s took longer than %s".formatted(endpoint, timeout));
+                logger.warn("Attempt {} of {} to fetch {} timed out after {}", attempt, maxAttempts, endpoint, timeout);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                throw e;
+            }
+        }
+
+        return new MetadataFetchReport.Outcome<>(endpoint, null, failure, attempt, Duration.ofNanos(System.nanoTime() - start));
+    }
+}
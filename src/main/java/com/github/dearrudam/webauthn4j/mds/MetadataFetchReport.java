@@ -0,0 +1,46 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import java.time.Duration;
+import java.util.List;
+
+public record MetadataFetchReport<T>(List<Outcome<T>> outcomes) {
+
+    public MetadataFetchReport {
+        outcomes = List.copyOf(outcomes);
+    }
+
+    public List<Outcome<T>> succeeded() {
+        return outcomes.stream().filter(Outcome::isSuccess).toList();
+    }
+
+    public List<Outcome<T>> failed() {
+        return outcomes.stream().filter(outcome -> !outcome.isSuccess()).toList();
+    }
+
+    public List<T> values() {
+        return succeeded().stream().map(Outcome::value).toList();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("%d of %d endpoints succeeded".formatted(succeeded().size(), outcomes.size()));
+        for (Outcome<T> outcome : outcomes) {
+            summary.append(System.lineSeparator()).append("  ").append(outcome);
+        }
+        return summary.toString();
+    }
+
+    public record Outcome<T>(String endpoint, T value, Throwable failure, int attempts, Duration elapsed) {
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess()
+                    ? "%s: OK after %d attempt(s) in %d ms".formatted(endpoint, attempts, elapsed.toMillis())
+                    : "%s: FAILED after %d attempt(s) in %d ms: %s".formatted(endpoint, attempts, elapsed.toMillis(), failure);
+        }
+    }
+}
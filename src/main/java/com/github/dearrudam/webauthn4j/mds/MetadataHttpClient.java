@@ -0,0 +1,89 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.metadata.HttpClient;
+import com.webauthn4j.metadata.exception.MDSException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+public final class MetadataHttpClient implements HttpClient {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataHttpClient.class);
+
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final MetadataHttpClient SHARED = new MetadataHttpClient(
+            java.net.http.HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build(),
+            DEFAULT_REQUEST_TIMEOUT);
+
+    private final java.net.http.HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    public MetadataHttpClient(java.net.http.HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = ofNullable(httpClient)
+                .orElseThrow(() -> new IllegalArgumentException("httpClient must not be null"));
+        this.requestTimeout = ofNullable(requestTimeout)
+                .orElseThrow(() -> new IllegalArgumentException("requestTimeout must not be null"));
+    }
+
+    public static MetadataHttpClient shared() {
+        return SHARED;
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest.Builder requestBuilder, HttpResponse.BodyHandler<T> bodyHandler) {
+        return send(new LinkedHashSet<>(), requestBuilder.timeout(requestTimeout).build(), bodyHandler);
+    }
+
+    private <T> HttpResponse<T> send(Set<URI> accessedUris, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (!accessedUris.add(request.uri())) {
+            // redirect loop detected
+            throw new RuntimeException("Redirect loop detected: %s".formatted(accessedUris));
+        }
+
+        try {
+            var response = httpClient.send(request, bodyHandler);
+
+            logger.info("Response from {} : {}", request.uri(), response);
+
+            if (response.statusCode() >= 300 && response.statusCode() < 400 && response.statusCode() != 304) {
+                if (response.body() instanceof Closeable body) {
+                    body.close();
+                }
+                // should follow the redirect
+                String location = response.headers().firstValue("location").orElseThrow(
+                        () -> new RuntimeException(
+                                "Cannot found the location HTTP header to redirect from URL: %s".formatted(request.uri())));
+
+                URI redirectUri = request.uri().resolve(location);
+                logger.info("Redirecting from {} to {}", request.uri(), redirectUri);
+                return send(accessedUris, HttpRequest.newBuilder(request, (name, value) -> true).uri(redirectUri).build(), bodyHandler);
+            }
+
+            return response;
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to read from URL: %s".formatted(request.uri()), e);
+        }
+    }
+
+    @Override
+    public Response fetch(String uri) throws MDSException {
+        try {
+            var response = send(HttpRequest.newBuilder(URI.create(uri)).GET(), HttpResponse.BodyHandlers.ofInputStream());
+            return new Response(response.statusCode(), response.body());
+        } catch (RuntimeException e) {
+            throw new MDSException("Failed to fetch %s".formatted(uri), e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.metadata.MetadataBLOBProvider;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Optional.ofNullable;
+
+public class MetadataRefresher implements AutoCloseable {
+
+    static final Logger logger = LoggerFactory.getLogger(MetadataRefresher.class);
+
+    private final RefreshableTrustAnchorRepository repository;
+    private final List<MetadataBLOBProvider> metadataBLOBProviders;
+    private final ScheduledExecutorService scheduler;
+    private volatile WebAuthnMetrics metrics = WebAuthnMetrics.NOOP;
+    private volatile TrustAnchorIndex.Precedence precedence = TrustAnchorIndex.Precedence.MERGE;
+
+    // the providers fetch while it is held, a lock instead of the monitor so a refresh on a virtual thread does not pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public MetadataRefresher(RefreshableTrustAnchorRepository repository, MetadataBLOBProvider... metadataBLOBProviders) {
+        this.repository = ofNullable(repository)
+                .orElseThrow(() -> new IllegalArgumentException("repository must not be null"));
+        this.metadataBLOBProviders = List.of(ofNullable(metadataBLOBProviders)
+                .orElseThrow(() -> new IllegalArgumentException("metadataBLOBProviders must not be null")));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mds-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public RefreshableTrustAnchorRepository getRepository() {
+        return repository;
+    }
+
+    public void setMetrics(WebAuthnMetrics metrics) {
+        this.metrics = ofNullable(metrics)
+                .orElseThrow(() -> new IllegalArgumentException("metrics must not be null"));
+    }
+
+    // the providers are listed in order of precedence, set it before the first refresh
+    public void setPrecedence(TrustAnchorIndex.Precedence precedence) {
+        this.precedence = ofNullable(precedence)
+                .orElseThrow(() -> new IllegalArgumentException("precedence must not be null"));
+    }
+
+    public boolean refresh() {
+        lock.lock();
+        try {
+            return update();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean update() {
+        List<MetadataBLOB> metadataBLOBs = new ArrayList<>(metadataBLOBProviders.size());
+        for (MetadataBLOBProvider metadataBLOBProvider : metadataBLOBProviders) {
+            metadataBLOBs.add(metadataBLOBProvider.provide());
+        }
+        List<Integer> nos = metadataBLOBs.stream().map(metadataBLOB -> metadataBLOB.getPayload().getNo()).toList();
+        if (nos.equals(repository.getIndex().getNos())) {
+            logger.debug("Trust anchors are up to date with MDS BLOB {}", nos);
+            return false;
+        }
+        // the next index is fully built before readers can see it, only the entries changed since the current one are rebuilt
+        long start = System.nanoTime();
+        TrustAnchorIndex index;
+        try {
+            index = repository.getIndex().update(metadataBLOBs, precedence);
+        } catch (RuntimeException e) {
+            metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.INDEX, System.nanoTime() - start, e);
+            throw e;
+        }
+        metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.INDEX, System.nanoTime() - start, null);
+        metrics.recordMetadataValue(WebAuthnMetrics.MetadataValue.TRUST_ANCHORS, index.getTrustAnchorCount());
+        metrics.recordMetadataValue(WebAuthnMetrics.MetadataValue.CHANGED_ENTRIES, index.getChangedEntryCount());
+        logger.info("Updated the trust anchors to MDS BLOB {}, {} entries changed, {} distinct root certificates",
+                nos, index.getChangedEntryCount(), index.getCertificateCount());
+        repository.swap(index);
+        return true;
+    }
+
+    // refreshes on the refresher thread, e.g. for a first load that composes with repository.whenLoaded() instead of blocking startup
+    public CompletableFuture<Boolean> refreshAsync() {
+        return CompletableFuture.supplyAsync(this::refresh, scheduler);
+    }
+
+    public void start(Duration interval) {
+        ofNullable(interval).orElseThrow(() -> new IllegalArgumentException("interval must not be null"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to refresh the trust anchors, keeping MDS BLOB {}", repository.getIndex().getNos(), e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,287 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.metadata.CertPathCheckContext;
+import com.webauthn4j.metadata.CertPathChecker;
+import com.webauthn4j.metadata.MetadataBLOBProvider;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBPayload;
+import com.webauthn4j.metadata.exception.CertPathCheckException;
+import com.webauthn4j.metadata.exception.MDSException;
+import com.webauthn4j.util.CertificateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static java.util.Optional.ofNullable;
+
+public class PersistentMetadataBLOBProvider implements MetadataBLOBProvider {
+
+    static final Logger logger = LoggerFactory.getLogger(PersistentMetadataBLOBProvider.class);
+
+    public static final Duration DEFAULT_RECHECK_INTERVAL = Duration.ofHours(1);
+
+    private final MetadataBLOBReader metadataBLOBReader;
+    private final String url;
+    private final Set<TrustAnchor> trustAnchors;
+    private final MetadataBLOBDiskCache cache;
+    private final MetadataHttpClient httpClient;
+    private final Clock clock;
+    private Duration recheckInterval = DEFAULT_RECHECK_INTERVAL;
+    private WebAuthnMetrics metrics = WebAuthnMetrics.NOOP;
+    private boolean revocationCheckEnabled;
+    private CertPathChecker certPathChecker = PersistentMetadataBLOBProvider::checkCertPath;
+
+    private volatile Snapshot current;
+
+    // held across the fetch, a lock instead of the monitor so a virtual thread waiting on the MDS unmounts from its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public PersistentMetadataBLOBProvider(ObjectConverter objectConverter, String url, Set<TrustAnchor> trustAnchors, Path cacheDirectory) {
+        this(objectConverter, url, trustAnchors, new MetadataBLOBDiskCache(cacheDirectory), MetadataHttpClient.shared(), Clock.systemUTC());
+    }
+
+    public PersistentMetadataBLOBProvider(ObjectConverter objectConverter, String url, Set<TrustAnchor> trustAnchors, MetadataBLOBDiskCache cache, MetadataHttpClient httpClient, Clock clock) {
+        this.metadataBLOBReader = new MetadataBLOBReader(ofNullable(objectConverter)
+                .orElseThrow(() -> new IllegalArgumentException("objectConverter must not be null")));
+        this.url = ofNullable(url)
+                .orElseThrow(() -> new IllegalArgumentException("url must not be null"));
+        this.trustAnchors = Set.copyOf(ofNullable(trustAnchors)
+                .orElseThrow(() -> new IllegalArgumentException("trustAnchors must not be null")));
+        this.cache = ofNullable(cache)
+                .orElseThrow(() -> new IllegalArgumentException("cache must not be null"));
+        this.httpClient = ofNullable(httpClient)
+                .orElseThrow(() -> new IllegalArgumentException("httpClient must not be null"));
+        this.clock = ofNullable(clock)
+                .orElseThrow(() -> new IllegalArgumentException("clock must not be null"));
+    }
+
+    public Duration getRecheckInterval() {
+        return recheckInterval;
+    }
+
+    public void setRecheckInterval(Duration recheckInterval) {
+        this.recheckInterval = ofNullable(recheckInterval)
+                .orElseThrow(() -> new IllegalArgumentException("recheckInterval must not be null"));
+    }
+
+    public WebAuthnMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(WebAuthnMetrics metrics) {
+        this.metrics = ofNullable(metrics)
+                .orElseThrow(() -> new IllegalArgumentException("metrics must not be null"));
+    }
+
+    public boolean isRevocationCheckEnabled() {
+        return revocationCheckEnabled;
+    }
+
+    public void setRevocationCheckEnabled(boolean revocationCheckEnabled) {
+        this.revocationCheckEnabled = revocationCheckEnabled;
+    }
+
+    public CertPathChecker getCertPathChecker() {
+        return certPathChecker;
+    }
+
+    // e.g. a CRLCacheCertPathChecker, so the CRLs of the BLOB signer come from disk too
+    public void setCertPathChecker(CertPathChecker certPathChecker) {
+        this.certPathChecker = ofNullable(certPathChecker)
+                .orElseThrow(() -> new IllegalArgumentException("certPathChecker must not be null"));
+    }
+
+    @Override
+    public MetadataBLOB provide() {
+        Snapshot snapshot = this.current;
+        if (snapshot != null && !needsRevalidation(snapshot.entry())) {
+            return snapshot.metadataBLOB();
+        }
+        lock.lock();
+        try {
+            snapshot = loadCurrent();
+            if (snapshot == null || needsRevalidation(snapshot.entry())) {
+                snapshot = fetch(snapshot);
+                this.current = snapshot;
+            }
+            return snapshot.metadataBLOB();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void refresh() {
+        lock.lock();
+        try {
+            this.current = fetch(loadCurrent());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot loadCurrent() {
+        if (this.current == null) {
+            this.current = cache.load().map(entry -> {
+                try (InputStream blob = cache.openBlob()) {
+                    MetadataBLOB metadataBLOB = validate(parse(() -> metadataBLOBReader.read(blob)));
+                    logger.info("Loaded MDS BLOB no {} (nextUpdate {}) from {}", entry.no(), entry.nextUpdate(), cache.getDirectory());
+                    return new Snapshot(entry, metadataBLOB);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Ignoring invalid MDS BLOB cached at {}", cache.getDirectory(), e);
+                    return null;
+                }
+            }).orElse(null);
+        }
+        return this.current;
+    }
+
+    private boolean needsRevalidation(MetadataBLOBDiskCache.Entry entry) {
+        Instant now = clock.instant();
+        return entry.isStale(LocalDate.ofInstant(now, ZoneOffset.UTC))
+                && !now.isBefore(entry.fetchedAt().plus(recheckInterval));
+    }
+
+    private Snapshot fetch(Snapshot cached) {
+        long start = System.nanoTime();
+        boolean fetched = false;
+        try {
+            var requestBuilder = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .GET();
+
+            if (cached != null) {
+                ofNullable(cached.entry().etag()).ifPresent(etag -> requestBuilder.header("If-None-Match", etag));
+                ofNullable(cached.entry().lastModified()).ifPresent(lastModified -> requestBuilder.header("If-Modified-Since", lastModified));
+            }
+
+            HttpResponse<InputStream> response = httpClient.send(requestBuilder, HttpResponse.BodyHandlers.ofInputStream());
+            Instant now = clock.instant();
+
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 304 && cached != null) {
+                    fetched = true;
+                    metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.FETCH, System.nanoTime() - start, null);
+                    logger.info("MDS BLOB from {} not modified, keeping no {}", url, cached.entry().no());
+                    MetadataBLOBDiskCache.Entry revalidated = cached.entry().revalidated(now);
+                    cache.store(revalidated);
+                    return new Snapshot(revalidated, cached.metadataBLOB());
+                }
+
+                if (response.statusCode() != 200) {
+                    throw new RuntimeException("Failed to load data from %s : Status Code: %s . Response: %s".formatted(url, response.statusCode(),
+                            new String(body.readNBytes(1024), StandardCharsets.UTF_8)));
+                }
+
+                // the response is read once into pooled buffers, parsed from there and written to the cache from there
+                try (PooledBytes blob = PooledBytes.read(body, metadataBLOBReader.getPool())) {
+                    fetched = true;
+                    metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.FETCH, System.nanoTime() - start, null);
+                    metrics.recordMetadataValue(WebAuthnMetrics.MetadataValue.BLOB_SIZE, blob.size());
+                    // a BLOB failing the checks is neither cached nor served, the previous one stays
+                    MetadataBLOB metadataBLOB = validate(parse(() -> metadataBLOBReader.read(blob)));
+                    MetadataBLOBPayload payload = metadataBLOB.getPayload();
+
+                    if (cached != null && payload.getNo() < cached.entry().no()) {
+                        logger.warn("Ignoring MDS BLOB no {} from {} as it is older than the cached no {}", payload.getNo(), url, cached.entry().no());
+                        return new Snapshot(cached.entry().revalidated(now), cached.metadataBLOB());
+                    }
+
+                    MetadataBLOBDiskCache.Entry entry = new MetadataBLOBDiskCache.Entry(
+                            payload.getNo(),
+                            payload.getNextUpdate(),
+                            response.headers().firstValue("etag").orElse(null),
+                            response.headers().firstValue("last-modified").orElse(null),
+                            now);
+                    cache.store(entry, blob);
+                    logger.info("Fetched MDS BLOB no {} (nextUpdate {}, {} bytes) from {}", entry.no(), entry.nextUpdate(), blob.size(), url);
+                    return new Snapshot(entry, metadataBLOB);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the MDS BLOB from %s".formatted(url), e);
+            }
+        } catch (RuntimeException e) {
+            // parse failures are reported by parse()
+            if (!fetched) {
+                metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.FETCH, System.nanoTime() - start, e);
+            }
+            if (cached == null) {
+                throw e;
+            }
+            // keep serving the last known BLOB, the next attempt happens after the recheck interval
+            logger.warn("Failed to refresh MDS BLOB from {}, serving the cached no {}", url, cached.entry().no(), e);
+            return new Snapshot(cached.entry().revalidated(clock.instant()), cached.metadataBLOB());
+        }
+    }
+
+    private MetadataBLOB parse(Supplier<MetadataBLOB> reader) {
+        long start = System.nanoTime();
+        try {
+            MetadataBLOB metadataBLOB = reader.get();
+            metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.PARSE, System.nanoTime() - start, null);
+            metrics.recordMetadataValue(WebAuthnMetrics.MetadataValue.ENTRIES, metadataBLOB.getPayload().getEntries().size());
+            return metadataBLOB;
+        } catch (RuntimeException e) {
+            metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.PARSE, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    // the checks of FidoMDS3MetadataBLOBProvider: the JWS signature, then the x5c chain up to one of the trust anchors
+    private MetadataBLOB validate(MetadataBLOB metadataBLOB) {
+        if (!metadataBLOB.isValidSignature()) {
+            throw new MDSException("MetadataBLOB signature is invalid");
+        }
+        try {
+            certPathChecker.check(new CertPathCheckContext(metadataBLOB.getHeader().getX5c(), trustAnchors, revocationCheckEnabled));
+        } catch (RuntimeException e) {
+            throw new MDSException("MetadataBLOB certificate chain validation failed", e);
+        }
+        return metadataBLOB;
+    }
+
+    private static void checkCertPath(CertPathCheckContext context) {
+        try {
+            CertPathValidator certPathValidator = CertificateUtil.createCertPathValidator();
+            PKIXParameters parameters = CertificateUtil.createPKIXParameters(context.getTrustAnchors());
+            parameters.setRevocationEnabled(context.isRevocationCheckEnabled());
+            if (context.isRevocationCheckEnabled()) {
+                PKIXRevocationChecker revocationChecker = (PKIXRevocationChecker) certPathValidator.getRevocationChecker();
+                revocationChecker.setOptions(EnumSet.of(PKIXRevocationChecker.Option.PREFER_CRLS));
+                parameters.addCertPathChecker(revocationChecker);
+            }
+            certPathValidator.validate(context.getCertPath(), parameters);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new CertPathCheckException("invalid algorithm parameter", e);
+        } catch (CertPathValidatorException e) {
+            throw new CertPathCheckException("invalid cert path", e);
+        }
+    }
+
+    private record Snapshot(MetadataBLOBDiskCache.Entry entry, MetadataBLOB metadataBLOB) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Optional.ofNullable;
+
+// a byte sequence held in pooled buffers instead of one large array, returned to the pool on close
+public final class PooledBytes implements AutoCloseable {
+
+    private final ByteBufferPool pool;
+    private final List<ByteBuffer> buffers;
+    private final int bufferSize;
+    private final long size;
+    private boolean closed;
+
+    private PooledBytes(ByteBufferPool pool, List<ByteBuffer> buffers, long size) {
+        this.pool = pool;
+        this.buffers = buffers;
+        this.bufferSize = pool.getBufferSize();
+        this.size = size;
+    }
+
+    public static PooledBytes read(InputStream inputStream, ByteBufferPool pool) {
+        ofNullable(inputStream)
+                .orElseThrow(() -> new IllegalArgumentException("inputStream must not be null"));
+        ofNullable(pool)
+                .orElseThrow(() -> new IllegalArgumentException("pool must not be null"));
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        long size = 0;
+        try {
+            while (true) {
+                ByteBuffer buffer = pool.acquire();
+                buffers.add(buffer);
+                // every buffer but the last is filled completely, which keeps offsets a plain division
+                int read = inputStream.readNBytes(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+                buffer.limit(read);
+                size += read;
+                if (read < buffer.capacity()) {
+                    return new PooledBytes(pool, buffers, size);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            buffers.forEach(pool::release);
+            if (e instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to read into pooled buffers", ioException);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte get(long index) {
+        checkRange(index, index + 1);
+        return buffers.get((int) (index / bufferSize)).get((int) (index % bufferSize));
+    }
+
+    public long indexOf(byte value, long fromIndex) {
+        checkOpen();
+        for (long index = Math.max(fromIndex, 0); index < size; ) {
+            ByteBuffer buffer = buffers.get((int) (index / bufferSize));
+            for (int position = (int) (index % bufferSize); position < buffer.limit(); position++, index++) {
+                if (buffer.get(position) == value) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // hands out read-only views over the buffers, no bytes are copied
+    public void forEachSlice(long fromIndex, long toIndex, Consumer<ByteBuffer> consumer) {
+        checkRange(fromIndex, toIndex);
+        for (long index = fromIndex; index < toIndex; ) {
+            ByteBuffer buffer = buffers.get((int) (index / bufferSize));
+            int position = (int) (index % bufferSize);
+            int length = (int) Math.min(buffer.limit() - position, toIndex - index);
+            consumer.accept(buffer.asReadOnlyBuffer().position(position).limit(position + length));
+            index += length;
+        }
+    }
+
+    public InputStream inputStream(long fromIndex, long toIndex) {
+        checkRange(fromIndex, toIndex);
+        return new InputStream() {
+
+            private long index = fromIndex;
+
+            @Override
+            public int read() {
+                return index < toIndex ? get(index++) & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (index >= toIndex) {
+                    return -1;
+                }
+                checkOpen();
+                ByteBuffer buffer = buffers.get((int) (index / bufferSize));
+                int position = (int) (index % bufferSize);
+                int count = (int) Math.min(Math.min(buffer.limit() - position, toIndex - index), length);
+                buffer.get(position, bytes, offset, count);
+                index += count;
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return (int) Math.min(toIndex - index, Integer.MAX_VALUE);
+            }
+        };
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        checkOpen();
+        for (ByteBuffer buffer : buffers) {
+            ByteBuffer slice = buffer.asReadOnlyBuffer().position(0);
+            while (slice.hasRemaining()) {
+                channel.write(slice);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            buffers.forEach(pool::release);
+            buffers.clear();
+        }
+    }
+
+    private void checkRange(long fromIndex, long toIndex) {
+        checkOpen();
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("[%d, %d) is out of bounds for size %d".formatted(fromIndex, toIndex, size));
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The pooled buffers were already released");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.anchor.TrustAnchorRepository;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.cert.TrustAnchor;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.util.Optional.ofNullable;
+
+public class RefreshableTrustAnchorRepository implements TrustAnchorRepository {
+
+    static final Logger logger = LoggerFactory.getLogger(RefreshableTrustAnchorRepository.class);
+
+    private final AtomicReference<TrustAnchorIndex> index;
+    private final List<Consumer<TrustAnchorIndex>> refreshListeners = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<TrustAnchorIndex> loaded = new CompletableFuture<>();
+
+    private volatile boolean notFidoCertifiedAllowed;
+    private volatile boolean selfAssertionSubmittedAllowed;
+
+    public RefreshableTrustAnchorRepository() {
+        this(TrustAnchorIndex.EMPTY);
+    }
+
+    public RefreshableTrustAnchorRepository(TrustAnchorIndex index) {
+        this.index = new AtomicReference<>(ofNullable(index)
+                .orElseThrow(() -> new IllegalArgumentException("index must not be null")));
+        if (index != TrustAnchorIndex.EMPTY) {
+            loaded.complete(index);
+        }
+    }
+
+    @Override
+    public Set<TrustAnchor> find(AAGUID aaguid) {
+        return index.get().find(aaguid, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public Set<TrustAnchor> find(long mostSignificantBits, long leastSignificantBits) {
+        return index.get().find(mostSignificantBits, leastSignificantBits, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    // reads the AAGUID straight out of authenticator data, e.g. at offset 37 of the attested credential data
+    public Set<TrustAnchor> findByAAGUID(byte[] bytes, int offset) {
+        return index.get().findByAAGUID(bytes, offset, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    @Override
+    public Set<TrustAnchor> find(byte[] attestationCertificateKeyIdentifier) {
+        return index.get().find(attestationCertificateKeyIdentifier, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public boolean isRejected(AAGUID aaguid) {
+        return index.get().isRejected(aaguid, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public boolean isRejected(byte[] attestationCertificateKeyIdentifier) {
+        return index.get().isRejected(attestationCertificateKeyIdentifier, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public TrustAnchorIndex getIndex() {
+        return index.get();
+    }
+
+    public TrustAnchorIndex swap(TrustAnchorIndex next) {
+        TrustAnchorIndex previous = index.getAndSet(ofNullable(next)
+                .orElseThrow(() -> new IllegalArgumentException("next must not be null")));
+        logger.info("Swapped trust anchor index {} for {}", previous.getNos(), next.getNos());
+        loaded.complete(next);
+        for (Consumer<TrustAnchorIndex> refreshListener : refreshListeners) {
+            try {
+                refreshListener.accept(next);
+            } catch (RuntimeException e) {
+                logger.warn("Trust anchor refresh listener failed", e);
+            }
+        }
+        return previous;
+    }
+
+    // completes with the first index the repository was created with or swapped to, for callers that must not block on it
+    public CompletableFuture<TrustAnchorIndex> whenLoaded() {
+        return loaded.copy();
+    }
+
+    public void addRefreshListener(Consumer<TrustAnchorIndex> refreshListener) {
+        refreshListeners.add(ofNullable(refreshListener)
+                .orElseThrow(() -> new IllegalArgumentException("refreshListener must not be null")));
+    }
+
+    public boolean removeRefreshListener(Consumer<TrustAnchorIndex> refreshListener) {
+        return refreshListeners.remove(refreshListener);
+    }
+
+    public boolean isNotFidoCertifiedAllowed() {
+        return notFidoCertifiedAllowed;
+    }
+
+    public void setNotFidoCertifiedAllowed(boolean notFidoCertifiedAllowed) {
+        this.notFidoCertifiedAllowed = notFidoCertifiedAllowed;
+    }
+
+    public boolean isSelfAssertionSubmittedAllowed() {
+        return selfAssertionSubmittedAllowed;
+    }
+
+    public void setSelfAssertionSubmittedAllowed(boolean selfAssertionSubmittedAllowed) {
+        this.selfAssertionSubmittedAllowed = selfAssertionSubmittedAllowed;
+    }
+}
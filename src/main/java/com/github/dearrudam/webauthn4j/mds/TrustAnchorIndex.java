@@ -0,0 +1,327 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBPayloadEntry;
+import com.webauthn4j.metadata.data.statement.MetadataStatement;
+import com.webauthn4j.util.HexUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.util.Optional.ofNullable;
+
+public final class TrustAnchorIndex {
+
+    public static final TrustAnchorIndex EMPTY = new TrustAnchorIndex(Collections.emptyList(), AAGUIDTable.of(Collections.emptyMap()), Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap(), 0, 0);
+
+    // how the entries of several BLOBs listing the same AAGUID or key identifier are combined
+    public enum Precedence {
+        // the trustworthy entries of every BLOB contribute their trust anchors
+        MERGE,
+        // only the entries of the first BLOB listing it count, e.g. a local override listed before the MDS BLOBs
+        FIRST_SOURCE
+    }
+
+    private final List<Integer> nos;
+    private final AAGUIDTable<IndexEntry> aaguids;
+    private final Map<ByteBuffer, IndexEntry> keyIds;
+    private final int trustAnchorCount;
+
+    // what the next update() compares the entries of a new BLOB with
+    private final Map<EntryKey, Candidate> candidates;
+    private final int changedEntryCount;
+
+    // every attestation root certificate by its SHA-256 fingerprint, held once however many entries and BLOBs list it
+    private final Map<ByteBuffer, TrustAnchor> roots;
+
+    private TrustAnchorIndex(List<Integer> nos, AAGUIDTable<IndexEntry> aaguids, Map<ByteBuffer, IndexEntry> keyIds,
+                             Map<EntryKey, Candidate> candidates, Map<ByteBuffer, TrustAnchor> roots, int trustAnchorCount, int changedEntryCount) {
+        this.nos = nos;
+        this.aaguids = aaguids;
+        this.keyIds = keyIds;
+        this.candidates = candidates;
+        this.roots = roots;
+        this.trustAnchorCount = trustAnchorCount;
+        this.changedEntryCount = changedEntryCount;
+    }
+
+    public static TrustAnchorIndex of(List<MetadataBLOB> metadataBLOBs) {
+        return EMPTY.update(metadataBLOBs);
+    }
+
+    public TrustAnchorIndex update(List<MetadataBLOB> metadataBLOBs) {
+        return update(metadataBLOBs, Precedence.MERGE);
+    }
+
+    // the next index, where the entries that kept their BLOB, AAGUID or key identifiers, status, timeOfLastStatusChange and
+    // root certificates since this one reuse their trust anchors, and keys whose entries are all unchanged reuse their answers;
+    // the BLOBs are listed in order of precedence
+    public TrustAnchorIndex update(List<MetadataBLOB> metadataBLOBs, Precedence precedence) {
+        ofNullable(metadataBLOBs).orElseThrow(() -> new IllegalArgumentException("metadataBLOBs must not be null"));
+        ofNullable(precedence).orElseThrow(() -> new IllegalArgumentException("precedence must not be null"));
+
+        Map<UUID, List<Candidate>> aaguidCandidates = new HashMap<>();
+        Map<ByteBuffer, List<Candidate>> keyIdCandidates = new HashMap<>();
+        Map<EntryKey, Candidate> nextCandidates = new HashMap<>(this.candidates.size() * 2);
+        Map<ByteBuffer, TrustAnchor> nextRoots = new HashMap<>(this.roots.size() * 2);
+        MessageDigest messageDigest = MessageDigestUtil.createSHA256();
+        Integer[] nos = new Integer[metadataBLOBs.size()];
+        int trustAnchorCount = 0;
+        int changedEntryCount = 0;
+
+        for (int i = 0; i < nos.length; i++) {
+            MetadataBLOB metadataBLOB = metadataBLOBs.get(i);
+            nos[i] = metadataBLOB.getPayload().getNo();
+            for (MetadataBLOBPayloadEntry entry : metadataBLOB.getPayload().getEntries()) {
+                // an entry without a statement only carries a status, e.g. an override revoking an authenticator, and has no trust anchors
+                MetadataStatement metadataStatement = entry.getMetadataStatement();
+                List<String> attestationCertificateKeyIdentifiers = metadataStatement == null || metadataStatement.getAttestationCertificateKeyIdentifiers() == null
+                        ? entry.getAttestationCertificateKeyIdentifiers()
+                        : metadataStatement.getAttestationCertificateKeyIdentifiers();
+                // nothing could find such an entry, and all of them would share one key and count as changed on every update
+                if (entry.getAaguid() == null && (attestationCertificateKeyIdentifiers == null || attestationCertificateKeyIdentifiers.isEmpty())) {
+                    continue;
+                }
+                EntryKey entryKey = new EntryKey(
+                        i,
+                        entry.getAaguid() == null ? null : entry.getAaguid().getValue(),
+                        attestationCertificateKeyIdentifiers);
+                long statusFlags = AuthenticatorStatuses.flagsOf(entry.getStatusReports());
+                List<X509Certificate> certificates = metadataStatement == null
+                        ? Collections.emptyList()
+                        : ofNullable(metadataStatement.getAttestationRootCertificates()).orElse(Collections.emptyList());
+                Candidate previous = this.candidates.get(entryKey);
+                Candidate candidate = previous != null && previous.isUnchanged(entry, statusFlags, certificates)
+                        ? previous
+                        : Candidate.of(i, entry, statusFlags, intern(certificates, messageDigest, nextRoots));
+                if (candidate != previous) {
+                    changedEntryCount++;
+                }
+                nextCandidates.put(entryKey, candidate);
+                nextRoots.putAll(candidate.roots());
+                trustAnchorCount += candidate.trustAnchors().size();
+                if (entry.getAaguid() != null) {
+                    add(aaguidCandidates.computeIfAbsent(entry.getAaguid().getValue(), uuid -> new ArrayList<>(1)), candidate, precedence);
+                }
+                ofNullable(attestationCertificateKeyIdentifiers)
+                        .ifPresent(identifiers -> identifiers.forEach(identifier ->
+                                add(keyIdCandidates.computeIfAbsent(ByteBuffer.wrap(HexUtil.decode(identifier)), keyId -> new ArrayList<>(1)), candidate, precedence)));
+            }
+        }
+
+        Map<UUID, IndexEntry> aaguids = new HashMap<>(aaguidCandidates.size() * 2);
+        aaguidCandidates.forEach((uuid, candidates) -> aaguids.put(uuid,
+                IndexEntry.of(candidates, this.aaguids.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()))));
+        Map<ByteBuffer, IndexEntry> keyIds = new HashMap<>(keyIdCandidates.size() * 2);
+        keyIdCandidates.forEach((keyId, candidates) -> keyIds.put(keyId, IndexEntry.of(candidates, this.keyIds.get(keyId))));
+
+        return new TrustAnchorIndex(List.of(nos), AAGUIDTable.of(aaguids), keyIds, nextCandidates, nextRoots, trustAnchorCount, changedEntryCount);
+    }
+
+    private static void add(List<Candidate> candidates, Candidate candidate, Precedence precedence) {
+        if (precedence == Precedence.MERGE || candidates.isEmpty() || candidates.get(0).source() == candidate.source()) {
+            candidates.add(candidate);
+        }
+    }
+
+    // the trust anchor of a root already known to this index or the next one is reused instead of wrapping another copy,
+    // only the entries that changed pay for the fingerprints
+    private Map<ByteBuffer, TrustAnchor> intern(List<X509Certificate> certificates, MessageDigest messageDigest, Map<ByteBuffer, TrustAnchor> nextRoots) {
+        if (certificates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<ByteBuffer, TrustAnchor> interned = new LinkedHashMap<>(certificates.size() * 2);
+        for (X509Certificate certificate : certificates) {
+            ByteBuffer fingerprint;
+            try {
+                fingerprint = ByteBuffer.wrap(messageDigest.digest(certificate.getEncoded()));
+            } catch (CertificateEncodingException e) {
+                throw new IllegalArgumentException("Failed to encode the attestation root certificate %s".formatted(certificate.getSubjectX500Principal()), e);
+            }
+            TrustAnchor trustAnchor = nextRoots.get(fingerprint);
+            if (trustAnchor == null) {
+                trustAnchor = roots.get(fingerprint);
+            }
+            if (trustAnchor == null) {
+                trustAnchor = new TrustAnchor(certificate, null);
+            }
+            nextRoots.put(fingerprint, trustAnchor);
+            interned.put(fingerprint, trustAnchor);
+        }
+        return Collections.unmodifiableMap(interned);
+    }
+
+    public List<Integer> getNos() {
+        return nos;
+    }
+
+    public int size() {
+        return aaguids.size() + keyIds.size();
+    }
+
+    // the attestation root certificates of all metadata statements, counted once per statement
+    public int getTrustAnchorCount() {
+        return trustAnchorCount;
+    }
+
+    // the distinct attestation root certificates across all BLOBs
+    public int getCertificateCount() {
+        return roots.size();
+    }
+
+    // the entries that were new or changed when this index was built
+    public int getChangedEntryCount() {
+        return changedEntryCount;
+    }
+
+    public Set<TrustAnchor> find(AAGUID aaguid, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        if (aaguid == null) {
+            return Collections.emptySet();
+        }
+        UUID uuid = aaguid.getValue();
+        return find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public Set<TrustAnchor> find(long mostSignificantBits, long leastSignificantBits, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return select(aaguids.get(mostSignificantBits, leastSignificantBits), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public Set<TrustAnchor> findByAAGUID(byte[] bytes, int offset, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return select(aaguids.get(bytes, offset), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public Set<TrustAnchor> find(byte[] attestationCertificateKeyIdentifier, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return attestationCertificateKeyIdentifier == null
+                ? Collections.emptySet()
+                : select(keyIds.get(ByteBuffer.wrap(attestationCertificateKeyIdentifier)), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    // whether the metadata knows the authenticator and none of its entries is trustworthy under the policy,
+    // an authenticator missing from the metadata is not rejected
+    public boolean isRejected(AAGUID aaguid, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        if (aaguid == null) {
+            return false;
+        }
+        UUID uuid = aaguid.getValue();
+        return isRejected(aaguids.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    public boolean isRejected(byte[] attestationCertificateKeyIdentifier, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return attestationCertificateKeyIdentifier != null
+                && isRejected(keyIds.get(ByteBuffer.wrap(attestationCertificateKeyIdentifier)), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed);
+    }
+
+    private static Set<TrustAnchor> select(IndexEntry indexEntry, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return indexEntry == null
+                ? Collections.emptySet()
+                : indexEntry.trustAnchors().get(IndexEntry.policyOf(notFidoCertifiedAllowed, selfAssertionSubmittedAllowed));
+    }
+
+    private static boolean isRejected(IndexEntry indexEntry, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+        return indexEntry != null
+                && (indexEntry.rejectedPolicies() & (1 << IndexEntry.policyOf(notFidoCertifiedAllowed, selfAssertionSubmittedAllowed))) != 0;
+    }
+
+    // source is the position of the BLOB the entry came from
+    private record EntryKey(int source, UUID aaguid, List<String> attestationCertificateKeyIdentifiers) {
+    }
+
+    private record Candidate(int source, long statusFlags, LocalDate timeOfLastStatusChange,
+                             Map<ByteBuffer, TrustAnchor> roots, Set<TrustAnchor> trustAnchors) {
+
+        static Candidate of(int source, MetadataBLOBPayloadEntry entry, long statusFlags, Map<ByteBuffer, TrustAnchor> roots) {
+            Set<TrustAnchor> trustAnchors = roots.isEmpty()
+                    ? Collections.emptySet()
+                    : Collections.unmodifiableSet(new HashSet<>(roots.values()));
+            return new Candidate(source, statusFlags, entry.getTimeOfLastStatusChange(), roots, trustAnchors);
+        }
+
+        // the status flags are cheap to derive and catch a status changed without a new timeOfLastStatusChange,
+        // the root certificates are compared by their encoding with the interned ones
+        boolean isUnchanged(MetadataBLOBPayloadEntry entry, long statusFlags, List<X509Certificate> certificates) {
+            if (this.statusFlags != statusFlags
+                    || !Objects.equals(timeOfLastStatusChange, entry.getTimeOfLastStatusChange())
+                    || roots.size() != certificates.size()) {
+                return false;
+            }
+            int i = 0;
+            for (TrustAnchor trustAnchor : roots.values()) {
+                if (!trustAnchor.getTrustedCert().equals(certificates.get(i++))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // one prebuilt answer per combination of the two status policy switches, rejectedPolicies has the bit of each
+    // policy under which no candidate is trustworthy
+    private record IndexEntry(List<Candidate> candidates, List<Set<TrustAnchor>> trustAnchors, int rejectedPolicies) {
+
+        static int policyOf(boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+            return (notFidoCertifiedAllowed ? 1 : 0) | (selfAssertionSubmittedAllowed ? 2 : 0);
+        }
+
+        static IndexEntry of(List<Candidate> candidates, IndexEntry previous) {
+            if (previous != null && isSame(previous.candidates(), candidates)) {
+                return previous;
+            }
+            List<Set<TrustAnchor>> trustAnchors = new ArrayList<>(4);
+            int rejectedPolicies = 0;
+            for (int policy = 0; policy < 4; policy++) {
+                boolean notFidoCertifiedAllowed = (policy & 1) != 0;
+                boolean selfAssertionSubmittedAllowed = (policy & 2) != 0;
+                trustAnchors.add(trustAnchorsOf(candidates, notFidoCertifiedAllowed, selfAssertionSubmittedAllowed));
+                if (candidates.stream().noneMatch(candidate -> AuthenticatorStatuses.isTrustworthy(candidate.statusFlags(), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed))) {
+                    rejectedPolicies |= 1 << policy;
+                }
+            }
+            return new IndexEntry(candidates, List.copyOf(trustAnchors), rejectedPolicies);
+        }
+
+        private static boolean isSame(List<Candidate> previous, List<Candidate> candidates) {
+            if (previous.size() != candidates.size()) {
+                return false;
+            }
+            for (int i = 0; i < previous.size(); i++) {
+                if (previous.get(i) != candidates.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Set<TrustAnchor> trustAnchorsOf(List<Candidate> candidates, boolean notFidoCertifiedAllowed, boolean selfAssertionSubmittedAllowed) {
+            List<Candidate> trustworthy = candidates.stream()
+                    .filter(candidate -> AuthenticatorStatuses.isTrustworthy(candidate.statusFlags(), notFidoCertifiedAllowed, selfAssertionSubmittedAllowed))
+                    .toList();
+            if (trustworthy.isEmpty()) {
+                return Collections.emptySet();
+            }
+            if (trustworthy.size() == 1) {
+                return trustworthy.get(0).trustAnchors();
+            }
+            Set<TrustAnchor> trustAnchors = new LinkedHashSet<>();
+            trustworthy.forEach(candidate -> trustAnchors.addAll(candidate.trustAnchors()));
+            return Collections.unmodifiableSet(trustAnchors);
+        }
+    }
+}
@@ -4,33 +4,59 @@ package com.github.dearrudam.webauthn4j.mds;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.anchor.TrustAnchorRepository;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.attestation.authenticator.AAGUID;
 import com.webauthn4j.metadata.FidoMDS3MetadataBLOBProvider;
+import com.webauthn4j.metadata.LocalFileMetadataBLOBProvider;
 import com.webauthn4j.metadata.MetadataBLOBProvider;
 import com.webauthn4j.metadata.anchor.MetadataBLOBBasedTrustAnchorRepository;
 import com.webauthn4j.metadata.data.MetadataBLOB;
-import com.webauthn4j.metadata.data.MetadataBLOBFactory;
 import com.webauthn4j.util.CertificateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
-import java.util.LinkedHashSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Optional.ofNullable;
 
 public class WebAuthnMetadataLoader {
 
     static final Logger logger = LoggerFactory.getLogger(WebAuthnMetadataLoader.class);
 
+    // both can point elsewhere, e.g. at a local stand-in server in load tests
+    public static final String DEFAULT_MDS_URL = "https://mds3.fidoalliance.org/";
+    public static final String DEFAULT_CONFORMANCE_URL = "https://mds3.fido.tools/";
+
+    // the root the mds3.fidoalliance.org BLOB chains up to, shipped instead of fetched as the FIDO Alliance asks
+    static final String MDS_ROOT_CERTIFICATE_RESOURCE = "GlobalSignRootCA-R3.crt";
+
+    static final Path DEFAULT_CACHE_DIRECTORY = Path.of(System.getProperty("user.home"), ".webauthn4j", "mds3");
+
+    static final String SNAPSHOT_FILE_NAME = "blob.snapshot";
+
+    static final String CRL_DIRECTORY_NAME = "crl";
+
+    // well within CRLCache.DEFAULT_REFRESH_AHEAD, so a CRL is replaced before its nextUpdate passes
+    static final Duration CRL_REFRESH_INTERVAL = Duration.ofMinutes(15);
 
     public static void main(String[] args) {
 
@@ -41,7 +67,7 @@ public class WebAuthnMetadataLoader {
 
         ObjectConverter objectConverter = new ObjectConverter();
 
-        MetadataBLOBBasedTrustAnchorRepository repository = getMetadataBLOBBasedTrustAnchorRepository(objectConverter);
+        TrustAnchorRepository repository = getSnapshotBasedTrustAnchorRepository(objectConverter, DEFAULT_CACHE_DIRECTORY);
 
         AAGUID aaguid = new AAGUID("b93fd961-f2e6-462f-b122-82002247de78");
 
@@ -53,57 +79,96 @@ public class WebAuthnMetadataLoader {
     }
 
     public static MetadataBLOBBasedTrustAnchorRepository getMetadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter) {
-        MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(objectConverter);
+        return getMetadataBLOBBasedTrustAnchorRepository(objectConverter, DEFAULT_CACHE_DIRECTORY);
+    }
 
-        MetadataBLOB metadataBLOB = metadataBLOBFactory.parse(readStringFromURL("https://mds3.fidoalliance.org/"));
+    public static MetadataBLOBBasedTrustAnchorRepository getMetadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, Path cacheDirectory) {
+        return getMetadataBLOBBasedTrustAnchorRepository(objectConverter, cacheDirectory, WebAuthnMetrics.NOOP);
+    }
 
-        MetadataBLOBBasedTrustAnchorRepository repository = new MetadataBLOBBasedTrustAnchorRepository(() -> metadataBLOB);
+    public static MetadataBLOBBasedTrustAnchorRepository getMetadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, Path cacheDirectory, WebAuthnMetrics metrics) {
+        return getMetadataBLOBBasedTrustAnchorRepository(objectConverter, DEFAULT_MDS_URL, getMDSTrustAnchors(), cacheDirectory, metrics);
+    }
+
+    public static MetadataBLOBBasedTrustAnchorRepository getMetadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, String mdsUrl, Set<TrustAnchor> mdsTrustAnchors, Path cacheDirectory, WebAuthnMetrics metrics) {
+        PersistentMetadataBLOBProvider metadataBLOBProvider = new PersistentMetadataBLOBProvider(objectConverter, mdsUrl, mdsTrustAnchors, cacheDirectory);
+        metadataBLOBProvider.setMetrics(metrics);
+
+        // served from the cache directory unless the cached BLOB has passed its nextUpdate
+        metadataBLOBProvider.provide();
+
+        MetadataBLOBBasedTrustAnchorRepository repository = new MetadataBLOBBasedTrustAnchorRepository(metadataBLOBProvider);
 
         return repository;
     }
 
-    private static String readStringFromURL(String url) {
-        return readStringFromURL(new LinkedHashSet<>(),url);
+    public static MetadataRefresher startMetadataRefresher(ObjectConverter objectConverter, Path cacheDirectory, Duration refreshInterval) {
+        return startMetadataRefresher(objectConverter, cacheDirectory, refreshInterval, WebAuthnMetrics.NOOP);
     }
 
-    private static String readStringFromURL(Set<String> accessedUrls, String url) {
-        if (!accessedUrls.add(url)) {
-            // redirect loop detected
-            throw new RuntimeException("Redirect loop detected: %s".formatted(accessedUrls));
-        }
+    public static MetadataRefresher startMetadataRefresher(ObjectConverter objectConverter, Path cacheDirectory, Duration refreshInterval, WebAuthnMetrics metrics) {
+        return startMetadataRefresher(objectConverter, DEFAULT_MDS_URL, getMDSTrustAnchors(), cacheDirectory, refreshInterval, metrics);
+    }
 
-        try {
+    public static MetadataRefresher startMetadataRefresher(ObjectConverter objectConverter, String mdsUrl, Set<TrustAnchor> mdsTrustAnchors, Path cacheDirectory, Duration refreshInterval, WebAuthnMetrics metrics) {
+        PersistentMetadataBLOBProvider metadataBLOBProvider = new PersistentMetadataBLOBProvider(objectConverter, mdsUrl, mdsTrustAnchors, cacheDirectory);
+        metadataBLOBProvider.setMetrics(metrics);
 
-            var request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .build();
+        MetadataRefresher metadataRefresher = new MetadataRefresher(new RefreshableTrustAnchorRepository(), metadataBLOBProvider);
+        metadataRefresher.setMetrics(metrics);
 
-            var response = HttpClient.newHttpClient()
-                    .send(request, HttpResponse.BodyHandlers.ofString());
+        // the first index is built before returning, later ones are swapped in by the background refresh
+        metadataRefresher.refresh();
+        metadataRefresher.start(refreshInterval);
 
-            logger.info("Response from {} : {}", url, response);
+        return metadataRefresher;
+    }
 
-            if (response.statusCode() >= 300 && response.statusCode() < 400) {
-                // should follow the redirect
-                String location = response.headers().firstValue("location").orElseThrow(
-                        () -> new RuntimeException(
-                                "Cannot found the location HTTP header to redirect from URL: %s".formatted(url)));
+    public static MetadataBLOBSnapshot getSnapshotBasedTrustAnchorRepository(ObjectConverter objectConverter, Path cacheDirectory) {
+        return getSnapshotBasedTrustAnchorRepository(objectConverter, cacheDirectory, WebAuthnMetrics.NOOP);
+    }
 
-                logger.info("Redirecting from {} to {}", url, location);
-                return readStringFromURL(accessedUrls, location);
-            }
+    public static MetadataBLOBSnapshot getSnapshotBasedTrustAnchorRepository(ObjectConverter objectConverter, Path cacheDirectory, WebAuthnMetrics metrics) {
+        return getSnapshotBasedTrustAnchorRepository(objectConverter, DEFAULT_MDS_URL, getMDSTrustAnchors(), cacheDirectory, metrics);
+    }
 
-            if (response.statusCode() != 200) {
-                throw new RuntimeException("Failed to load data from %s : Status Code: %s . Response: %s".formatted(url, response.statusCode(), response.body()));
+    public static MetadataBLOBSnapshot getSnapshotBasedTrustAnchorRepository(ObjectConverter objectConverter, String mdsUrl, Set<TrustAnchor> mdsTrustAnchors, Path cacheDirectory, WebAuthnMetrics metrics) {
+        Path snapshotFile = cacheDirectory.resolve(SNAPSHOT_FILE_NAME);
+
+        if (Files.isRegularFile(snapshotFile)) {
+            try {
+                MetadataBLOBSnapshot snapshot = MetadataBLOBSnapshot.open(snapshotFile);
+                if (!snapshot.isStale(LocalDate.now(ZoneOffset.UTC))) {
+                    return snapshot;
+                }
+                logger.info("MetadataBLOB snapshot no {} passed its nextUpdate {}", snapshot.getNo(), snapshot.getNextUpdate());
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring unreadable MetadataBLOB snapshot {}", snapshotFile, e);
             }
-            return response.body();
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Failed to read from URL: %s".formatted(url), e);
+        }
+
+        PersistentMetadataBLOBProvider metadataBLOBProvider = new PersistentMetadataBLOBProvider(objectConverter, mdsUrl, mdsTrustAnchors, cacheDirectory);
+        metadataBLOBProvider.setMetrics(metrics);
+        MetadataBLOB metadataBLOB = metadataBLOBProvider.provide();
+
+        // writing the snapshot is what builds its index
+        long start = System.nanoTime();
+        MetadataBLOBSnapshot.write(metadataBLOB, snapshotFile);
+        metrics.recordMetadata(WebAuthnMetrics.MetadataOperation.INDEX, System.nanoTime() - start, null);
+
+        return MetadataBLOBSnapshot.open(snapshotFile);
+    }
+
+    public static Set<TrustAnchor> getMDSTrustAnchors() {
+        try (InputStream inputStream = ofNullable(WebAuthnMetadataLoader.class.getResourceAsStream(MDS_ROOT_CERTIFICATE_RESOURCE))
+                .orElseThrow(() -> new IllegalStateException("%s not found".formatted(MDS_ROOT_CERTIFICATE_RESOURCE)))) {
+            return Set.of(new TrustAnchor(CertificateUtil.generateX509Certificate(inputStream.readAllBytes()), null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read %s".formatted(MDS_ROOT_CERTIFICATE_RESOURCE), e);
         }
     }
 
-    private static Endpoints loadEndpoints(String endpoint) {
+    private static Endpoints loadEndpoints(String conformanceUrl, String endpoint) {
 
         try {
 
@@ -112,12 +177,11 @@ public class WebAuthnMetadataLoader {
             var requestBody = objectMapper.createObjectNode().put("endpoint", endpoint).toString();
 
             var request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://mds3.fido.tools/getEndpoints"))
+                    .uri(URI.create(conformanceUrl).resolve("getEndpoints"))
                     .header("Content-Type", "application/json")
-                    .POST(BodyPublishers.ofString(requestBody))
-                    .build();
+                    .POST(BodyPublishers.ofString(requestBody));
 
-            var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            var response = MetadataHttpClient.shared().send(request, HttpResponse.BodyHandlers.ofString());
 
             if (response.statusCode() != 200) {
                 throw new RuntimeException("Failed to load endpoints: Status Code: %s . Response: %s".formatted(response.statusCode(), response.body()));
@@ -127,23 +191,15 @@ public class WebAuthnMetadataLoader {
 
         } catch (IOException e) {
             throw new RuntimeException("Failure to GET the endpoints for %s".formatted(endpoint), e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 
     private static X509Certificate loadCertificateFromURL(String url) {
-        try {
-            byte[] data = HttpClient.newHttpClient()
-                    .send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
-                            HttpResponse.BodyHandlers.ofByteArray())
-                    .body();
-            return CertificateUtil.generateX509Certificate(data);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        byte[] data = MetadataHttpClient.shared()
+                .send(HttpRequest.newBuilder(URI.create(url)).GET(),
+                        HttpResponse.BodyHandlers.ofByteArray())
+                .body();
+        return CertificateUtil.generateX509Certificate(data);
     }
 
     static record Endpoints(String status, List<String> result) {
@@ -155,27 +211,119 @@ public class WebAuthnMetadataLoader {
     }
 
     static MetadataBLOBBasedTrustAnchorRepository metadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, String endpoint) {
+        return metadataBLOBBasedTrustAnchorRepository(objectConverter, DEFAULT_CONFORMANCE_URL, endpoint);
+    }
+
+    static MetadataBLOBBasedTrustAnchorRepository metadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, String conformanceUrl, String endpoint) {
+        return metadataBLOBBasedTrustAnchorRepository(objectConverter, conformanceUrl, endpoint, defaultCRLCache());
+    }
 
-        X509Certificate mds3TestRootCertificate = loadCertificateFromURL("https://mds3.fido.tools/pki/MDS3ROOT.crt");
+    // the CRL cache is the caller's to share across loads, to refresh with start(...) and to close
+    public static MetadataBLOBBasedTrustAnchorRepository metadataBLOBBasedTrustAnchorRepository(ObjectConverter objectConverter, String conformanceUrl, String endpoint, CRLCache crlCache) {
+        return new MetadataBLOBBasedTrustAnchorRepository(conformanceMetadataBLOBProviders(objectConverter, conformanceUrl, endpoint, crlCache, true).toArray(MetadataBLOBProvider[]::new));
+    }
 
-        Endpoints endpoints = loadEndpoints(endpoint);
+    public static MetadataRefresher startMergedMetadataRefresher(ObjectConverter objectConverter, String endpoint, Path overrideBLOB, CRLCache crlCache, Duration refreshInterval) {
+        return startMergedMetadataRefresher(objectConverter, DEFAULT_CONFORMANCE_URL, endpoint, overrideBLOB, crlCache, refreshInterval);
+    }
+
+    // one index over the local override BLOB, when the file exists, and every conformance endpoint, where an authenticator listed
+    // by the override, even by a status report alone, is answered from the override; the index is the only copy of the
+    // entries, the providers keep no decoded BLOB and every refresh fetches them again
+    public static MetadataRefresher startMergedMetadataRefresher(ObjectConverter objectConverter, String conformanceUrl, String endpoint, Path overrideBLOB,
+                                                                 CRLCache crlCache, Duration refreshInterval) {
+        ofNullable(overrideBLOB).orElseThrow(() -> new IllegalArgumentException("overrideBLOB must not be null"));
+        List<MetadataBLOBProvider> metadataBLOBProviders = new ArrayList<>();
+        if (Files.isRegularFile(overrideBLOB)) {
+            metadataBLOBProviders.add(new UnretainedLocalFileMetadataBLOBProvider(objectConverter, overrideBLOB));
+        }
+        metadataBLOBProviders.addAll(conformanceMetadataBLOBProviders(objectConverter, conformanceUrl, endpoint, crlCache, false));
 
-        MetadataBLOBProvider[] fidoMDS3MetadataBLOBProviders = endpoints
-                .result()
-                .stream()
-                .parallel()
-                .<MetadataBLOBProvider>mapMulti((url, downstream) -> {
-                    try {
-                        FidoMDS3MetadataBLOBProvider fidoMDS3MetadataBLOBProvider = new FidoMDS3MetadataBLOBProvider(objectConverter, url, mds3TestRootCertificate);
-                        fidoMDS3MetadataBLOBProvider.setRevocationCheckEnabled(true);
-                        fidoMDS3MetadataBLOBProvider.provide();
-                        downstream.accept(fidoMDS3MetadataBLOBProvider);
-                    } catch (RuntimeException e) {
-                        logger.warn("Failed to provide metadataBLOB from %s".formatted(url), e);
-                    }
-                })
-                .toArray(MetadataBLOBProvider[]::new);
-        return new MetadataBLOBBasedTrustAnchorRepository(fidoMDS3MetadataBLOBProviders);
+        MetadataRefresher metadataRefresher = new MetadataRefresher(new RefreshableTrustAnchorRepository(), metadataBLOBProviders.toArray(MetadataBLOBProvider[]::new));
+        metadataRefresher.setPrecedence(TrustAnchorIndex.Precedence.FIRST_SOURCE);
+        metadataRefresher.refresh();
+        metadataRefresher.start(refreshInterval);
+
+        return metadataRefresher;
+    }
+
+    // a CRL cache for the conformance loads to share, kept under the cache directory and refreshed ahead of each nextUpdate
+    // by a daemon thread until it is closed
+    public static CRLCache startCRLCache(Path cacheDirectory) {
+        CRLCache crlCache = new CRLCache(MetadataHttpClient.shared(), ofNullable(cacheDirectory)
+                .orElseThrow(() -> new IllegalArgumentException("cacheDirectory must not be null"))
+                .resolve(CRL_DIRECTORY_NAME));
+        crlCache.start(CRL_REFRESH_INTERVAL);
+        return crlCache;
     }
 
+    // the CRLs of a load without its own cache are kept under the default cache directory and fetched when a provide finds them
+    // missing or stale, nothing refreshes them in the background
+    private static CRLCache defaultCRLCache() {
+        return new CRLCache(MetadataHttpClient.shared(), DEFAULT_CACHE_DIRECTORY.resolve(CRL_DIRECTORY_NAME));
+    }
+
+    // a retained provider keeps its decoded BLOB for MetadataBLOBBasedTrustAnchorRepository, which asks for it on every lookup
+    private static List<MetadataBLOBProvider> conformanceMetadataBLOBProviders(ObjectConverter objectConverter, String conformanceUrl, String endpoint, CRLCache crlCache,
+                                                                               boolean retained) {
+        ofNullable(crlCache).orElseThrow(() -> new IllegalArgumentException("crlCache must not be null"));
+
+        X509Certificate mds3TestRootCertificate = loadCertificateFromURL(URI.create(conformanceUrl).resolve("pki/MDS3ROOT.crt").toString());
+
+        Endpoints endpoints = loadEndpoints(conformanceUrl, endpoint);
+
+        Set<TrustAnchor> trustAnchors = Set.of(new TrustAnchor(mds3TestRootCertificate, null));
+
+        CRLCacheCertPathChecker certPathChecker = new CRLCacheCertPathChecker(crlCache);
+
+        // each endpoint is fetched on its own virtual thread, bounded, timed out and retried by the pipeline
+        MetadataFetchReport<MetadataBLOBProvider> report = new MetadataFetchPipeline()
+                .fetchAll(endpoints.result(), url -> {
+                    FidoMDS3MetadataBLOBProvider fidoMDS3MetadataBLOBProvider = retained
+                            ? new FidoMDS3MetadataBLOBProvider(objectConverter, url, MetadataHttpClient.shared(), trustAnchors)
+                            : new UnretainedFidoMDS3MetadataBLOBProvider(objectConverter, url, MetadataHttpClient.shared(), trustAnchors);
+                    fidoMDS3MetadataBLOBProvider.setRevocationCheckEnabled(true);
+                    fidoMDS3MetadataBLOBProvider.setCertPathChecker(certPathChecker);
+                    // fetched here, so an endpoint failing to provide a valid BLOB is retried and then left out
+                    fidoMDS3MetadataBLOBProvider.refresh();
+                    return fidoMDS3MetadataBLOBProvider;
+                });
+
+        report.failed().forEach(outcome -> logger.warn("Failed to provide metadataBLOB from %s".formatted(outcome.endpoint()), outcome.failure()));
+
+        return report.values();
+    }
+
+    // hands the BLOB fetched by refresh() to the next provide() and forgets it, later ones fetch again
+    private static final class UnretainedFidoMDS3MetadataBLOBProvider extends FidoMDS3MetadataBLOBProvider {
+
+        private final AtomicReference<MetadataBLOB> fetched = new AtomicReference<>();
+
+        private UnretainedFidoMDS3MetadataBLOBProvider(ObjectConverter objectConverter, String url, MetadataHttpClient httpClient, Set<TrustAnchor> trustAnchors) {
+            super(objectConverter, url, httpClient, trustAnchors);
+        }
+
+        @Override
+        public void refresh() {
+            fetched.set(doProvide());
+        }
+
+        @Override
+        public MetadataBLOB provide() {
+            MetadataBLOB metadataBLOB = fetched.getAndSet(null);
+            return metadataBLOB != null ? metadataBLOB : doProvide();
+        }
+    }
+
+    private static final class UnretainedLocalFileMetadataBLOBProvider extends LocalFileMetadataBLOBProvider {
+
+        private UnretainedLocalFileMetadataBLOBProvider(ObjectConverter objectConverter, Path path) {
+            super(objectConverter, path);
+        }
+
+        @Override
+        public MetadataBLOB provide() {
+            return doProvide();
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package com.github.dearrudam.webauthn4j.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// keeps everything in process, e.g. to be scraped by a health endpoint or bridged to a metrics registry
+public final class InMemoryWebAuthnMetrics implements WebAuthnMetrics {
+
+
+    private final Map<Verification, Map<String, LatencyHistogram>> verifications = new EnumMap<>(Verification.class);
+    private final Map<Verification, Map<Class<?>, LongAdder>> verificationFailures = new EnumMap<>(Verification.class);
+    private final Map<MetadataOperation, LatencyHistogram> metadataOperations = new EnumMap<>(MetadataOperation.class);
+    private final Map<MetadataOperation, LongAdder> metadataFailures = new EnumMap<>(MetadataOperation.class);
+    private final AtomicLongArray metadataValues = new AtomicLongArray(MetadataValue.values().length);
+    private final Map<Cache, LongAdder> cacheHits = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> cacheMisses = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> cacheEvictions = new EnumMap<>(Cache.class);
+
+    public InMemoryWebAuthnMetrics() {
+        for (Verification verification : Verification.values()) {
+            verifications.put(verification, new ConcurrentHashMap<>());
+            verificationFailures.put(verification, new ConcurrentHashMap<>());
+        }
+        for (MetadataOperation operation : MetadataOperation.values()) {
+            metadataOperations.put(operation, new LatencyHistogram());
+            metadataFailures.put(operation, new LongAdder());
+        }
+        for (Cache cache : Cache.values()) {
+            cacheHits.put(cache, new LongAdder());
+            cacheMisses.put(cache, new LongAdder());
+            cacheEvictions.put(cache, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordVerification(Verification verification, String format, long elapsedNanos, Throwable failure) {
+        // the lambdas do not capture anything, so a known format costs two lookups and no allocation
+        Map<String, LatencyHistogram> histograms = verifications.get(verification);
+        String key = format == null ? UNKNOWN_FORMAT : format;
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(key, ignored -> new LatencyHistogram());
+        }
+        histogram.record(elapsedNanos);
+        if (failure != null) {
+            Map<Class<?>, LongAdder> failures = verificationFailures.get(verification);
+            LongAdder counter = failures.get(failure.getClass());
+            if (counter == null) {
+                counter = failures.computeIfAbsent(failure.getClass(), ignored -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void recordMetadata(MetadataOperation operation, long elapsedNanos, Throwable failure) {
+        metadataOperations.get(operation).record(elapsedNanos);
+        if (failure != null) {
+            metadataFailures.get(operation).increment();
+        }
+    }
+
+    @Override
+    public void recordMetadataValue(MetadataValue value, long amount) {
+        metadataValues.set(value.ordinal(), amount);
+    }
+
+    @Override
+    public void recordCacheLookup(Cache cache, boolean hit) {
+        (hit ? cacheHits : cacheMisses).get(cache).increment();
+    }
+
+    @Override
+    public void recordCacheEviction(Cache cache) {
+        cacheEvictions.get(cache).increment();
+    }
+
+    public Map<String, LatencyHistogram> getVerifications(Verification verification) {
+        return Collections.unmodifiableMap(new TreeMap<>(verifications.get(verification)));
+    }
+
+    // failure counts by exception simple name, e.g. BadSignatureException=3
+    public Map<String, Long> getVerificationFailures(Verification verification) {
+        Map<String, Long> failures = new TreeMap<>();
+        verificationFailures.get(verification).forEach((type, counter) -> failures.merge(type.getSimpleName(), counter.sum(), Long::sum));
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public LatencyHistogram getMetadataOperation(MetadataOperation operation) {
+        return metadataOperations.get(operation);
+    }
+
+    public long getMetadataFailures(MetadataOperation operation) {
+        return metadataFailures.get(operation).sum();
+    }
+
+    // the last reported value
+    public long getMetadataValue(MetadataValue value) {
+        return metadataValues.get(value.ordinal());
+    }
+
+    public long getCacheHits(Cache cache) {
+        return cacheHits.get(cache).sum();
+    }
+
+    public long getCacheMisses(Cache cache) {
+        return cacheMisses.get(cache).sum();
+    }
+
+    public long getCacheEvictions(Cache cache) {
+        return cacheEvictions.get(cache).sum();
+    }
+
+    // hits over lookups, 0 before the first lookup
+    public double getCacheHitRatio(Cache cache) {
+        long hits = getCacheHits(cache);
+        long lookups = hits + getCacheMisses(cache);
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
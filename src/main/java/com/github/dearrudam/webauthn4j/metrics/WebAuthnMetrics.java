@@ -0,0 +1,51 @@
+package com.github.dearrudam.webauthn4j.metrics;
+
+// called on the registration hot path, so implementations receive only primitives, enums and, as the format, one of the
+// constant names of the known attestation formats or UNKNOWN_FORMAT, and must neither block nor allocate per call;
+// NOOP is never wrapped around the verifiers at all
+public interface WebAuthnMetrics {
+
+    String UNKNOWN_FORMAT = "unknown";
+
+    WebAuthnMetrics NOOP = new WebAuthnMetrics() {
+    };
+
+    default void recordVerification(Verification verification, String format, long elapsedNanos, Throwable failure) {
+    }
+
+    default void recordMetadata(MetadataOperation operation, long elapsedNanos, Throwable failure) {
+    }
+
+    default void recordMetadataValue(MetadataValue value, long amount) {
+    }
+
+    default void recordCacheLookup(Cache cache, boolean hit) {
+    }
+
+    default void recordCacheEviction(Cache cache) {
+    }
+
+    enum Verification {
+        ATTESTATION_STATEMENT,
+        CERT_PATH_TRUSTWORTHINESS,
+        SELF_ATTESTATION_TRUSTWORTHINESS,
+        CUSTOM_REGISTRATION
+    }
+
+    enum MetadataOperation {
+        FETCH,
+        PARSE,
+        INDEX
+    }
+
+    enum MetadataValue {
+        BLOB_SIZE,
+        ENTRIES,
+        CHANGED_ENTRIES,
+        TRUST_ANCHORS
+    }
+
+    enum Cache {
+        CERTIFICATE
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.MetadataBLOBSnapshot;
+import com.github.dearrudam.webauthn4j.mds.StartupMetadataBLOBs;
+import com.github.dearrudam.webauthn4j.mds.WebAuthnMetadataLoader;
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialParameters;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// time from JVM start to the first verified registration, trust anchors included, without any network access:
+//   prepare <directory>          writes the registrations and the MDS snapshot, in a JVM of its own so nothing is warm
+//   measure <directory> <label>  builds a warmed up manager and verifies them, once to train the AppCDS archive
+//                                (-XX:ArchiveClassesAtExit) and then with and without it (-XX:SharedArchiveFile)
+public final class StartupProbe {
+
+    static final List<String> FORMATS = List.of("packed", "android-key", "packed-self", "none");
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("usage: StartupProbe prepare <directory> | measure <directory> <label>");
+        }
+        Path directory = Path.of(args[1]);
+        switch (args[0]) {
+            case "prepare" -> prepare(directory);
+            case "measure" -> measure(directory, args.length > 2 ? args[2] : "startup");
+            default -> throw new IllegalArgumentException("Unknown command %s".formatted(args[0]));
+        }
+    }
+
+    private static void prepare(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+        for (String format : FORMATS) {
+            TestRegistrationPayloads.Payload payload = payloads.create(format);
+            Files.write(directory.resolve(format + ".attestationObject"), payload.registrationRequest().getAttestationObject());
+            Files.write(directory.resolve(format + ".clientDataJSON"), payload.registrationRequest().getClientDataJSON());
+            Files.write(directory.resolve(format + ".challenge"), payload.registrationParameters().getServerProperty().getChallenge().getValue());
+        }
+        StartupMetadataBLOBs.writeSnapshot(directory, TestRegistrationPayloads.AUTHENTICATOR_AAGUID,
+                payloads.trustAnchorRepository().find(TestRegistrationPayloads.AUTHENTICATOR_AAGUID).iterator().next().getTrustedCert());
+    }
+
+    private static void measure(Path directory, String label) {
+        ObjectConverter objectConverter = new ObjectConverter();
+        MetadataBLOBSnapshot trustAnchorRepository = WebAuthnMetadataLoader.getSnapshotBasedTrustAnchorRepository(objectConverter, directory);
+
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withObjectConverter(() -> objectConverter)
+                .withDefaultAttestationStatementVerifiers()
+                .withCertPathTrustworthinessVerifier(converter -> new DefaultCertPathTrustworthinessVerifier(trustAnchorRepository))
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .withWarmUp()
+                .build();
+        long ready = System.currentTimeMillis();
+
+        long firstVerified = 0;
+        for (String format : FORMATS) {
+            registrationManager.verify(
+                    new RegistrationRequest(read(directory, format + ".attestationObject"), read(directory, format + ".clientDataJSON")),
+                    new RegistrationParameters(
+                            new ServerProperty(new Origin("https://" + TestRegistrationPayloads.RP_ID), TestRegistrationPayloads.RP_ID,
+                                    new DefaultChallenge(read(directory, format + ".challenge"))),
+                            List.of(new PublicKeyCredentialParameters(PublicKeyCredentialType.PUBLIC_KEY, COSEAlgorithmIdentifier.ES256)),
+                            false,
+                            true));
+            if (firstVerified == 0) {
+                firstVerified = System.currentTimeMillis();
+            }
+        }
+        long allVerified = System.currentTimeMillis();
+
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.printf("%s: ready %d ms, first verified registration %d ms, all %d formats %d ms after JVM start%n",
+                label, ready - jvmStart, firstVerified - jvmStart, FORMATS.size(), allVerified - jvmStart);
+    }
+
+    private static byte[] read(Path directory, String fileName) {
+        try {
+            return Files.readAllBytes(directory.resolve(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
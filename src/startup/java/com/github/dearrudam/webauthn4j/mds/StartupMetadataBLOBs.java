@@ -0,0 +1,42 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+
+import java.nio.file.Path;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+// the snapshot the startup probe loads its trust anchors from, about as many entries as the MDS3 BLOB
+public final class StartupMetadataBLOBs {
+
+    static final int ENTRIES = 1500;
+
+    private StartupMetadataBLOBs() {
+    }
+
+    public static void writeSnapshot(Path cacheDirectory, AAGUID aaguid, X509Certificate attestationRootCertificate) {
+        List<ObjectNode> entries = new ArrayList<>(ENTRIES);
+        for (int i = 1; i < ENTRIES; i++) {
+            entries.add(TestMetadataBLOBs.entry(new UUID(i, i).toString(), "FIDO_CERTIFIED"));
+        }
+        ObjectNode entry = TestMetadataBLOBs.entry(aaguid.toString(), "FIDO_CERTIFIED");
+        try {
+            ((ObjectNode) entry.get("metadataStatement")).putArray("attestationRootCertificates")
+                    .add(Base64.getEncoder().encodeToString(attestationRootCertificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("attestationRootCertificate can not be encoded", e);
+        }
+        entries.add(entry);
+
+        String blob = TestMetadataBLOBs.blob(1, LocalDate.of(2099, 1, 1), entries);
+        MetadataBLOBSnapshot.write(new MetadataBLOBFactory(new ObjectConverter()).parse(blob), cacheDirectory.resolve(WebAuthnMetadataLoader.SNAPSHOT_FILE_NAME));
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.RefreshableTrustAnchorRepository;
+import com.github.dearrudam.webauthn4j.mds.TrustAnchorIndex;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncRegistrationVerifierTest {
+
+    private final TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+    private final CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository());
+
+    @Test
+    void verify_startsOnceTheTrustAnchorsAreLoaded() throws Exception {
+        RefreshableTrustAnchorRepository repository = new RefreshableTrustAnchorRepository();
+        AsyncRegistrationVerifier verifier = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> certPathTrustworthinessVerifier)
+                .buildAsync()
+                .awaiting(repository.whenLoaded());
+        TestRegistrationPayloads.Payload payload = payloads.create("packed");
+
+        CompletableFuture<RegistrationData> verification = verifier.verify(payload.registrationRequest(), payload.registrationParameters()).toCompletableFuture();
+        Thread.sleep(50);
+        assertThat(verification).isNotDone();
+        assertThat(verifier.isReady()).isFalse();
+
+        repository.swap(TrustAnchorIndex.EMPTY);
+
+        assertThat(verification.get(5, TimeUnit.SECONDS).getAttestationObject().getFormat()).isEqualTo("packed");
+        assertThat(verifier.isReady()).isTrue();
+    }
+
+    @Test
+    void verifyAll_boundsTheRegistrationsInFlightToASlowSubscriber() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AsyncRegistrationVerifier verifier = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> (aaguid, attestationStatement, timestamp) -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                        certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                })
+                .buildAsync();
+        TestRegistrationPayloads.Payload packed = payloads.create("packed");
+        TestRegistrationPayloads.Payload none = payloads.create("none");
+
+        List<BatchRegistrationVerifier.Outcome> outcomes = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        try (SubmissionPublisher<BatchRegistrationVerifier.Registration> registrations = new SubmissionPublisher<>()) {
+            verifier.verifyAll(registrations, 2).subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(BatchRegistrationVerifier.Outcome outcome) {
+                    outcomes.add(outcome);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable failure) {
+                    completed.completeExceptionally(failure);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.complete(null);
+                }
+            });
+            for (int i = 0; i < 20; i++) {
+                registrations.submit(new BatchRegistrationVerifier.Registration(packed.registrationRequest(), packed.registrationParameters()));
+            }
+            registrations.submit(new BatchRegistrationVerifier.Registration(
+                    new RegistrationRequest(new byte[]{0x01, 0x02}, none.registrationRequest().getClientDataJSON()),
+                    none.registrationParameters()));
+        }
+
+        completed.get(10, TimeUnit.SECONDS);
+        assertThat(outcomes).hasSize(21);
+        assertThat(outcomes).filteredOn(BatchRegistrationVerifier.Outcome::isSuccess).hasSize(20);
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void verifyAll_signalsTheRegistrationsOneAtATimeAndNeverParksAFixedSizeExecutorOnALaggingSubscriber() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncRegistrationVerifier verifier = WebAuthnRegistrationManagerConfigurerVersion2
+                    .configure()
+                    .withCertPathTrustworthinessVerifier(objectConverter -> certPathTrustworthinessVerifier)
+                    .withDefaultSelfAttestationTrustworthinessVerifier()
+                    .withNoCustomRegistrationVerifiers()
+                    .buildAsync(executor);
+            TestRegistrationPayloads.Payload packed = payloads.create("packed");
+            Registrations registrations = new Registrations(new BatchRegistrationVerifier.Registration(packed.registrationRequest(), packed.registrationParameters()), 300);
+
+            List<BatchRegistrationVerifier.Outcome> outcomes = new CopyOnWriteArrayList<>();
+            CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+            CompletableFuture<Void> completed = new CompletableFuture<>();
+            verifier.verifyAll(registrations, 4).subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscribed.complete(subscription);
+                }
+
+                @Override
+                public void onNext(BatchRegistrationVerifier.Outcome outcome) {
+                    outcomes.add(outcome);
+                }
+
+                @Override
+                public void onError(Throwable failure) {
+                    completed.completeExceptionally(failure);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.complete(null);
+                }
+            });
+
+            // the subscriber has asked for nothing, so the verifications run until the buffer is full and then stop asking
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registrations.emitted.get() < Flow.defaultBufferSize() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            CompletableFuture.runAsync(() -> {}, executor).get(5, TimeUnit.SECONDS);
+            assertThat(registrations.emitted.get()).isBetween(Flow.defaultBufferSize(), Flow.defaultBufferSize() + 4);
+            assertThat(outcomes).isEmpty();
+
+            subscribed.get(5, TimeUnit.SECONDS).request(Long.MAX_VALUE);
+
+            completed.get(30, TimeUnit.SECONDS);
+            assertThat(outcomes).hasSize(300).allMatch(BatchRegistrationVerifier.Outcome::isSuccess);
+            assertThat(registrations.overlappingRequests.get()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // emits on the thread that requests, and counts the requests made while another one is still running
+    private static final class Registrations implements Flow.Publisher<BatchRegistrationVerifier.Registration> {
+
+        private final BatchRegistrationVerifier.Registration registration;
+        private final int count;
+        private final AtomicInteger emitted = new AtomicInteger();
+        private final AtomicInteger overlappingRequests = new AtomicInteger();
+        private final AtomicBoolean requesting = new AtomicBoolean();
+
+        Registrations(BatchRegistrationVerifier.Registration registration, int count) {
+            this.registration = registration;
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super BatchRegistrationVerifier.Registration> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (!requesting.compareAndSet(false, true)) {
+                        overlappingRequests.incrementAndGet();
+                    }
+                    try {
+                        Thread.sleep(1);
+                        for (long i = 0; i < n && emitted.get() < count; i++) {
+                            emitted.incrementAndGet();
+                            subscriber.onNext(registration);
+                        }
+                        if (emitted.get() == count) {
+                            subscriber.onComplete();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        requesting.set(false);
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+}
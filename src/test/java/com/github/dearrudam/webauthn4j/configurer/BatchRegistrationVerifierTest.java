@@ -0,0 +1,128 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.TestCertificates;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.AttestationCertificatePath;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.exception.CertificateException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchRegistrationVerifierTest {
+
+    private final TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger certPathVerifications = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void verifyAll_returnsTheOutcomesInInputOrder() {
+        BatchRegistrationVerifier batchRegistrationVerifier = batchRegistrationVerifier(countingVerifier(new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository())));
+        List<BatchRegistrationVerifier.Registration> registrations = new ArrayList<>();
+        for (String format : List.of("packed", "none", "fido-u2f", "android-key", "packed-self")) {
+            registrations.add(registration(payloads.create(format)));
+        }
+        TestRegistrationPayloads.Payload payload = payloads.create("none");
+        registrations.add(2, new BatchRegistrationVerifier.Registration(
+                new RegistrationRequest(new byte[]{0x01, 0x02}, payload.registrationRequest().getClientDataJSON()),
+                payload.registrationParameters()));
+
+        List<BatchRegistrationVerifier.Outcome> outcomes = batchRegistrationVerifier.verifyAll(registrations);
+
+        assertThat(outcomes).extracting(BatchRegistrationVerifier.Outcome::registration).containsExactlyElementsOf(registrations);
+        assertThat(outcomes).extracting(BatchRegistrationVerifier.Outcome::isSuccess).containsExactly(true, true, false, true, true, true);
+        assertThat(outcomes.get(4).registrationData().getAttestationObject().getFormat()).isEqualTo("android-key");
+    }
+
+    @Test
+    void verifyAll_verifiesEachDistinctCertificatePathOnce() {
+        BatchRegistrationVerifier batchRegistrationVerifier = batchRegistrationVerifier(countingVerifier(new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository())));
+        BatchRegistrationVerifier.Registration packed = registration(payloads.create("packed"));
+        BatchRegistrationVerifier.Registration fidoU2F = registration(payloads.create("fido-u2f"));
+
+        List<BatchRegistrationVerifier.Outcome> outcomes = batchRegistrationVerifier.verifyAll(
+                List.of(packed, fidoU2F, packed, packed, fidoU2F, packed, packed, fidoU2F));
+
+        assertThat(outcomes).allMatch(BatchRegistrationVerifier.Outcome::isSuccess);
+        assertThat(certPathVerifications).hasValue(2);
+
+        batchRegistrationVerifier.verifyAll(List.of(packed, fidoU2F));
+        assertThat(certPathVerifications).as("outcomes are not kept across batches").hasValue(4);
+    }
+
+    @Test
+    void verifyAll_reportsARejectedCertificatePathOnEveryRegistrationSharingIt() {
+        BatchRegistrationVerifier batchRegistrationVerifier = batchRegistrationVerifier(countingVerifier((aaguid, attestationStatement, timestamp) -> {
+            throw new CertificateException("untrusted");
+        }));
+        BatchRegistrationVerifier.Registration packed = registration(payloads.create("packed"));
+
+        List<BatchRegistrationVerifier.Outcome> outcomes = batchRegistrationVerifier.verifyAll(List.of(packed, packed, packed));
+
+        assertThat(outcomes).extracting(BatchRegistrationVerifier.Outcome::failure)
+                .allSatisfy(failure -> assertThat(failure).isInstanceOf(CertificateException.class).hasMessage("untrusted"))
+                .as("each registration gets its own exception").doesNotHaveDuplicates();
+        assertThat(certPathVerifications).hasValue(1);
+    }
+
+    @Test
+    void verify_sharesAnOutcomeOnlyWithinTheValidityWindowOfTheCertificatePath() {
+        DeduplicatingCertPathTrustworthinessVerifier certPathTrustworthinessVerifier =
+                new DeduplicatingCertPathTrustworthinessVerifier(countingVerifier((aaguid, attestationStatement, timestamp) -> {
+                }));
+        X509Certificate certificate = TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Deduplicated");
+        CertificateBaseAttestationStatement attestationStatement = mock(CertificateBaseAttestationStatement.class);
+        when(attestationStatement.getX5c()).thenReturn(new AttestationCertificatePath(List.of(certificate)));
+        Instant notBefore = certificate.getNotBefore().toInstant();
+        Instant notAfter = certificate.getNotAfter().toInstant();
+
+        certPathTrustworthinessVerifier.inBatch(new ConcurrentHashMap<>(), () -> {
+            certPathTrustworthinessVerifier.verify(AAGUID.NULL, attestationStatement, notBefore);
+            certPathTrustworthinessVerifier.verify(AAGUID.NULL, attestationStatement, notBefore.plusSeconds(60));
+            certPathTrustworthinessVerifier.verify(AAGUID.NULL, attestationStatement, notAfter);
+            certPathTrustworthinessVerifier.verify(AAGUID.NULL, attestationStatement, notAfter.plusSeconds(1));
+            certPathTrustworthinessVerifier.verify(AAGUID.NULL, attestationStatement, notAfter.plusSeconds(60));
+            return null;
+        });
+
+        assertThat(certPathVerifications).as("once while the certificate is valid, once after it expired").hasValue(2);
+    }
+
+    private BatchRegistrationVerifier batchRegistrationVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        return WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> certPathTrustworthinessVerifier)
+                .buildBatch(executor);
+    }
+
+    private CertPathTrustworthinessVerifier countingVerifier(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier) {
+        return (aaguid, attestationStatement, timestamp) -> {
+            certPathVerifications.incrementAndGet();
+            certPathTrustworthinessVerifier.verify(aaguid, attestationStatement, timestamp);
+        };
+    }
+
+    private static BatchRegistrationVerifier.Registration registration(TestRegistrationPayloads.Payload payload) {
+        return new BatchRegistrationVerifier.Registration(payload.registrationRequest(), payload.registrationParameters());
+    }
+}
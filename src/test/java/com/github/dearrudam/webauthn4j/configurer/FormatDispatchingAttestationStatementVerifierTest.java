@@ -0,0 +1,89 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.exception.BadAttestationStatementException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FormatDispatchingAttestationStatementVerifierTest {
+
+    private final TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+    private final Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction =
+            objectConverter -> new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository());
+
+    @Test
+    void verify_dispatchesEveryDefaultFormat() {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .build();
+
+        for (String format : List.of("packed", "packed-self", "fido-u2f", "android-key", "none")) {
+            TestRegistrationPayloads.Payload payload = payloads.create(format);
+            assertThatCode(() -> registrationManager.verify(payload.registrationRequest(), payload.registrationParameters()))
+                    .as(format)
+                    .doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void withAttestationFormats_rejectsTheFormatsThatAreNotEnabled() {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed", "none")
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .build();
+        TestRegistrationPayloads.Payload packed = payloads.create("packed");
+        TestRegistrationPayloads.Payload fidoU2F = payloads.create("fido-u2f");
+
+        assertThatCode(() -> registrationManager.verify(packed.registrationRequest(), packed.registrationParameters()))
+                .doesNotThrowAnyException();
+        assertThatThrownBy(() -> registrationManager.verify(fidoU2F.registrationRequest(), fidoU2F.registrationParameters()))
+                .isInstanceOf(BadAttestationStatementException.class);
+    }
+
+    @Test
+    void withAttestationFormats_rejectsUnknownFormats() {
+        assertThatThrownBy(() -> WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed", "fido-u3f"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fido-u3f");
+    }
+
+    @Test
+    void buildShared_sharesTheManagerOfTheSameFormats() {
+        WebAuthnRegistrationManager first = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed", "none")
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .buildShared();
+
+        assertThat(WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("none", "packed")
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .buildShared())
+                .isSameAs(first);
+        assertThat(WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed")
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .buildShared())
+                .isNotSameAs(first);
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.exception.CertificateException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentedVerifiersTest {
+
+    private final TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+    private final InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+
+    @Test
+    void withMetrics_timesEveryVerifierPerAttestationFormat() {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository()))
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withCustomRegistrationVerifiers(objectConverter -> List.of(registrationObject -> {
+                }))
+                .withMetrics(metrics)
+                .build();
+
+        for (String format : List.of("packed", "packed", "packed-self", "none")) {
+            TestRegistrationPayloads.Payload payload = payloads.create(format);
+            registrationManager.verify(payload.registrationRequest(), payload.registrationParameters());
+        }
+
+        assertThat(counts(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT)).containsExactlyInAnyOrderEntriesOf(Map.of("packed", 3L, "none", 1L));
+        assertThat(counts(WebAuthnMetrics.Verification.CERT_PATH_TRUSTWORTHINESS)).containsExactlyInAnyOrderEntriesOf(Map.of("packed", 2L));
+        assertThat(counts(WebAuthnMetrics.Verification.SELF_ATTESTATION_TRUSTWORTHINESS)).containsExactlyInAnyOrderEntriesOf(Map.of("packed", 1L));
+        assertThat(counts(WebAuthnMetrics.Verification.CUSTOM_REGISTRATION)).containsExactlyInAnyOrderEntriesOf(Map.of("packed", 3L, "none", 1L));
+        assertThat(metrics.getVerifications(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT).get("packed").sum()).isPositive();
+    }
+
+    @Test
+    void withMetrics_countsTheFailuresByReason() {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> (aaguid, attestationStatement, timestamp) -> {
+                    throw new CertificateException("untrusted");
+                })
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .withMetrics(metrics)
+                .build();
+        TestRegistrationPayloads.Payload payload = payloads.create("fido-u2f");
+
+        assertThatThrownBy(() -> registrationManager.verify(payload.registrationRequest(), payload.registrationParameters()))
+                .isInstanceOf(CertificateException.class);
+
+        assertThat(counts(WebAuthnMetrics.Verification.CERT_PATH_TRUSTWORTHINESS)).containsExactlyInAnyOrderEntriesOf(Map.of("fido-u2f", 1L));
+        assertThat(metrics.getVerificationFailures(WebAuthnMetrics.Verification.CERT_PATH_TRUSTWORTHINESS)).containsExactlyInAnyOrderEntriesOf(Map.of("CertificateException", 1L));
+        assertThat(metrics.getVerificationFailures(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT)).isEmpty();
+    }
+
+    @Test
+    void withMetrics_leavesTheVerifiersUnwrappedWhenDisabled() {
+        List<AttestationStatementVerifier> attestationStatementVerifiers = SharedRegistrationComponents.defaultAttestationStatementVerifiers();
+
+        assertThat(InstrumentedVerifiers.attestationStatementVerifiers(attestationStatementVerifiers, WebAuthnMetrics.NOOP)).isSameAs(attestationStatementVerifiers);
+        assertThat(InstrumentedVerifiers.attestationStatementVerifiers(attestationStatementVerifiers, metrics)).hasSameSizeAs(attestationStatementVerifiers)
+                .doesNotContainAnyElementsOf(attestationStatementVerifiers);
+    }
+
+    @Test
+    void knownFormat_isTheConstantOfAParsedFormatAndUnknownOtherwise() {
+        String parsed = new String("packed".toCharArray());
+
+        assertThat(InstrumentedVerifiers.knownFormat(parsed)).isEqualTo("packed").isSameAs("packed");
+        assertThat(InstrumentedVerifiers.knownFormat("x-vendor")).isSameAs(WebAuthnMetrics.UNKNOWN_FORMAT);
+        assertThat(InstrumentedVerifiers.knownFormat(null)).isSameAs(WebAuthnMetrics.UNKNOWN_FORMAT);
+    }
+
+    private Map<String, Long> counts(WebAuthnMetrics.Verification verification) {
+        Map<String, Long> counts = new TreeMap<>();
+        metrics.getVerifications(verification).forEach((format, histogram) -> counts.put(format, histogram.count()));
+        return counts;
+    }
+}
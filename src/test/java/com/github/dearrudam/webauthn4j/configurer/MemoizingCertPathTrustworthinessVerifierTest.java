@@ -0,0 +1,123 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.RefreshableTrustAnchorRepository;
+import com.github.dearrudam.webauthn4j.mds.TestCertificates;
+import com.github.dearrudam.webauthn4j.mds.TrustAnchorIndex;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.statement.AttestationCertificatePath;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.data.attestation.statement.PackedAttestationStatement;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.exception.CertificateException;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MemoizingCertPathTrustworthinessVerifierTest {
+
+    private static final AAGUID AAGUID = new AAGUID(UUID.randomUUID());
+
+    private final CertPathTrustworthinessVerifier delegate = mock(CertPathTrustworthinessVerifier.class);
+    private final Clock clock = mock(Clock.class);
+    private final Instant now = Instant.now();
+
+    private final MemoizingCertPathTrustworthinessVerifier verifier = new MemoizingCertPathTrustworthinessVerifier(delegate, 2, Duration.ofMinutes(10), clock);
+
+    @Test
+    void verify_reusesTheVerdictForTheSameChainUntilItExpires() {
+        when(clock.instant()).thenReturn(now);
+        CertificateBaseAttestationStatement statement = statement();
+
+        verifier.verify(AAGUID, statement, now);
+        verifier.verify(AAGUID, statement(statement), now);
+        verify(delegate, times(1)).verify(any(), any(), any());
+
+        verifier.verify(new AAGUID(UUID.randomUUID()), statement, now);
+        verify(delegate, times(2)).verify(any(), any(), any());
+
+        when(clock.instant()).thenReturn(now.plus(Duration.ofMinutes(10)));
+        verifier.verify(AAGUID, statement, now);
+        verify(delegate, times(3)).verify(any(), any(), any());
+    }
+
+    @Test
+    void verify_remembersRejectedChainsForTheFailureTimeToLive() {
+        when(clock.instant()).thenReturn(now);
+        CertificateBaseAttestationStatement statement = statement();
+        CertificateException rejection = new CertificateException("untrusted");
+        doThrow(rejection).when(delegate).verify(any(), any(), any());
+
+        assertThatThrownBy(() -> verifier.verify(AAGUID, statement, now)).isSameAs(rejection);
+        assertThatThrownBy(() -> verifier.verify(AAGUID, statement, now))
+                .isInstanceOf(CertificateException.class).hasMessage("untrusted").hasCause(rejection).isNotSameAs(rejection);
+        verify(delegate, times(1)).verify(any(), any(), any());
+
+        when(clock.instant()).thenReturn(now.plus(MemoizingCertPathTrustworthinessVerifier.DEFAULT_FAILURE_TIME_TO_LIVE));
+        reset(delegate);
+        assertThatCode(() -> verifier.verify(AAGUID, statement, now)).as("a transient rejection is not pinned for the whole time to live")
+                .doesNotThrowAnyException();
+        verify(delegate, times(1)).verify(any(), any(), any());
+    }
+
+    @Test
+    void verify_evictsTheLeastRecentlyUsedChain() {
+        when(clock.instant()).thenReturn(now);
+        CertificateBaseAttestationStatement first = statement();
+        CertificateBaseAttestationStatement second = statement();
+
+        verifier.verify(AAGUID, first, now);
+        verifier.verify(AAGUID, second, now);
+        verifier.verify(AAGUID, first, now);
+        verifier.verify(AAGUID, statement(), now);
+        verifier.verify(AAGUID, first, now);
+        verify(delegate, times(3)).verify(any(), any(), any());
+
+        verifier.verify(AAGUID, second, now);
+        verify(delegate, times(4)).verify(any(), any(), any());
+    }
+
+    @Test
+    void invalidatedBy_forgetsTheVerdictsWhenTheTrustAnchorsAreRefreshed() {
+        RefreshableTrustAnchorRepository repository = new RefreshableTrustAnchorRepository();
+        MemoizingCertPathTrustworthinessVerifier verifier = MemoizingCertPathTrustworthinessVerifier.invalidatedBy(repository, delegate);
+        CertificateBaseAttestationStatement statement = statement();
+        doThrow(new CertificateException("untrusted")).when(delegate).verify(any(), any(), any());
+        assertThatThrownBy(() -> verifier.verify(AAGUID, statement, now)).isInstanceOf(CertificateException.class);
+        assertThatThrownBy(() -> verifier.verify(AAGUID, statement, now)).isInstanceOf(CertificateException.class);
+        verify(delegate, times(1)).verify(any(), any(), any());
+
+        repository.swap(TrustAnchorIndex.EMPTY);
+        reset(delegate);
+
+        assertThatCode(() -> verifier.verify(AAGUID, statement, now)).doesNotThrowAnyException();
+        verify(delegate, times(1)).verify(any(), any(), any());
+    }
+
+    private static CertificateBaseAttestationStatement statement() {
+        KeyPair keyPair = TestCertificates.ecKeyPair();
+        return new PackedAttestationStatement(COSEAlgorithmIdentifier.ES256, new byte[0],
+                new AttestationCertificatePath(List.of(TestCertificates.selfSigned(keyPair, "Attestation"))));
+    }
+
+    // a different statement instance carrying the same chain
+    private static CertificateBaseAttestationStatement statement(CertificateBaseAttestationStatement statement) {
+        return new PackedAttestationStatement(COSEAlgorithmIdentifier.ES256, new byte[]{0x01},
+                new AttestationCertificatePath(List.copyOf(statement.getX5c())));
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RegistrationManagerRegistryTest {
+
+    private static final TenantPolicy PACKED_ONLY = new TenantPolicy(List.of("packed"));
+    private static final TenantPolicy ANY_FORMAT = new TenantPolicy(List.of("packed", "android-key", "fido-u2f", "none"));
+
+    private final TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+    private final CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository());
+    private final AtomicInteger builds = new AtomicInteger();
+    private final Clock clock = mock(Clock.class);
+
+    private final RegistrationManagerRegistry<TenantPolicy> registry = new RegistrationManagerRegistry<>(policy -> {
+        builds.incrementAndGet();
+        return WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats(policy.attestationFormats().toArray(String[]::new))
+                .withCertPathTrustworthinessVerifier(objectConverter -> certPathTrustworthinessVerifier)
+                .build();
+    }, Duration.ofMinutes(30), clock);
+
+    @Test
+    void get_buildsOneManagerPerPolicyOnFirstUse() throws Exception {
+        when(clock.millis()).thenReturn(Instant.now().toEpochMilli());
+        assertThat(builds).hasValue(0);
+
+        List<Future<WebAuthnRegistrationManager>> registrationManagers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2_000; i++) {
+                String rpId = "tenant-%d.example.com".formatted(i);
+                TenantPolicy policy = i % 2 == 0 ? PACKED_ONLY : ANY_FORMAT;
+                registrationManagers.add(executor.submit(() -> registry.get(rpId, policy)));
+            }
+        }
+
+        assertThat(builds).hasValue(2);
+        assertThat(registry.getTenantCount()).isEqualTo(2_000);
+        assertThat(registry.getRegistrationManagerCount()).isEqualTo(2);
+        assertThat(registrationManagers.get(2).get()).isSameAs(registrationManagers.get(0).get());
+        assertThat(registrationManagers.get(1).get()).isNotSameAs(registrationManagers.get(0).get());
+
+        TestRegistrationPayloads.Payload payload = payloads.create("android-key");
+        assertThat(registry.get("tenant-1.example.com", ANY_FORMAT).verify(payload.registrationRequest(), payload.registrationParameters())
+                .getAttestationObject().getFormat()).isEqualTo("android-key");
+    }
+
+    @Test
+    void evictIdle_dropsIdleTenantsAndTheManagersNoTenantUses() {
+        Instant now = Instant.now();
+        when(clock.millis()).thenReturn(now.toEpochMilli());
+        registry.get("idle.example.com", PACKED_ONLY);
+        registry.get("busy.example.com", ANY_FORMAT);
+        registry.get("moved.example.com", PACKED_ONLY);
+        registry.get("moved.example.com", ANY_FORMAT);
+
+        when(clock.millis()).thenReturn(now.plus(Duration.ofMinutes(20)).toEpochMilli());
+        registry.get("busy.example.com", ANY_FORMAT);
+        assertThat(registry.evictIdle()).isZero();
+
+        when(clock.millis()).thenReturn(now.plus(Duration.ofMinutes(40)).toEpochMilli());
+        assertThat(registry.evictIdle()).isEqualTo(2);
+        assertThat(registry.getTenantCount()).isEqualTo(1);
+        assertThat(registry.getRegistrationManagerCount()).isEqualTo(1);
+
+        registry.get("idle.example.com", PACKED_ONLY);
+        assertThat(builds).hasValue(3);
+        registry.remove("busy.example.com");
+        assertThat(registry.getRegistrationManagerCount()).isEqualTo(1);
+    }
+
+    record TenantPolicy(List<String> attestationFormats) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.TestCertificates;
+import com.webauthn4j.anchor.TrustAnchorRepository;
+import com.webauthn4j.converter.AttestationObjectConverter;
+import com.webauthn4j.converter.AuthenticatorDataConverter;
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialParameters;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.statement.AndroidKeyAttestationStatement;
+import com.webauthn4j.data.attestation.statement.AttestationCertificatePath;
+import com.webauthn4j.data.attestation.statement.AttestationStatement;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.FIDOU2FAttestationStatement;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.data.attestation.statement.PackedAttestationStatement;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.data.extension.authenticator.RegistrationExtensionAuthenticatorOutput;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.util.MessageDigestUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.enumerated;
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.explicit;
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.integer;
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.octetString;
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.sequence;
+import static com.github.dearrudam.webauthn4j.mds.TestCertificates.set;
+
+// registration ceremonies generated in memory, the way an authenticator of each attestation format would answer
+final class TestRegistrationPayloads {
+
+    static final String RP_ID = "example.com";
+    static final Origin ORIGIN = new Origin("https://example.com");
+    static final AAGUID AUTHENTICATOR_AAGUID = new AAGUID("b93fd961-f2e6-462f-b122-82002247de78");
+
+    private static final String ANDROID_KEY_DESCRIPTION_OID = "1.3.6.1.4.1.11129.2.1.17";
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final KeyPair certificateAuthorityKeyPair = TestCertificates.ecKeyPair();
+    private final X509Certificate certificateAuthority = TestCertificates.certificateAuthority(certificateAuthorityKeyPair, "webauthn4j-studies Benchmark CA");
+    private final Random random = new Random(42);
+
+    record Payload(RegistrationRequest registrationRequest, RegistrationParameters registrationParameters) {
+    }
+
+    TrustAnchorRepository trustAnchorRepository() {
+        Set<TrustAnchor> trustAnchors = Set.of(new TrustAnchor(certificateAuthority, null));
+        return new TrustAnchorRepository() {
+            @Override
+            public Set<TrustAnchor> find(AAGUID aaguid) {
+                return trustAnchors;
+            }
+
+            @Override
+            public Set<TrustAnchor> find(byte[] attestationCertificateKeyIdentifier) {
+                return trustAnchors;
+            }
+        };
+    }
+
+    Payload create(String format) {
+        Challenge challenge = new DefaultChallenge(randomBytes(32));
+        byte[] clientDataJSON = new CollectedClientDataConverter(objectConverter)
+                .convertToBytes(new CollectedClientData(ClientDataType.WEBAUTHN_CREATE, challenge, ORIGIN, null));
+        byte[] clientDataHash = MessageDigestUtil.createSHA256().digest(clientDataJSON);
+        byte[] rpIdHash = MessageDigestUtil.createSHA256().digest(RP_ID.getBytes(StandardCharsets.UTF_8));
+
+        KeyPair credentialKeyPair = TestCertificates.ecKeyPair();
+        EC2COSEKey credentialPublicKey = EC2COSEKey.create(credentialKeyPair, COSEAlgorithmIdentifier.ES256);
+        byte[] credentialId = randomBytes(32);
+
+        AuthenticatorData<RegistrationExtensionAuthenticatorOutput> authenticatorData = new AuthenticatorData<>(
+                rpIdHash,
+                (byte) (AuthenticatorData.BIT_UP | AuthenticatorData.BIT_AT),
+                0,
+                new AttestedCredentialData(format.equals("fido-u2f") ? AAGUID.ZERO : AUTHENTICATOR_AAGUID, credentialId, credentialPublicKey));
+        byte[] signedData = concat(new AuthenticatorDataConverter(objectConverter).convert(authenticatorData), clientDataHash);
+
+        AttestationStatement attestationStatement = switch (format) {
+            case "none" -> new NoneAttestationStatement();
+            case "packed-self" -> new PackedAttestationStatement(
+                    COSEAlgorithmIdentifier.ES256,
+                    TestCertificates.sign(signedData, credentialKeyPair.getPrivate()),
+                    null);
+            case "packed" -> {
+                KeyPair attestationKeyPair = TestCertificates.ecKeyPair();
+                yield new PackedAttestationStatement(
+                        COSEAlgorithmIdentifier.ES256,
+                        TestCertificates.sign(signedData, attestationKeyPair.getPrivate()),
+                        new AttestationCertificatePath(List.of(issue(attestationKeyPair, TestCertificates.attestationName("Packed Authenticator")))));
+            }
+            case "fido-u2f" -> {
+                KeyPair attestationKeyPair = TestCertificates.ecKeyPair();
+                // U2F raw message format: 0x00 || rpIdHash || clientDataHash || credentialId || uncompressed public key
+                byte[] registrationData = concat(new byte[1], rpIdHash, clientDataHash, credentialId,
+                        new byte[]{0x04}, credentialPublicKey.getX(), credentialPublicKey.getY());
+                yield new FIDOU2FAttestationStatement(
+                        new AttestationCertificatePath(List.of(issue(attestationKeyPair, TestCertificates.name("U2F Authenticator")))),
+                        TestCertificates.sign(registrationData, attestationKeyPair.getPrivate()));
+            }
+            case "android-key" -> new AndroidKeyAttestationStatement(
+                    COSEAlgorithmIdentifier.ES256,
+                    TestCertificates.sign(signedData, credentialKeyPair.getPrivate()),
+                    new AttestationCertificatePath(List.of(TestCertificates.issue(
+                            credentialKeyPair.getPublic(),
+                            TestCertificates.name("Android Keystore Key"),
+                            certificateAuthority,
+                            certificateAuthorityKeyPair.getPrivate(),
+                            TestCertificates.extension(ANDROID_KEY_DESCRIPTION_OID, false, androidKeyDescription(clientDataHash))))));
+            default -> throw new IllegalArgumentException("Unsupported attestation format: %s".formatted(format));
+        };
+
+        byte[] attestationObject = new AttestationObjectConverter(objectConverter)
+                .convertToBytes(new AttestationObject(authenticatorData, attestationStatement));
+
+        return new Payload(
+                new RegistrationRequest(attestationObject, clientDataJSON),
+                new RegistrationParameters(
+                        new ServerProperty(ORIGIN, RP_ID, challenge),
+                        List.of(new PublicKeyCredentialParameters(PublicKeyCredentialType.PUBLIC_KEY, COSEAlgorithmIdentifier.ES256)),
+                        false,
+                        true));
+    }
+
+    private X509Certificate issue(KeyPair attestationKeyPair, byte[] subjectName) {
+        return TestCertificates.issue(attestationKeyPair.getPublic(), subjectName, certificateAuthority, certificateAuthorityKeyPair.getPrivate());
+    }
+
+    // KeyDescription with the attestation challenge, an origin of GENERATED and a SIGN purpose, both TEE enforced
+    private static byte[] androidKeyDescription(byte[] clientDataHash) {
+        return sequence(
+                integer(BigInteger.valueOf(3)),
+                enumerated(1),
+                integer(BigInteger.valueOf(4)),
+                enumerated(1),
+                octetString(clientDataHash),
+                octetString(new byte[0]),
+                sequence(),
+                sequence(
+                        explicit(1, set(integer(BigInteger.TWO))),
+                        explicit(702, integer(BigInteger.ZERO))));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.writeBytes(part);
+        }
+        return output.toByteArray();
+    }
+}
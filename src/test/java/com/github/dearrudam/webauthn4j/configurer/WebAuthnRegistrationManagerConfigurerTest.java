@@ -1,8 +1,26 @@
 package com.github.dearrudam.webauthn4j.configurer;
 
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.statement.AttestationType;
+import com.webauthn4j.verifier.CoreRegistrationObject;
+import com.webauthn4j.verifier.attestation.statement.AttestationStatementVerifier;
+import com.webauthn4j.verifier.attestation.statement.none.NoneAttestationStatementVerifier;
 import com.webauthn4j.verifier.attestation.trustworthiness.certpath.CertPathTrustworthinessVerifier;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 
@@ -31,4 +49,218 @@ class WebAuthnRegistrationManagerConfigurerTest {
                 .build())
                 .isNotNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void buildShared_returnsTheSameManagerForIdenticalConfigurations() {
+        Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction = objectConverter -> mock(CertPathTrustworthinessVerifier.class);
+
+        WebAuthnRegistrationManager first = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .buildShared();
+        WebAuthnRegistrationManager second = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .buildShared();
+
+        assertThat(second).isSameAs(first);
+        assertThat(WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .build())
+                .isNotSameAs(first);
+    }
+
+    @Test
+    void buildShared_sharesTheObjectConverterAcrossDifferentConfigurations() {
+        List<ObjectConverter> objectConverters = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = mock(CertPathTrustworthinessVerifier.class);
+            WebAuthnRegistrationManagerConfigurerVersion2
+                    .configure()
+                    .withCertPathTrustworthinessVerifier(objectConverter -> {
+                        objectConverters.add(objectConverter);
+                        return certPathTrustworthinessVerifier;
+                    })
+                    .buildShared();
+        }
+
+        assertThat(objectConverters).hasSize(2);
+        assertThat(objectConverters.get(1)).isSameAs(objectConverters.get(0));
+    }
+
+    @Test
+    void buildShared_sharesTheManagerOfEqualSimplestConfigurations() {
+        Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction = objectConverter -> mock(CertPathTrustworthinessVerifier.class);
+        Supplier<WebAuthnRegistrationManager> simplest = () -> SimplestWebAuthnRegistrationManagerConfigurer
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed", "none")
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .buildShared();
+
+        assertThat(simplest.get()).isSameAs(simplest.get());
+    }
+
+    @Test
+    void buildShared_sharesTheManagerOfTheKeyTheCallerPasses() {
+        CertPathTrustworthinessVerifier certPathTrustworthinessVerifier = mock(CertPathTrustworthinessVerifier.class);
+        WebAuthnRegistrationManager first = buildSharedCapturing(certPathTrustworthinessVerifier, "tenant-a");
+
+        assertThat(buildSharedCapturing(certPathTrustworthinessVerifier, "tenant-a")).isSameAs(first);
+        assertThat(buildSharedCapturing(certPathTrustworthinessVerifier, "tenant-b")).isNotSameAs(first);
+        assertThat(buildSharedCapturing(certPathTrustworthinessVerifier, null))
+                .as("a capturing lambda is a new object on every evaluation")
+                .isNotSameAs(buildSharedCapturing(certPathTrustworthinessVerifier, null));
+    }
+
+    @Test
+    void buildShared_getsNoObjectConverterWhenTheConfigurationIsAlreadyBuilt() {
+        AtomicInteger created = new AtomicInteger();
+        Supplier<ObjectConverter> objectConverterSupplier = () -> {
+            created.incrementAndGet();
+            return new ObjectConverter();
+        };
+        Function<ObjectConverter, CertPathTrustworthinessVerifier> certPathTrustworthinessVerifierFunction = objectConverter -> mock(CertPathTrustworthinessVerifier.class);
+        Supplier<WebAuthnRegistrationManager> simplest = () -> SimplestWebAuthnRegistrationManagerConfigurer
+                .configure()
+                .withObjectConverter(objectConverterSupplier)
+                .withDefaultAttestationStatementVerifiers()
+                .withCertPathTrustworthinessVerifier(certPathTrustworthinessVerifierFunction)
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .buildShared();
+
+        WebAuthnRegistrationManager first = simplest.get();
+
+        assertThat(simplest.get()).isSameAs(first);
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    void registrationManager_buildsAConfigurationOnceForRacingCallers() throws Exception {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> mock(CertPathTrustworthinessVerifier.class))
+                .build();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch racing = new CountDownLatch(1);
+        Object configuration = List.of("racing", new Object());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<WebAuthnRegistrationManager> builder = executor.submit(() -> SharedRegistrationComponents.registrationManager(configuration, () -> {
+                created.incrementAndGet();
+                building.countDown();
+                awaitQuietly(racing);
+                return registrationManager;
+            }));
+            building.await();
+            List<Future<WebAuthnRegistrationManager>> waiters = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                waiters.add(executor.submit(() -> SharedRegistrationComponents.registrationManager(configuration, () -> {
+                    created.incrementAndGet();
+                    return registrationManager;
+                })));
+            }
+            racing.countDown();
+
+            assertThat(builder.get()).isSameAs(registrationManager);
+            for (Future<WebAuthnRegistrationManager> waiter : waiters) {
+                assertThat(waiter.get()).isSameAs(registrationManager);
+            }
+        }
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    void registrationManager_forgetsTheLeastRecentlyUsedConfigurations() {
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> mock(CertPathTrustworthinessVerifier.class))
+                .build();
+        AtomicInteger created = new AtomicInteger();
+        Supplier<WebAuthnRegistrationManager> supplier = () -> {
+            created.incrementAndGet();
+            return registrationManager;
+        };
+
+        SharedRegistrationComponents.registrationManager(List.of("recent", 0), supplier);
+        SharedRegistrationComponents.registrationManager(List.of("eldest", 0), supplier);
+        for (int i = 1; i < SharedRegistrationComponents.MAX_SHARED_ENTRIES; i++) {
+            SharedRegistrationComponents.registrationManager(List.of("recent", 0), supplier);
+            SharedRegistrationComponents.registrationManager(List.of("other", i), supplier);
+        }
+        assertThat(created).hasValue(SharedRegistrationComponents.MAX_SHARED_ENTRIES + 1);
+
+        SharedRegistrationComponents.registrationManager(List.of("recent", 0), supplier);
+        assertThat(created).hasValue(SharedRegistrationComponents.MAX_SHARED_ENTRIES + 1);
+        SharedRegistrationComponents.registrationManager(List.of("eldest", 0), supplier);
+        assertThat(created).hasValue(SharedRegistrationComponents.MAX_SHARED_ENTRIES + 2);
+    }
+
+    private static WebAuthnRegistrationManager buildSharedCapturing(CertPathTrustworthinessVerifier certPathTrustworthinessVerifier, Object key) {
+        WebAuthnRegistrationManagerConfigurer.WebAuthnRegistrationManagerBuild build = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> certPathTrustworthinessVerifier)
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers();
+        return key == null ? build.buildShared() : build.buildShared(key);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void withWarmUp_verifiesAMadeUpRegistrationBeforeReturningTheManager() {
+        List<String> warmedUpFormats = new CopyOnWriteArrayList<>();
+        List<String> verifiedFormats = new CopyOnWriteArrayList<>();
+        InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+        AttestationStatementVerifier noneAttestationStatementVerifier = new NoneAttestationStatementVerifier();
+
+        WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationStatementVerifiers(List.of(new AttestationStatementVerifier() {
+                    @Override
+                    public AttestationType verify(CoreRegistrationObject registrationObject) {
+                        warmedUpFormats.add(registrationObject.getAttestationObject().getFormat());
+                        return noneAttestationStatementVerifier.verify(registrationObject);
+                    }
+
+                    @Override
+                    public boolean supports(CoreRegistrationObject registrationObject) {
+                        return noneAttestationStatementVerifier.supports(registrationObject);
+                    }
+                }))
+                .withCertPathTrustworthinessVerifier(objectConverter -> mock(CertPathTrustworthinessVerifier.class))
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withCustomRegistrationVerifiers(objectConverter -> List.of(registrationObject -> verifiedFormats.add(registrationObject.getAttestationObject().getFormat())))
+                .withMetrics(metrics)
+                .withWarmUp()
+                .build();
+
+        assertThat(warmedUpFormats).containsExactly("none");
+        assertThat(verifiedFormats).as("the custom registration verifiers do not see the made up registration").isEmpty();
+        assertThat(metrics.getVerifications(WebAuthnMetrics.Verification.ATTESTATION_STATEMENT)).as("nor do the metrics").isEmpty();
+        assertThat(WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withDefaultObjectConverter()
+                .withAttestationFormats("packed")
+                .withCertPathTrustworthinessVerifier(objectConverter -> mock(CertPathTrustworthinessVerifier.class))
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .withWarmUp()
+                .build())
+                .as("a manager rejecting the made up registration is still returned")
+                .isNotNull();
+    }
+}
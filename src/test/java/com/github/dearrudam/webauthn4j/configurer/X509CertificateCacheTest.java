@@ -0,0 +1,90 @@
+package com.github.dearrudam.webauthn4j.configurer;
+
+import com.github.dearrudam.webauthn4j.mds.TestCertificates;
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.WebAuthnRegistrationManager;
+import com.webauthn4j.converter.AttestationObjectConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.statement.CertificateBaseAttestationStatement;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class X509CertificateCacheTest {
+
+    private final InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+
+    @Test
+    void withCertificateCache_parsesARepeatedAttestationCertificateOnce() {
+        TestRegistrationPayloads payloads = new TestRegistrationPayloads();
+        X509CertificateCache certificateCache = new X509CertificateCache(X509CertificateCache.DEFAULT_MAXIMUM_SIZE, metrics);
+        WebAuthnRegistrationManager registrationManager = WebAuthnRegistrationManagerConfigurerVersion2
+                .configure()
+                .withCertPathTrustworthinessVerifier(objectConverter -> new DefaultCertPathTrustworthinessVerifier(payloads.trustAnchorRepository()))
+                .withDefaultSelfAttestationTrustworthinessVerifier()
+                .withNoCustomRegistrationVerifiers()
+                .withCertificateCache(certificateCache)
+                .withWarmUp()
+                .build();
+        TestRegistrationPayloads.Payload payload = payloads.create("packed");
+
+        RegistrationData first = registrationManager.verify(payload.registrationRequest(), payload.registrationParameters());
+        RegistrationData second = registrationManager.verify(payload.registrationRequest(), payload.registrationParameters());
+
+        assertThat(attestationCertificate(second.getAttestationObject())).isSameAs(attestationCertificate(first.getAttestationObject()));
+        assertThat(certificateCache.size()).isEqualTo(1);
+        assertThat(metrics.getCacheMisses(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(1);
+        assertThat(metrics.getCacheHits(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(1);
+        assertThat(metrics.getCacheHitRatio(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(0.5);
+    }
+
+    @Test
+    void newObjectConverter_parsesThroughTheCacheAndLeavesOtherConvertersAlone() {
+        byte[] attestationObject = new TestRegistrationPayloads().create("packed").registrationRequest().getAttestationObject();
+        X509CertificateCache certificateCache = new X509CertificateCache(X509CertificateCache.DEFAULT_MAXIMUM_SIZE, metrics);
+
+        AttestationObjectConverter cachingConverter = new AttestationObjectConverter(certificateCache.newObjectConverter());
+        X509Certificate parsed = attestationCertificate(cachingConverter.convert(attestationObject));
+
+        assertThat(attestationCertificate(new AttestationObjectConverter(certificateCache.newObjectConverter()).convert(attestationObject))).isSameAs(parsed);
+        assertThat(certificateCache.size()).isEqualTo(1);
+        assertThat(metrics.getCacheMisses(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(1);
+        assertThat(metrics.getCacheHits(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(1);
+
+        assertThat(attestationCertificate(new AttestationObjectConverter(new ObjectConverter()).convert(attestationObject))).isEqualTo(parsed);
+        assertThat(metrics.getCacheHits(WebAuthnMetrics.Cache.CERTIFICATE)).as("the other converters do not go through the cache").isEqualTo(1);
+    }
+
+    @Test
+    void get_staysWithinTheMaximumSize() throws Exception {
+        X509CertificateCache certificateCache = new X509CertificateCache(2, metrics);
+        byte[] first = certificate("First").getEncoded();
+        byte[] second = certificate("Second").getEncoded();
+        byte[] third = certificate("Third").getEncoded();
+
+        X509Certificate parsed = certificateCache.get(first);
+        assertThat(certificateCache.get(first.clone())).isSameAs(parsed);
+        certificateCache.get(second);
+        certificateCache.get(third);
+
+        assertThat(certificateCache.size()).isEqualTo(2);
+        assertThat(metrics.getCacheEvictions(WebAuthnMetrics.Cache.CERTIFICATE)).isEqualTo(1);
+        assertThat(certificateCache.get(third).getEncoded()).isEqualTo(third);
+        assertThatThrownBy(() -> certificateCache.get(new byte[]{0x30, 0x00})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static X509Certificate attestationCertificate(AttestationObject attestationObject) {
+        return ((CertificateBaseAttestationStatement) attestationObject.getAttestationStatement()).getX5c().get(0);
+    }
+
+    private static X509Certificate certificate(String name) {
+        return TestCertificates.selfSigned(TestCertificates.ecKeyPair(), name);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.statement.AttestationCertificatePath;
+import com.webauthn4j.data.attestation.statement.AttestationStatement;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.FIDOU2FAttestationStatement;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.data.extension.authenticator.RegistrationExtensionAuthenticatorOutput;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import com.webauthn4j.metadata.exception.BadStatusException;
+import com.webauthn4j.util.HexUtil;
+import com.webauthn4j.verifier.RegistrationObject;
+import com.webauthn4j.verifier.attestation.trustworthiness.certpath.DefaultCertPathTrustworthinessVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthenticatorStatusRegistrationVerifierTest {
+
+    private static final String CERTIFIED_AAGUID = "00000000-0000-0000-0000-000000000001";
+    private static final String NOT_CERTIFIED_AAGUID = "00000000-0000-0000-0000-000000000002";
+    private static final String REVOKED_AAGUID = "00000000-0000-0000-0000-0000000000ff";
+
+    private final KeyPair attestationKeyPair = TestCertificates.ecKeyPair();
+    private final X509Certificate u2fCertificate = TestCertificates.selfSigned(attestationKeyPair, "U2F Authenticator");
+    private final String u2fKeyIdentifier = HexUtil.encodeToString(DefaultCertPathTrustworthinessVerifier.extractSubjectKeyIdentifier(u2fCertificate));
+
+    private final RefreshableTrustAnchorRepository repository = new RefreshableTrustAnchorRepository(index(1, "REVOKED"));
+    private final AuthenticatorStatusRegistrationVerifier verifier = new AuthenticatorStatusRegistrationVerifier(repository);
+
+    private TrustAnchorIndex index(int no, String u2fStatus) {
+        List<ObjectNode> entries = List.of(
+                TestMetadataBLOBs.entry(CERTIFIED_AAGUID, "FIDO_CERTIFIED"),
+                TestMetadataBLOBs.entry(NOT_CERTIFIED_AAGUID, "NOT_FIDO_CERTIFIED"),
+                TestMetadataBLOBs.entry(REVOKED_AAGUID, "REVOKED"),
+                TestMetadataBLOBs.keyIdEntry(u2fKeyIdentifier, u2fStatus));
+        return TrustAnchorIndex.of(List.of(new MetadataBLOBFactory(new ObjectConverter()).parse(
+                TestMetadataBLOBs.blob(no, LocalDate.of(2026, 11, 1), entries))));
+    }
+
+    @Test
+    void verify_rejectsAuthenticatorsWithAnUntrustworthyStatus() {
+        assertThatThrownBy(() -> verifier.verify(registrationObject(new AAGUID(REVOKED_AAGUID), new NoneAttestationStatement())))
+                .isInstanceOf(BadStatusException.class)
+                .hasMessageContaining(REVOKED_AAGUID);
+        assertThatCode(() -> verifier.verify(registrationObject(new AAGUID(CERTIFIED_AAGUID), new NoneAttestationStatement())))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> verifier.verify(registrationObject(new AAGUID(UUID.randomUUID()), new NoneAttestationStatement())))
+                .as("authenticators missing from the metadata are left to the attestation policy")
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void verify_followsTheStatusPolicyOfTheRepository() {
+        RegistrationObject registrationObject = registrationObject(new AAGUID(NOT_CERTIFIED_AAGUID), new NoneAttestationStatement());
+        assertThatThrownBy(() -> verifier.verify(registrationObject)).isInstanceOf(BadStatusException.class);
+
+        repository.setNotFidoCertifiedAllowed(true);
+
+        assertThatCode(() -> verifier.verify(registrationObject)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void verify_looksU2FAuthenticatorsUpByKeyIdentifierInTheCurrentIndex() {
+        RegistrationObject registrationObject = registrationObject(AAGUID.ZERO, new FIDOU2FAttestationStatement(
+                new AttestationCertificatePath(List.of(u2fCertificate)), new byte[64]));
+        assertThatThrownBy(() -> verifier.verify(registrationObject))
+                .isInstanceOf(BadStatusException.class)
+                .hasMessageContaining(u2fKeyIdentifier);
+
+        repository.swap(index(2, "FIDO_CERTIFIED"));
+
+        assertThatCode(() -> verifier.verify(registrationObject)).doesNotThrowAnyException();
+    }
+
+    private RegistrationObject registrationObject(AAGUID aaguid, AttestationStatement attestationStatement) {
+        AuthenticatorData<RegistrationExtensionAuthenticatorOutput> authenticatorData = new AuthenticatorData<>(
+                new byte[32],
+                (byte) (AuthenticatorData.BIT_UP | AuthenticatorData.BIT_AT),
+                0,
+                new AttestedCredentialData(aaguid, new byte[32], EC2COSEKey.create(attestationKeyPair, COSEAlgorithmIdentifier.ES256)));
+        RegistrationObject registrationObject = mock(RegistrationObject.class);
+        when(registrationObject.getAttestationObject()).thenReturn(new AttestationObject(authenticatorData, attestationStatement));
+        return registrationObject;
+    }
+}
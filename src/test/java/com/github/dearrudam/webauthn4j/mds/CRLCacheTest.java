@@ -0,0 +1,182 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.sun.net.httpserver.HttpServer;
+import com.webauthn4j.metadata.CertPathCheckContext;
+import com.webauthn4j.metadata.exception.CertPathCheckException;
+import com.webauthn4j.util.CertificateUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.CRLException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CRLCacheTest {
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private final KeyPair rootKeyPair = TestCertificates.ecKeyPair();
+    private final X509Certificate root = TestCertificates.certificateAuthority(rootKeyPair, "CRL Test Root");
+    private final Set<TrustAnchor> trustAnchors = Set.of(new TrustAnchor(root, null));
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @TempDir
+    Path cacheDirectory;
+
+    private HttpServer server;
+    private volatile X509CRL crl;
+    private X509Certificate good;
+    private X509Certificate revoked;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/root.crl", exchange -> {
+            requests.incrementAndGet();
+            try {
+                byte[] body = crl.getEncoded();
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } catch (CRLException e) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        byte[] distributionPoint = TestCertificates.crlDistributionPoint("http://127.0.0.1:%d/root.crl".formatted(server.getAddress().getPort()));
+        good = TestCertificates.issue(TestCertificates.ecKeyPair().getPublic(), TestCertificates.name("Good"), root, rootKeyPair.getPrivate(), distributionPoint);
+        revoked = TestCertificates.issue(TestCertificates.ecKeyPair().getPublic(), TestCertificates.name("Revoked"), root, rootKeyPair.getPrivate(), distributionPoint);
+        crl = TestCertificates.crl(root, rootKeyPair.getPrivate(), now.minus(1, ChronoUnit.HOURS), now.plus(1, ChronoUnit.DAYS), revoked.getSerialNumber());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private CRLCache crlCache(Instant at) {
+        return new CRLCache(
+                new MetadataHttpClient(HttpClient.newHttpClient(), Duration.ofSeconds(5)),
+                cacheDirectory,
+                Clock.fixed(at, ZoneOffset.UTC),
+                Duration.ofHours(1));
+    }
+
+    @Test
+    void check_servesPrefetchedCRLsFromMemory() {
+        CRLCache crlCache = crlCache(now);
+        assertThat(crlCache.checkPath(List.of(good), trustAnchors, now)).isEqualTo(CRLCache.RevocationStatus.UNKNOWN);
+
+        crlCache.prefetch(List.of(good, revoked));
+        server.stop(0);
+
+        assertThat(crlCache.checkPath(List.of(good), trustAnchors, now)).isEqualTo(CRLCache.RevocationStatus.GOOD);
+        assertThat(crlCache.checkPath(List.of(revoked), trustAnchors, now)).isEqualTo(CRLCache.RevocationStatus.REVOKED);
+        KeyPair otherKeyPair = TestCertificates.ecKeyPair();
+        assertThat(crlCache.check(TestCertificates.selfSigned(otherKeyPair, "Other"), otherKeyPair.getPublic(), now)).isEqualTo(CRLCache.RevocationStatus.NOT_APPLICABLE);
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void check_rejectsACRLThatIsNotSignedByTheIssuer() {
+        crl = TestCertificates.crl(root, TestCertificates.ecKeyPair().getPrivate(), now.minus(1, ChronoUnit.HOURS), now.plus(1, ChronoUnit.DAYS));
+        CRLCache crlCache = crlCache(now);
+        crlCache.prefetch(List.of(good));
+
+        assertThat(crlCache.checkPath(List.of(good), trustAnchors, now)).isEqualTo(CRLCache.RevocationStatus.UNKNOWN);
+    }
+
+    @Test
+    void load_keepsRestartsWarm() {
+        crlCache(now).prefetch(List.of(good));
+        server.stop(0);
+
+        CRLCache restarted = crlCache(now);
+
+        assertThat(restarted.size()).isEqualTo(1);
+        assertThat(restarted.checkPath(List.of(revoked), trustAnchors, now)).isEqualTo(CRLCache.RevocationStatus.REVOKED);
+    }
+
+    @Test
+    void refresh_fetchesTheCRLsCloseToTheirNextUpdate() {
+        crlCache(now).prefetch(List.of(good));
+
+        assertThat(crlCache(now).refresh()).isZero();
+
+        Instant closeToNextUpdate = now.plus(Duration.ofHours(23).plusMinutes(30));
+        crl = TestCertificates.crl(root, rootKeyPair.getPrivate(), closeToNextUpdate, closeToNextUpdate.plus(1, ChronoUnit.DAYS), good.getSerialNumber());
+        CRLCache crlCache = crlCache(closeToNextUpdate);
+
+        assertThat(crlCache.refresh()).isEqualTo(1);
+        assertThat(requests).hasValue(2);
+        assertThat(crlCache.checkPath(List.of(good), trustAnchors, closeToNextUpdate.plusSeconds(1))).isEqualTo(CRLCache.RevocationStatus.REVOKED);
+    }
+
+    @Test
+    void prefetch_replacesAStaleCRLLoadedFromDisk() {
+        crlCache(now).prefetch(List.of(good));
+
+        Instant twoDaysLater = now.plus(2, ChronoUnit.DAYS);
+        crl = TestCertificates.crl(root, rootKeyPair.getPrivate(), twoDaysLater.minus(1, ChronoUnit.HOURS), twoDaysLater.plus(1, ChronoUnit.DAYS), good.getSerialNumber());
+        CRLCache restarted = crlCache(twoDaysLater);
+        assertThat(restarted.checkPath(List.of(good), trustAnchors, twoDaysLater)).isEqualTo(CRLCache.RevocationStatus.UNKNOWN);
+
+        restarted.prefetch(List.of(good));
+
+        assertThat(requests).hasValue(2);
+        assertThat(restarted.checkPath(List.of(good), trustAnchors, twoDaysLater)).isEqualTo(CRLCache.RevocationStatus.REVOKED);
+        restarted.prefetch(List.of(good));
+        assertThat(requests).as("a current CRL is not fetched again").hasValue(2);
+    }
+
+    @Test
+    void check_treatsAMalformedDistributionPointsExtensionAsNone() {
+        for (byte[] malformed : List.of(
+                new byte[]{0x30, (byte) 0x80, (byte) 0x86, 0x01, 0x68, 0x00, 0x00},
+                new byte[]{0x30, 0x10, (byte) 0x86, 0x01, 0x68},
+                new byte[]{0x30, 0x03, (byte) 0x86, 0x7f, 0x68},
+                new byte[]{0x30, (byte) 0x84, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff},
+                new byte[]{0x30})) {
+            X509Certificate certificate = TestCertificates.issue(TestCertificates.ecKeyPair().getPublic(), TestCertificates.name("Malformed"), root,
+                    rootKeyPair.getPrivate(), TestCertificates.extension(CRLCache.CRL_DISTRIBUTION_POINTS_OID, false, malformed));
+
+            assertThat(CRLCache.distributionPointsOf(certificate)).isEmpty();
+            assertThat(crlCache(now).check(certificate, root.getPublicKey(), now)).isEqualTo(CRLCache.RevocationStatus.NOT_APPLICABLE);
+        }
+    }
+
+    @Test
+    void certPathChecker_failsMetadataBLOBCertPathsWithARevokedCertificate() {
+        CRLCacheCertPathChecker certPathChecker = new CRLCacheCertPathChecker(crlCache(now), Clock.fixed(now, ZoneOffset.UTC));
+
+        assertThatCode(() -> certPathChecker.check(new CertPathCheckContext(CertificateUtil.generateCertPath(List.of(good)), trustAnchors, true)))
+                .doesNotThrowAnyException();
+        assertThatThrownBy(() -> certPathChecker.check(new CertPathCheckContext(CertificateUtil.generateCertPath(List.of(revoked)), trustAnchors, true)))
+                .isInstanceOf(CertPathCheckException.class)
+                .hasMessageContaining("revoked");
+        assertThat(requests).hasValue(1);
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a stand-in for mds3.fidoalliance.org and mds3.fido.tools on 127.0.0.1, serving generated BLOBs that validate against trustAnchors():
+//   GET  /                  the published BLOB, answering If-None-Match with 304
+//   GET  /pki/MDS3ROOT.crt  the root of trustAnchors(), standing in for the conformance MDS3 root
+//   POST /getEndpoints      the published conformance endpoints
+//   GET  /root.crl          the published CRL
+// every request can be delayed, sent through a chain of redirects or failed
+public final class LocalMDSServer implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    // platform threads, a client fetching from inside a synchronized provide() pins its carrier and, with a single carrier,
+    // would leave no virtual thread to answer it
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile String blob;
+    private volatile List<String> endpoints = List.of();
+    private volatile X509CRL crl;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile int redirects;
+    private volatile int failureStatusCode = 503;
+
+    private LocalMDSServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static LocalMDSServer start() {
+        try {
+            return new LocalMDSServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start the local MDS server", e);
+        }
+    }
+
+    public String url() {
+        return "http://127.0.0.1:%d/".formatted(server.getAddress().getPort());
+    }
+
+    public Set<TrustAnchor> trustAnchors() {
+        return TestMetadataBLOBs.trustAnchors();
+    }
+
+    public void publish(String blob) {
+        this.blob = blob;
+    }
+
+    // about as many FIDO_CERTIFIED entries as the MDS3 BLOB, one of them the given authenticator attested under the given root
+    public String publish(int no, LocalDate nextUpdate, int entries, AAGUID aaguid, X509Certificate attestationRootCertificate) {
+        List<ObjectNode> nodes = new ArrayList<>(entries);
+        for (int i = 1; i < entries; i++) {
+            nodes.add(TestMetadataBLOBs.entry(new UUID(no, i).toString(), "FIDO_CERTIFIED"));
+        }
+        ObjectNode entry = TestMetadataBLOBs.entry(aaguid.toString(), "FIDO_CERTIFIED");
+        try {
+            ((ObjectNode) entry.get("metadataStatement")).putArray("attestationRootCertificates")
+                    .add(Base64.getEncoder().encodeToString(attestationRootCertificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("attestationRootCertificate can not be encoded", e);
+        }
+        nodes.add(entry);
+        String published = TestMetadataBLOBs.blob(no, nextUpdate, nodes);
+        publish(published);
+        return published;
+    }
+
+    public void publishEndpoints(List<String> endpoints) {
+        this.endpoints = List.copyOf(endpoints);
+    }
+
+    public void publishCRL(X509CRL crl) {
+        this.crl = crl;
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    // every request first goes through this many 302 responses
+    public void setRedirects(int redirects) {
+        this.redirects = redirects;
+    }
+
+    // the next requests are answered with the status code, before any redirect
+    public void failNext(int count, int statusCode) {
+        this.failureStatusCode = statusCode;
+        this.failures.set(count);
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                respond(exchange, failureStatusCode, "injected failure".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            // /redirect/<hops left>/<path>
+            String path = exchange.getRequestURI().getPath();
+            int hops = redirects;
+            if (path.startsWith("/redirect/")) {
+                int slash = path.indexOf('/', "/redirect/".length());
+                hops = Integer.parseInt(path.substring("/redirect/".length(), slash));
+                path = path.substring(slash);
+            }
+            if (hops > 0) {
+                exchange.getResponseHeaders().set("Location", "/redirect/%d%s".formatted(hops - 1, path));
+                exchange.sendResponseHeaders(302, -1);
+                return;
+            }
+
+            switch (path) {
+                case "/" -> serveBLOB(exchange);
+                case "/pki/MDS3ROOT.crt" -> respond(exchange, 200, encoded(TestMetadataBLOBs.rootCertificate()));
+                case "/getEndpoints" -> {
+                    ObjectNode response = objectMapper.createObjectNode().put("status", "ok");
+                    endpoints.forEach(response.putArray("result")::add);
+                    respond(exchange, 200, response.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                case "/root.crl" -> respond(exchange, crl == null ? 404 : 200, crl == null ? new byte[0] : encoded(crl));
+                default -> respond(exchange, 404, new byte[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serveBLOB(HttpExchange exchange) throws IOException {
+        String current = blob;
+        if (current == null) {
+            respond(exchange, 404, new byte[0]);
+            return;
+        }
+        String etag = "\"%08x\"".formatted(current.hashCode());
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        respond(exchange, 200, current.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] encoded(X509Certificate certificate) {
+        try {
+            return certificate.getEncoded();
+        } catch (CertificateEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encoded(X509CRL crl) {
+        try {
+            return crl.getEncoded();
+        } catch (CRLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(statusCode, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+    }
+}
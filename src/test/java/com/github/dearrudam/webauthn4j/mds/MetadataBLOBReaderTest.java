@@ -0,0 +1,87 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetadataBLOBReaderTest {
+
+    private static final LocalDate NEXT_UPDATE = LocalDate.of(2026, 11, 1);
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+
+    // tiny buffers so that every segment of the JWS straddles buffer boundaries
+    private final ByteBufferPool pool = new ByteBufferPool(7, 4096);
+    private final MetadataBLOBReader reader = new MetadataBLOBReader(objectConverter, pool);
+
+    private final List<ObjectNode> entries = IntStream.range(0, 20)
+            .mapToObj(i -> TestMetadataBLOBs.entry(UUID.randomUUID().toString(), "FIDO_CERTIFIED"))
+            .toList();
+
+    @Test
+    void read_matchesTheStringBasedFactory() {
+        String blob = TestMetadataBLOBs.blob(7, NEXT_UPDATE, entries);
+
+        MetadataBLOB expected = new MetadataBLOBFactory(objectConverter).parse(blob);
+        MetadataBLOB actual = reader.read(stream(blob + "\n"));
+
+        assertThat(actual.getHeader()).isEqualTo(expected.getHeader());
+        // the fixture's metadata statements are too sparse for MetadataStatement.equals, compare their JSON instead
+        assertThat(objectConverter.getJsonConverter().writeValueAsString(actual.getPayload()))
+                .isEqualTo(objectConverter.getJsonConverter().writeValueAsString(expected.getPayload()));
+        assertThat(actual.getSignature()).isEqualTo(expected.getSignature());
+        assertThat(actual.isValidSignature()).isEqualTo(expected.isValidSignature()).isTrue();
+    }
+
+    @Test
+    void read_verifiesTheSignatureOverTheBuffers() {
+        KeyPair keyPair = TestCertificates.ecKeyPair();
+        X509Certificate certificate = TestCertificates.selfSigned(keyPair, "MDS Test Signer");
+        String blob = TestMetadataBLOBs.signedBlob(7, NEXT_UPDATE, entries, keyPair, certificate);
+
+        assertThat(new MetadataBLOBFactory(objectConverter).parse(blob).isValidSignature()).isTrue();
+        assertThat(reader.read(stream(blob)).isValidSignature()).isTrue();
+
+        String[] parts = blob.split("\\.");
+        String tampered = parts[0] + "." + TestMetadataBLOBs.blob(8, NEXT_UPDATE, entries).split("\\.")[1] + "." + parts[2];
+        assertThat(reader.read(stream(tampered)).isValidSignature()).isFalse();
+    }
+
+    @Test
+    void read_returnsTheBuffersToThePool() {
+        reader.read(stream(TestMetadataBLOBs.blob(7, NEXT_UPDATE, entries)));
+        int retained = pool.getRetained();
+
+        reader.read(stream(TestMetadataBLOBs.blob(8, NEXT_UPDATE, entries)));
+
+        assertThat(retained).isGreaterThan(0);
+        assertThat(pool.getRetained()).isEqualTo(retained);
+    }
+
+    @Test
+    void read_rejectsValuesThatAreNotACompactJWS() {
+        assertThatThrownBy(() -> reader.read(stream("abc.def")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> reader.read(stream("abc.def.ghi.jkl")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static InputStream stream(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
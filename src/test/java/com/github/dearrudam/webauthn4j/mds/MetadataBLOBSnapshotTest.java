@@ -0,0 +1,132 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.anchor.MetadataBLOBBasedTrustAnchorRepository;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import com.webauthn4j.util.HexUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetadataBLOBSnapshotTest {
+
+    private static final String REVOKED_AAGUID = "00000000-0000-0000-0000-0000000000ff";
+    private static final String NOT_CERTIFIED_AAGUID = "ffffffff-0000-0000-0000-000000000001";
+    private static final String KEY_ID = "bf7bcaa0d0c6187a8c6abbdd16a15640e7c7bde2";
+
+    @TempDir
+    Path directory;
+
+    private final MetadataBLOB metadataBLOB = new MetadataBLOBFactory(new ObjectConverter()).parse(TestMetadataBLOBs.blob(
+            7,
+            LocalDate.of(2026, 11, 1),
+            List.of(
+                    TestMetadataBLOBs.entry(TestMetadataBLOBs.AAGUID, "FIDO_CERTIFIED"),
+                    TestMetadataBLOBs.entry(REVOKED_AAGUID, "REVOKED"),
+                    TestMetadataBLOBs.entry(NOT_CERTIFIED_AAGUID, "NOT_FIDO_CERTIFIED"),
+                    TestMetadataBLOBs.keyIdEntry(KEY_ID, "FIDO_CERTIFIED"))));
+
+    private final MetadataBLOBBasedTrustAnchorRepository expected = new MetadataBLOBBasedTrustAnchorRepository(() -> metadataBLOB);
+
+    private MetadataBLOBSnapshot writeAndOpen() {
+        Path file = directory.resolve("blob.snapshot");
+        MetadataBLOBSnapshot.write(metadataBLOB, file);
+        return MetadataBLOBSnapshot.open(file);
+    }
+
+    private static ObjectNode entry(String aaguid, String status, X509Certificate attestationRootCertificate) {
+        ObjectNode entry = TestMetadataBLOBs.entry(aaguid, status);
+        try {
+            ((ObjectNode) entry.get("metadataStatement")).putArray("attestationRootCertificates")
+                    .add(Base64.getEncoder().encodeToString(attestationRootCertificate.getEncoded()));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return entry;
+    }
+
+    private static Set<X509Certificate> certificatesOf(Set<TrustAnchor> trustAnchors) {
+        return trustAnchors.stream().map(TrustAnchor::getTrustedCert).collect(Collectors.toSet());
+    }
+
+    @Test
+    void open_exposesTheBLOBVersion() {
+        MetadataBLOBSnapshot snapshot = writeAndOpen();
+
+        assertThat(snapshot.getNo()).isEqualTo(7);
+        assertThat(snapshot.getNextUpdate()).isEqualTo(LocalDate.of(2026, 11, 1));
+        assertThat(snapshot.isStale(LocalDate.of(2026, 10, 31))).isFalse();
+        assertThat(snapshot.isStale(LocalDate.of(2026, 11, 1))).isTrue();
+    }
+
+    @Test
+    void find_matchesTheMetadataBLOBBasedTrustAnchorRepository() {
+        MetadataBLOBSnapshot snapshot = writeAndOpen();
+
+        for (String aaguid : List.of(TestMetadataBLOBs.AAGUID, REVOKED_AAGUID, NOT_CERTIFIED_AAGUID, "12345678-1234-1234-1234-123456789012")) {
+            assertThat(certificatesOf(snapshot.find(new AAGUID(aaguid))))
+                    .as(aaguid)
+                    .isEqualTo(certificatesOf(expected.find(new AAGUID(aaguid))));
+        }
+        assertThat(certificatesOf(snapshot.find(HexUtil.decode(KEY_ID))))
+                .hasSize(1)
+                .isEqualTo(certificatesOf(expected.find(HexUtil.decode(KEY_ID))));
+        assertThat(snapshot.find(new byte[20])).isEmpty();
+    }
+
+    @Test
+    void find_mergesTheTrustworthyEntriesOfADuplicateAAGUID() {
+        String duplicateAAGUID = "00000000-0000-0000-0000-00000000d0d0";
+        X509Certificate revokedRoot = TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Revoked Root");
+        X509Certificate certifiedRoot = TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Certified Root");
+        X509Certificate otherCertifiedRoot = TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Other Certified Root");
+        // the revoked entry sits between the trustworthy ones, so the search lands on it whatever the order
+        List<ObjectNode> entries = List.of(
+                entry(duplicateAAGUID, "FIDO_CERTIFIED", certifiedRoot),
+                entry(duplicateAAGUID, "REVOKED", revokedRoot),
+                entry(duplicateAAGUID, "FIDO_CERTIFIED", otherCertifiedRoot));
+        MetadataBLOB duplicates = new MetadataBLOBFactory(new ObjectConverter()).parse(TestMetadataBLOBs.blob(8, LocalDate.of(2026, 11, 1), entries));
+        Path file = directory.resolve("duplicates.snapshot");
+        MetadataBLOBSnapshot.write(duplicates, file);
+        MetadataBLOBSnapshot snapshot = MetadataBLOBSnapshot.open(file);
+
+        assertThat(certificatesOf(snapshot.find(new AAGUID(duplicateAAGUID))))
+                .containsExactlyInAnyOrder(certifiedRoot, otherCertifiedRoot)
+                .isEqualTo(certificatesOf(new MetadataBLOBBasedTrustAnchorRepository(() -> duplicates).find(new AAGUID(duplicateAAGUID))));
+    }
+
+    @Test
+    void find_honorsTheStatusPolicy() {
+        MetadataBLOBSnapshot snapshot = writeAndOpen();
+        snapshot.setNotFidoCertifiedAllowed(true);
+        expected.setNotFidoCertifiedAllowed(true);
+
+        assertThat(certificatesOf(snapshot.find(new AAGUID(NOT_CERTIFIED_AAGUID))))
+                .hasSize(1)
+                .isEqualTo(certificatesOf(expected.find(new AAGUID(NOT_CERTIFIED_AAGUID))));
+    }
+
+    @Test
+    void open_rejectsFilesThatAreNotSnapshots() throws Exception {
+        Path file = Files.writeString(directory.resolve("blob.jwt"), TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1)));
+
+        assertThatThrownBy(() -> MetadataBLOBSnapshot.open(file))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataFetchPipelineTest {
+
+    @Test
+    void fetchAll_neverRunsMoreThanTheConcurrencyLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> endpoints = IntStream.range(0, 20).mapToObj("endpoint-%d"::formatted).toList();
+
+        MetadataFetchReport<String> report = new MetadataFetchPipeline(3, Duration.ofSeconds(5), 1, Duration.ZERO)
+                .fetchAll(endpoints, endpoint -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return endpoint.toUpperCase();
+                });
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(3);
+        assertThat(report.values()).containsExactlyElementsOf(endpoints.stream().map(String::toUpperCase).toList());
+    }
+
+    @Test
+    void fetchAll_retriesFailedEndpointsAndReportsEachOutcome() {
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        MetadataFetchReport<String> report = new MetadataFetchPipeline(4, Duration.ofSeconds(5), 3, Duration.ofMillis(1))
+                .fetchAll(List.of("flaky", "broken", "ok"), endpoint -> {
+                    int attempt = attempts.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+                    if (endpoint.equals("broken") || (endpoint.equals("flaky") && attempt < 3)) {
+                        throw new IllegalStateException("%s failed on attempt %d".formatted(endpoint, attempt));
+                    }
+                    return endpoint;
+                });
+
+        assertThat(report.outcomes()).extracting(MetadataFetchReport.Outcome::endpoint).containsExactly("flaky", "broken", "ok");
+        assertThat(report.outcomes()).extracting(MetadataFetchReport.Outcome::attempts).containsExactly(3, 3, 1);
+        assertThat(report.values()).containsExactly("flaky", "ok");
+        assertThat(report.failed()).singleElement().satisfies(outcome -> {
+            assertThat(outcome.endpoint()).isEqualTo("broken");
+            assertThat(outcome.failure()).isInstanceOf(IllegalStateException.class).hasMessage("broken failed on attempt 3");
+        });
+    }
+
+    @Test
+    void fetchAll_givesUpOnEndpointsThatExceedTheTimeout() {
+        MetadataFetchReport<String> report = new MetadataFetchPipeline(2, Duration.ofMillis(50), 2, Duration.ofMillis(1))
+                .fetchAll(List.of("hanging", "ok"), endpoint -> {
+                    if (endpoint.equals("hanging")) {
+                        try {
+                            Thread.sleep(Duration.ofMinutes(1));
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                    return endpoint;
+                });
+
+        assertThat(report.values()).containsExactly("ok");
+        assertThat(report.failed()).singleElement().satisfies(outcome -> {
+            assertThat(outcome.endpoint()).isEqualTo("hanging");
+            assertThat(outcome.attempts()).isEqualTo(2);
+            assertThat(outcome.failure()).isInstanceOf(TimeoutException.class);
+            assertThat(outcome.elapsed()).isLessThan(Duration.ofSeconds(10));
+        });
+    }
+
+    @Test
+    void fetchAll_countsTimedOutAttemptsAgainstTheConcurrencyLimitUntilTheyEnd() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> endpoints = IntStream.range(0, 6).mapToObj("endpoint-%d"::formatted).toList();
+
+        MetadataFetchReport<String> report = new MetadataFetchPipeline(2, Duration.ofMillis(10), 2, Duration.ZERO)
+                .fetchAll(endpoints, endpoint -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        // ignores the cancellation, like a blocking read that does not respond to interrupts
+                        long deadline = System.nanoTime() + Duration.ofMillis(40).toNanos();
+                        while (System.nanoTime() < deadline) {
+                            try {
+                                Thread.sleep(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())));
+                            } catch (InterruptedException ignored) {
+                                // keeps going
+                            }
+                        }
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return endpoint;
+                });
+
+        assertThat(report.failed()).hasSize(6);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void fetchAll_reportsTheEndpointsLeftWithoutAPermitByAnAttemptThatNeverEnds() throws InterruptedException {
+        CountDownLatch stuck = new CountDownLatch(1);
+        List<String> threadNames = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+
+        MetadataFetchReport<String> report = new MetadataFetchPipeline(1, Duration.ofMillis(20), 1, Duration.ZERO)
+                .fetchAll(List.of("stuck", "queued"), endpoint -> {
+                    threadNames.add(Thread.currentThread().getName());
+                    // never gives up its permit while the pipeline waits, whatever the interrupts
+                    while (stuck.getCount() > 0) {
+                        try {
+                            stuck.await();
+                        } catch (InterruptedException ignored) {
+                            // keeps waiting
+                        }
+                    }
+                    return endpoint;
+                });
+        stuck.countDown();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        assertThat(report.failed()).extracting(MetadataFetchReport.Outcome::endpoint).containsExactly("stuck", "queued");
+        assertThat(report.failed()).allSatisfy(outcome -> assertThat(outcome.failure()).isInstanceOf(TimeoutException.class));
+        assertThat(report.failed().get(1).failure()).hasMessageContaining("no permit");
+        assertThat(report.failed()).extracting(MetadataFetchReport.Outcome::attempts).containsExactly(1, 0);
+        assertThat(threadNames).containsExactly("mds-fetch-stuck-1");
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.TrustAnchor;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataRefresherTest {
+
+    private static final String ADDED_AAGUID = "12345678-1234-1234-1234-123456789012";
+
+    private final MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(new ObjectConverter());
+
+    private final MetadataBLOB first = metadataBLOBFactory.parse(TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1)));
+    private final MetadataBLOB second = metadataBLOBFactory.parse(TestMetadataBLOBs.blob(2, LocalDate.of(2026, 12, 1), List.of(
+            TestMetadataBLOBs.entry(TestMetadataBLOBs.AAGUID, "REVOKED"),
+            TestMetadataBLOBs.entry(ADDED_AAGUID, "FIDO_CERTIFIED"))));
+
+    private volatile MetadataBLOB current = first;
+
+    @Test
+    void refresh_swapsTheIndexOnlyWhenTheBLOBChanges() {
+        List<TrustAnchorIndex> swapped = new CopyOnWriteArrayList<>();
+        RefreshableTrustAnchorRepository repository = new RefreshableTrustAnchorRepository();
+        repository.addRefreshListener(swapped::add);
+        MetadataRefresher metadataRefresher = new MetadataRefresher(repository, () -> current);
+
+        assertThat(repository.find(new AAGUID(TestMetadataBLOBs.AAGUID))).isEmpty();
+        assertThat(metadataRefresher.refresh()).isTrue();
+        assertThat(repository.find(new AAGUID(TestMetadataBLOBs.AAGUID))).hasSize(1);
+        assertThat(metadataRefresher.refresh()).isFalse();
+
+        current = second;
+
+        assertThat(metadataRefresher.refresh()).isTrue();
+        assertThat(repository.find(new AAGUID(TestMetadataBLOBs.AAGUID))).isEmpty();
+        assertThat(repository.find(new AAGUID(ADDED_AAGUID))).hasSize(1);
+        assertThat(swapped).extracting(TrustAnchorIndex::getNos).containsExactly(List.of(1), List.of(2));
+    }
+
+    @Test
+    void refresh_reportsTheIndexDurationAndTrustAnchorCount() {
+        InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+        MetadataRefresher metadataRefresher = new MetadataRefresher(new RefreshableTrustAnchorRepository(), () -> second);
+        metadataRefresher.setMetrics(metrics);
+
+        metadataRefresher.refresh();
+        metadataRefresher.refresh();
+
+        assertThat(metrics.getMetadataOperation(WebAuthnMetrics.MetadataOperation.INDEX).count()).isEqualTo(1);
+        assertThat(metrics.getMetadataValue(WebAuthnMetrics.MetadataValue.TRUST_ANCHORS)).isEqualTo(2);
+    }
+
+    @Test
+    void start_refreshesInTheBackgroundWhileReadersKeepGoing() throws Exception {
+        RefreshableTrustAnchorRepository repository = new RefreshableTrustAnchorRepository();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+
+        try (MetadataRefresher metadataRefresher = new MetadataRefresher(repository, () -> current)) {
+            metadataRefresher.refresh();
+            List<Future<Long>> lookups = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                lookups.add(readers.submit(() -> {
+                    long count = 0;
+                    while (reading.get()) {
+                        Set<TrustAnchor> trustAnchors = repository.find(new AAGUID(ADDED_AAGUID));
+                        assertThat(trustAnchors.size()).isLessThanOrEqualTo(1);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+
+            metadataRefresher.start(Duration.ofMillis(10));
+            current = second;
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (repository.find(new AAGUID(ADDED_AAGUID)).isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(repository.find(new AAGUID(ADDED_AAGUID))).hasSize(1);
+            reading.set(false);
+            for (Future<Long> lookup : lookups) {
+                assertThat(lookup.get()).isPositive();
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
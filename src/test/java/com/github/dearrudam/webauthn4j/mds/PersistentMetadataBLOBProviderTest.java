@@ -0,0 +1,189 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.anchor.MetadataBLOBBasedTrustAnchorRepository;
+import com.webauthn4j.metadata.exception.MDSException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersistentMetadataBLOBProviderTest {
+
+    private static final LocalDate NEXT_UPDATE = LocalDate.of(2026, 11, 1);
+    private static final Instant BEFORE_NEXT_UPDATE = Instant.parse("2026-10-17T10:00:00Z");
+    private static final Instant AFTER_NEXT_UPDATE = Instant.parse("2026-11-02T10:00:00Z");
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final List<HttpExchange> requests = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path cacheDirectory;
+
+    private HttpServer server;
+    private volatile String blob = TestMetadataBLOBs.blob(1, NEXT_UPDATE);
+    private volatile String etag = "\"v1\"";
+    private volatile int failWith = 0;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/redirect", exchange -> {
+            requests.add(exchange);
+            exchange.getResponseHeaders().add("Location", "/");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/", exchange -> {
+            requests.add(exchange);
+            if (failWith != 0) {
+                exchange.sendResponseHeaders(failWith, -1);
+            } else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = blob.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private PersistentMetadataBLOBProvider provider(String path, Instant now) {
+        return new PersistentMetadataBLOBProvider(
+                objectConverter,
+                "http://127.0.0.1:%d%s".formatted(server.getAddress().getPort(), path),
+                TestMetadataBLOBs.trustAnchors(),
+                new MetadataBLOBDiskCache(cacheDirectory),
+                new MetadataHttpClient(HttpClient.newHttpClient(), Duration.ofSeconds(5)),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void provide_fetchesOnceAndServesRestartsFromTheCache() {
+        assertThat(provider("/", BEFORE_NEXT_UPDATE).provide().getPayload().getNo()).isEqualTo(1);
+        assertThat(new MetadataBLOBDiskCache(cacheDirectory).load())
+                .hasValueSatisfying(entry -> {
+                    assertThat(entry.no()).isEqualTo(1);
+                    assertThat(entry.nextUpdate()).isEqualTo(NEXT_UPDATE);
+                    assertThat(entry.etag()).isEqualTo("\"v1\"");
+                });
+
+        PersistentMetadataBLOBProvider restarted = provider("/", BEFORE_NEXT_UPDATE);
+        MetadataBLOBBasedTrustAnchorRepository repository = new MetadataBLOBBasedTrustAnchorRepository(restarted);
+
+        assertThat(repository.find(new AAGUID(TestMetadataBLOBs.AAGUID))).hasSize(1);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void provide_revalidatesAStaleCacheWithTheStoredETag() {
+        provider("/", BEFORE_NEXT_UPDATE).provide();
+
+        assertThat(provider("/", AFTER_NEXT_UPDATE).provide().getPayload().getNo()).isEqualTo(1);
+
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(1).getRequestHeaders().getFirst("If-None-Match")).isEqualTo("\"v1\"");
+        assertThat(new MetadataBLOBDiskCache(cacheDirectory).load())
+                .hasValueSatisfying(entry -> assertThat(entry.fetchedAt()).isEqualTo(AFTER_NEXT_UPDATE));
+    }
+
+    @Test
+    void provide_replacesAStaleCacheWithANewerBLOB() {
+        provider("/", BEFORE_NEXT_UPDATE).provide();
+        blob = TestMetadataBLOBs.blob(2, NEXT_UPDATE.plusMonths(1));
+        etag = "\"v2\"";
+
+        assertThat(provider("/", AFTER_NEXT_UPDATE).provide().getPayload().getNo()).isEqualTo(2);
+        assertThat(new MetadataBLOBDiskCache(cacheDirectory).load())
+                .hasValueSatisfying(entry -> assertThat(entry.no()).isEqualTo(2));
+    }
+
+    @Test
+    void provide_keepsServingTheCacheWhenTheServerFails() {
+        provider("/", BEFORE_NEXT_UPDATE).provide();
+        failWith = 500;
+
+        PersistentMetadataBLOBProvider provider = provider("/", AFTER_NEXT_UPDATE);
+
+        assertThat(provider.provide().getPayload().getNo()).isEqualTo(1);
+        assertThat(provider.provide().getPayload().getNo()).isEqualTo(1);
+        assertThat(requests).as("retries wait for the recheck interval").hasSize(2);
+    }
+
+    @Test
+    void provide_failsWithoutACacheWhenTheServerFails() {
+        failWith = 503;
+
+        assertThatThrownBy(() -> provider("/", BEFORE_NEXT_UPDATE).provide())
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Status Code: 503");
+    }
+
+    @Test
+    void provide_followsRedirects() {
+        assertThat(provider("/redirect", BEFORE_NEXT_UPDATE).provide().getPayload().getNo()).isEqualTo(1);
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void provide_rejectsABLOBWithABadSignature() {
+        String[] signed = TestMetadataBLOBs.blob(1, NEXT_UPDATE).split("\\.");
+        String[] other = TestMetadataBLOBs.blob(2, NEXT_UPDATE.plusMonths(1)).split("\\.");
+        blob = signed[0] + "." + other[1] + "." + signed[2];
+
+        assertThatThrownBy(() -> provider("/", BEFORE_NEXT_UPDATE).provide())
+                .isInstanceOf(MDSException.class)
+                .hasMessage("MetadataBLOB signature is invalid");
+        assertThat(new MetadataBLOBDiskCache(cacheDirectory).load()).isEmpty();
+    }
+
+    @Test
+    void provide_rejectsABLOBSignedOutsideTheTrustAnchorsAndKeepsServingTheCache() {
+        provider("/", BEFORE_NEXT_UPDATE).provide();
+        KeyPair keyPair = TestCertificates.ecKeyPair();
+        blob = TestMetadataBLOBs.signedBlob(2, NEXT_UPDATE.plusMonths(1), List.of(TestMetadataBLOBs.entry(TestMetadataBLOBs.AAGUID, "REVOKED")),
+                keyPair, TestCertificates.selfSigned(keyPair, "Rogue MDS BLOB Signer"));
+        etag = "\"v2\"";
+
+        assertThat(provider("/", AFTER_NEXT_UPDATE).provide().getPayload().getNo()).isEqualTo(1);
+        assertThat(new MetadataBLOBDiskCache(cacheDirectory).load())
+                .hasValueSatisfying(entry -> assertThat(entry.no()).isEqualTo(1));
+
+        assertThatThrownBy(() -> new PersistentMetadataBLOBProvider(objectConverter, "http://127.0.0.1:%d/".formatted(server.getAddress().getPort()),
+                TestMetadataBLOBs.trustAnchors(), Files.createDirectories(cacheDirectory.resolve("empty"))).provide())
+                .isInstanceOf(MDSException.class)
+                .hasMessage("MetadataBLOB certificate chain validation failed");
+    }
+}
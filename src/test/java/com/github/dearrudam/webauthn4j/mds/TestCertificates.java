@@ -0,0 +1,257 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// hand-built DER, the JDK can parse certificates but has no public API to issue them
+public final class TestCertificates {
+
+    private static final String ECDSA_WITH_SHA256 = "1.2.840.10045.4.3.2";
+    private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final AtomicLong serialNumbers = new AtomicLong(System.currentTimeMillis());
+
+    private TestCertificates() {
+    }
+
+    public static KeyPair ecKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static X509Certificate selfSigned(KeyPair keyPair, String commonName) {
+        return issue(keyPair.getPublic(), name(commonName), name(commonName), keyPair.getPrivate());
+    }
+
+    public static X509Certificate certificateAuthority(KeyPair keyPair, String commonName) {
+        return issue(keyPair.getPublic(), name(commonName), name(commonName), keyPair.getPrivate(),
+                extension("2.5.29.19", true, sequence(tlv(0x01, new byte[]{(byte) 0xff}))),
+                // keyCertSign and cRLSign
+                extension("2.5.29.15", true, tlv(0x03, new byte[]{0x01, 0x06})));
+    }
+
+    public static X509Certificate issue(PublicKey subjectKey, byte[] subjectName, X509Certificate issuer, PrivateKey issuerKey, byte[]... extensions) {
+        return issue(subjectKey, subjectName, issuer.getSubjectX500Principal().getEncoded(), issuerKey, extensions);
+    }
+
+    private static X509Certificate issue(PublicKey subjectKey, byte[] subjectName, byte[] issuerName, PrivateKey issuerKey, byte[]... extensions) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        ByteArrayOutputStream tbsCertificate = new ByteArrayOutputStream();
+        tbsCertificate.writeBytes(explicit(0, integer(BigInteger.TWO)));
+        tbsCertificate.writeBytes(integer(BigInteger.valueOf(serialNumbers.incrementAndGet())));
+        tbsCertificate.writeBytes(sequence(oid(ECDSA_WITH_SHA256)));
+        tbsCertificate.writeBytes(issuerName);
+        tbsCertificate.writeBytes(sequence(utcTime(now.minus(1, ChronoUnit.DAYS)), utcTime(now.plus(365, ChronoUnit.DAYS))));
+        tbsCertificate.writeBytes(subjectName);
+        tbsCertificate.writeBytes(subjectKey.getEncoded());
+        if (extensions.length > 0) {
+            tbsCertificate.writeBytes(explicit(3, sequence(extensions)));
+        }
+        return certificate(tlv(0x30, tbsCertificate.toByteArray()), issuerKey);
+    }
+
+    public static byte[] name(String commonName) {
+        return sequence(relativeDistinguishedName("2.5.4.3", commonName));
+    }
+
+    // the subject layout packed attestation certificates must follow
+    public static byte[] attestationName(String commonName) {
+        return sequence(
+                relativeDistinguishedName("2.5.4.6", "US"),
+                relativeDistinguishedName("2.5.4.10", "webauthn4j-studies"),
+                relativeDistinguishedName("2.5.4.11", "Authenticator Attestation"),
+                relativeDistinguishedName("2.5.4.3", commonName));
+    }
+
+    public static byte[] extension(String oid, boolean critical, byte[] value) {
+        return critical
+                ? sequence(oid(oid), tlv(0x01, new byte[]{(byte) 0xff}), octetString(value))
+                : sequence(oid(oid), octetString(value));
+    }
+
+    // a cRLDistributionPoints extension with a single fullName URI
+    public static byte[] crlDistributionPoint(String uri) {
+        return extension("2.5.29.31", false, sequence(sequence(explicit(0, explicit(0, tlv(0x86, uri.getBytes(StandardCharsets.US_ASCII)))))));
+    }
+
+    public static X509CRL crl(X509Certificate issuer, PrivateKey issuerKey, Instant thisUpdate, Instant nextUpdate, BigInteger... revokedSerialNumbers) {
+        ByteArrayOutputStream tbsCertList = new ByteArrayOutputStream();
+        tbsCertList.writeBytes(integer(BigInteger.ONE));
+        tbsCertList.writeBytes(sequence(oid(ECDSA_WITH_SHA256)));
+        tbsCertList.writeBytes(issuer.getSubjectX500Principal().getEncoded());
+        tbsCertList.writeBytes(utcTime(thisUpdate));
+        tbsCertList.writeBytes(utcTime(nextUpdate));
+        if (revokedSerialNumbers.length > 0) {
+            byte[][] revokedCertificates = new byte[revokedSerialNumbers.length][];
+            for (int i = 0; i < revokedSerialNumbers.length; i++) {
+                revokedCertificates[i] = sequence(integer(revokedSerialNumbers[i]), utcTime(thisUpdate));
+            }
+            tbsCertList.writeBytes(sequence(revokedCertificates));
+        }
+        byte[] tbs = tlv(0x30, tbsCertList.toByteArray());
+        byte[] crl = sequence(tbs, sequence(oid(ECDSA_WITH_SHA256)), bitString(sign(tbs, issuerKey)));
+        try {
+            return (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(new ByteArrayInputStream(crl));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static byte[] sign(byte[] data, PrivateKey privateKey) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withECDSA");
+            signature.initSign(privateKey);
+            signature.update(data);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the inverse of MetadataBLOBReader.toDerSignature, for a P-256 key
+    public static byte[] toJwsSignature(byte[] derSignature) {
+        byte[] jwsSignature = new byte[64];
+        int offset = 2;
+        for (int i = 0; i < 2; i++) {
+            int length = derSignature[offset + 1];
+            byte[] value = new byte[length];
+            System.arraycopy(derSignature, offset + 2, value, 0, length);
+            byte[] unsigned = new BigInteger(1, value).toByteArray();
+            int start = unsigned.length > 32 ? unsigned.length - 32 : 0;
+            System.arraycopy(unsigned, start, jwsSignature, i * 32 + 32 - (unsigned.length - start), unsigned.length - start);
+            offset += 2 + length;
+        }
+        return jwsSignature;
+    }
+
+    private static X509Certificate certificate(byte[] tbsCertificate, PrivateKey issuerKey) {
+        byte[] certificate = sequence(
+                tbsCertificate,
+                sequence(oid(ECDSA_WITH_SHA256)),
+                bitString(sign(tbsCertificate, issuerKey)));
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(new ByteArrayInputStream(certificate));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] relativeDistinguishedName(String oid, String value) {
+        return tlv(0x31, sequence(oid(oid), tlv(0x0c, value.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    public static byte[] utcTime(Instant instant) {
+        return tlv(0x17, UTC_TIME.format(instant).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static byte[] integer(BigInteger value) {
+        return tlv(0x02, value.toByteArray());
+    }
+
+    public static byte[] enumerated(int value) {
+        return tlv(0x0a, BigInteger.valueOf(value).toByteArray());
+    }
+
+    public static byte[] octetString(byte[] value) {
+        return tlv(0x04, value);
+    }
+
+    public static byte[] bitString(byte[] value) {
+        byte[] content = new byte[value.length + 1];
+        System.arraycopy(value, 0, content, 1, value.length);
+        return tlv(0x03, content);
+    }
+
+    public static byte[] oid(String oid) {
+        String[] arcs = oid.split("\\.");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(Integer.parseInt(arcs[0]) * 40 + Integer.parseInt(arcs[1]));
+        for (int i = 2; i < arcs.length; i++) {
+            writeBase128(content, Long.parseLong(arcs[i]));
+        }
+        return tlv(0x06, content.toByteArray());
+    }
+
+    public static byte[] sequence(byte[]... elements) {
+        return tlv(0x30, concat(elements));
+    }
+
+    public static byte[] set(byte[]... elements) {
+        return tlv(0x31, concat(elements));
+    }
+
+    // context-specific, constructed, e.g. [3] for certificate extensions or [702] in an Android key description
+    public static byte[] explicit(int tagNumber, byte[] content) {
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        if (tagNumber < 31) {
+            tag.write(0xa0 | tagNumber);
+        } else {
+            tag.write(0xbf);
+            writeBase128(tag, tagNumber);
+        }
+        return tlv(tag.toByteArray(), content);
+    }
+
+    public static byte[] tlv(int tag, byte[] value) {
+        return tlv(new byte[]{(byte) tag}, value);
+    }
+
+    private static byte[] tlv(byte[] tag, byte[] value) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.writeBytes(tag);
+        if (value.length < 0x80) {
+            output.write(value.length);
+        } else if (value.length < 0x100) {
+            output.write(0x81);
+            output.write(value.length);
+        } else if (value.length < 0x10000) {
+            output.write(0x82);
+            output.write(value.length >> 8);
+            output.write(value.length);
+        } else {
+            output.write(0x83);
+            output.write(value.length >> 16);
+            output.write(value.length >> 8);
+            output.write(value.length);
+        }
+        output.writeBytes(value);
+        return output.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... elements) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] element : elements) {
+            content.writeBytes(element);
+        }
+        return content.toByteArray();
+    }
+
+    private static void writeBase128(ByteArrayOutputStream output, long value) {
+        int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 6) / 7);
+        for (int i = groups - 1; i >= 0; i--) {
+            int group = (int) (value >>> (7 * i)) & 0x7f;
+            output.write(i > 0 ? group | 0x80 : group);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+final class TestMetadataBLOBs {
+
+    static final String AAGUID = "b93fd961-f2e6-462f-b122-82002247de78";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    // stand-ins for the MDS root and the BLOB signer it certifies
+    private static final KeyPair ROOT_KEY_PAIR = TestCertificates.ecKeyPair();
+    private static final X509Certificate ROOT_CERTIFICATE = TestCertificates.certificateAuthority(ROOT_KEY_PAIR, "Test MDS Root");
+    private static final KeyPair SIGNING_KEY_PAIR = TestCertificates.ecKeyPair();
+    private static final X509Certificate SIGNING_CERTIFICATE = TestCertificates.issue(SIGNING_KEY_PAIR.getPublic(),
+            TestCertificates.name("Test MDS BLOB Signer"), ROOT_CERTIFICATE, ROOT_KEY_PAIR.getPrivate());
+
+    private TestMetadataBLOBs() {
+    }
+
+    static String mds3RootCertificateBase64() {
+        try {
+            String pem = Files.readString(Path.of("MDS3ROOT.crt"), StandardCharsets.US_ASCII);
+            return pem.substring(pem.indexOf("-----BEGIN CERTIFICATE-----") + "-----BEGIN CERTIFICATE-----".length(), pem.indexOf("-----END CERTIFICATE-----"))
+                    .replaceAll("\\s", "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ObjectNode entry(String aaguid, String status) {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("aaguid", aaguid);
+        ObjectNode metadataStatement = entry.putObject("metadataStatement");
+        metadataStatement.put("aaguid", aaguid);
+        metadataStatement.put("description", "Test authenticator " + aaguid);
+        metadataStatement.put("protocolFamily", "fido2");
+        return completeEntry(entry, metadataStatement, status);
+    }
+
+    static ObjectNode keyIdEntry(String attestationCertificateKeyIdentifier, String status) {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.putArray("attestationCertificateKeyIdentifiers").add(attestationCertificateKeyIdentifier);
+        ObjectNode metadataStatement = entry.putObject("metadataStatement");
+        metadataStatement.putArray("attestationCertificateKeyIdentifiers").add(attestationCertificateKeyIdentifier);
+        metadataStatement.put("description", "Test authenticator " + attestationCertificateKeyIdentifier);
+        metadataStatement.put("protocolFamily", "u2f");
+        return completeEntry(entry, metadataStatement, status);
+    }
+
+    private static ObjectNode completeEntry(ObjectNode entry, ObjectNode metadataStatement, String status) {
+        metadataStatement.put("schema", 3);
+        metadataStatement.putArray("attestationTypes").add("basic_full");
+        metadataStatement.putArray("attestationRootCertificates").add(mds3RootCertificateBase64());
+        entry.putArray("statusReports").addObject()
+                .put("status", status)
+                .put("effectiveDate", "2020-01-01");
+        entry.put("timeOfLastStatusChange", "2020-01-01");
+        return entry;
+    }
+
+    static Set<TrustAnchor> trustAnchors() {
+        return Set.of(new TrustAnchor(ROOT_CERTIFICATE, null));
+    }
+
+    static X509Certificate rootCertificate() {
+        return ROOT_CERTIFICATE;
+    }
+
+    // another BLOB signer certified by the root, e.g. naming a CRL distribution point
+    static X509Certificate signingCertificate(KeyPair keyPair, byte[]... extensions) {
+        return TestCertificates.issue(keyPair.getPublic(), TestCertificates.name("Test MDS BLOB Signer"), ROOT_CERTIFICATE, ROOT_KEY_PAIR.getPrivate(), extensions);
+    }
+
+    static X509CRL crl(Instant thisUpdate, Instant nextUpdate, BigInteger... revokedSerialNumbers) {
+        return TestCertificates.crl(ROOT_CERTIFICATE, ROOT_KEY_PAIR.getPrivate(), thisUpdate, nextUpdate, revokedSerialNumbers);
+    }
+
+    // signed by the test BLOB signer, whose chain validates against trustAnchors()
+    static String blob(int no, LocalDate nextUpdate, List<ObjectNode> entries) {
+        return signedBlob(no, nextUpdate, entries, SIGNING_KEY_PAIR, SIGNING_CERTIFICATE);
+    }
+
+    // signed with the given key and carrying its certificate in x5c, so that the JWS signature verifies
+    static String signedBlob(int no, LocalDate nextUpdate, List<ObjectNode> entries, KeyPair keyPair, X509Certificate certificate) {
+        try {
+            String signingInput = signingInput(no, nextUpdate, entries, Base64.getEncoder().encodeToString(certificate.getEncoded()));
+            byte[] signature = TestCertificates.sign(signingInput.getBytes(StandardCharsets.US_ASCII), keyPair.getPrivate());
+            return signingInput + "." + BASE64URL.encodeToString(TestCertificates.toJwsSignature(signature));
+        } catch (CertificateEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String signingInput(int no, LocalDate nextUpdate, List<ObjectNode> entries, String x5c) {
+        ObjectNode header = objectMapper.createObjectNode();
+        header.put("alg", "ES256");
+        header.put("typ", "JWT");
+        header.putArray("x5c").add(x5c);
+
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("legalHeader", "Test BLOB");
+        payload.put("no", no);
+        payload.put("nextUpdate", nextUpdate.toString());
+        ArrayNode entriesNode = payload.putArray("entries");
+        entries.forEach(entriesNode::add);
+
+        return BASE64URL.encodeToString(header.toString().getBytes(StandardCharsets.UTF_8))
+                + "." + BASE64URL.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String blob(int no, LocalDate nextUpdate) {
+        return blob(no, nextUpdate, List.of(entry(AAGUID, "FIDO_CERTIFIED")));
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.data.MetadataBLOB;
+import com.webauthn4j.metadata.data.MetadataBLOBFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrustAnchorIndexTest {
+
+    private static final String REVOKED_AAGUID = "00000000-0000-0000-0000-0000000000ff";
+
+    private final List<UUID> aaguids = IntStream.range(0, 500).mapToObj(i -> UUID.randomUUID()).toList();
+
+    private final TrustAnchorIndex index = TrustAnchorIndex.of(List.of(new MetadataBLOBFactory(new ObjectConverter()).parse(
+            TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1), entries()))));
+
+    private List<ObjectNode> entries() {
+        List<ObjectNode> entries = new ArrayList<>();
+        aaguids.forEach(aaguid -> entries.add(TestMetadataBLOBs.entry(aaguid.toString(), "FIDO_CERTIFIED")));
+        entries.add(TestMetadataBLOBs.entry(REVOKED_AAGUID, "REVOKED"));
+        return entries;
+    }
+
+    @Test
+    void find_locatesEveryAAGUIDThroughEachKeyForm() {
+        for (UUID aaguid : aaguids) {
+            byte[] authenticatorData = ByteBuffer.allocate(37 + 16 + 2)
+                    .position(37)
+                    .putLong(aaguid.getMostSignificantBits())
+                    .putLong(aaguid.getLeastSignificantBits())
+                    .array();
+
+            assertThat(index.find(new AAGUID(aaguid), false, false)).hasSize(1);
+            assertThat(index.find(aaguid.getMostSignificantBits(), aaguid.getLeastSignificantBits(), false, false))
+                    .isSameAs(index.find(new AAGUID(aaguid), false, false));
+            assertThat(index.findByAAGUID(authenticatorData, 37, false, false))
+                    .isSameAs(index.find(new AAGUID(aaguid), false, false));
+        }
+    }
+
+    @Test
+    void find_returnsEmptySetsForUnknownOrUntrustworthyAAGUIDs() {
+        assertThat(index.find(new AAGUID(UUID.randomUUID()), false, false)).isEmpty();
+        assertThat(index.find(new AAGUID(REVOKED_AAGUID), false, false)).isEmpty();
+        assertThat(index.find(new AAGUID(REVOKED_AAGUID), true, true)).isEmpty();
+        assertThat(index.findByAAGUID(new byte[16], 0, false, false)).isEmpty();
+    }
+
+    @Test
+    void empty_findsNothing() {
+        assertThat(TrustAnchorIndex.EMPTY.find(new AAGUID(aaguids.get(0)), false, false)).isEmpty();
+        assertThat(TrustAnchorIndex.EMPTY.find(new byte[20], false, false)).isEmpty();
+    }
+
+    @Test
+    void update_rebuildsOnlyTheEntriesThatChanged() {
+        List<ObjectNode> entries = entries();
+        entries.set(0, TestMetadataBLOBs.entry(aaguids.get(0).toString(), "REVOKED").put("timeOfLastStatusChange", "2026-10-01"));
+        UUID added = UUID.randomUUID();
+        entries.add(TestMetadataBLOBs.entry(added.toString(), "FIDO_CERTIFIED"));
+
+        TrustAnchorIndex updated = index.update(List.of(new MetadataBLOBFactory(new ObjectConverter()).parse(
+                TestMetadataBLOBs.blob(2, LocalDate.of(2026, 12, 1), entries))));
+
+        assertThat(index.getChangedEntryCount()).isEqualTo(aaguids.size() + 1);
+        assertThat(updated.getChangedEntryCount()).isEqualTo(2);
+        assertThat(updated.getNos()).containsExactly(2);
+        assertThat(updated.find(new AAGUID(aaguids.get(0)), false, false)).isEmpty();
+        assertThat(updated.find(new AAGUID(added), false, false)).hasSize(1);
+        for (UUID aaguid : aaguids.subList(1, aaguids.size())) {
+            assertThat(updated.find(new AAGUID(aaguid), false, false)).isSameAs(index.find(new AAGUID(aaguid), false, false));
+        }
+        assertThat(index.find(new AAGUID(aaguids.get(0)), false, false)).as("the previous index is left untouched").hasSize(1);
+    }
+
+    @Test
+    void update_skipsTheEntriesWithNeitherAnAAGUIDNorKeyIdentifiers() {
+        List<ObjectNode> entries = entries();
+        for (String description : List.of("first", "second")) {
+            ObjectNode unindexed = TestMetadataBLOBs.keyIdEntry(description, "FIDO_CERTIFIED");
+            unindexed.remove("attestationCertificateKeyIdentifiers");
+            ((ObjectNode) unindexed.get("metadataStatement")).remove("attestationCertificateKeyIdentifiers");
+            entries.add(unindexed);
+        }
+        MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(new ObjectConverter());
+
+        TrustAnchorIndex first = TrustAnchorIndex.of(List.of(metadataBLOBFactory.parse(TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1), entries))));
+        TrustAnchorIndex second = first.update(List.of(metadataBLOBFactory.parse(TestMetadataBLOBs.blob(2, LocalDate.of(2026, 12, 1), entries))));
+
+        assertThat(first.getChangedEntryCount()).isEqualTo(aaguids.size() + 1);
+        assertThat(first.getTrustAnchorCount()).isEqualTo(index.getTrustAnchorCount());
+        assertThat(second.getChangedEntryCount()).isZero();
+    }
+
+    @Test
+    void update_internsRootCertificatesAndAppliesThePrecedenceAcrossBLOBs() {
+        UUID shared = aaguids.get(0);
+        List<ObjectNode> overrides = List.of(
+                TestMetadataBLOBs.entry(shared.toString(), "FIDO_CERTIFIED"),
+                TestMetadataBLOBs.entry(aaguids.get(1).toString(), "REVOKED"));
+        MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(new ObjectConverter());
+        List<MetadataBLOB> metadataBLOBs = List.of(
+                metadataBLOBFactory.parse(TestMetadataBLOBs.blob(7, LocalDate.of(2026, 11, 1), overrides)),
+                metadataBLOBFactory.parse(TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1), entries())));
+
+        TrustAnchorIndex merged = TrustAnchorIndex.EMPTY.update(metadataBLOBs, TrustAnchorIndex.Precedence.MERGE);
+        TrustAnchorIndex overridden = TrustAnchorIndex.EMPTY.update(metadataBLOBs, TrustAnchorIndex.Precedence.FIRST_SOURCE);
+
+        assertThat(merged.getCertificateCount()).as("every entry lists the same root").isEqualTo(1);
+        assertThat(merged.find(new AAGUID(shared), false, false)).hasSize(1)
+                .isEqualTo(merged.find(new AAGUID(aaguids.get(2)), false, false));
+        assertThat(merged.find(new AAGUID(aaguids.get(1)), false, false)).hasSize(1);
+        assertThat(overridden.find(new AAGUID(aaguids.get(1)), false, false)).isEmpty();
+        assertThat(overridden.isRejected(new AAGUID(aaguids.get(1)), false, false)).isTrue();
+        assertThat(overridden.find(new AAGUID(REVOKED_AAGUID), false, false)).isEmpty();
+        assertThat(overridden.find(new AAGUID(aaguids.get(2)), false, false).iterator().next())
+                .isSameAs(overridden.find(new AAGUID(shared), false, false).iterator().next());
+    }
+
+    @Test
+    void update_letsAStatusOnlyOverrideRejectAnAuthenticator() {
+        ObjectNode revoked = TestMetadataBLOBs.entry(aaguids.get(0).toString(), "REVOKED");
+        revoked.remove("metadataStatement");
+        ObjectNode revokedKeyId = TestMetadataBLOBs.keyIdEntry("ab01", "REVOKED");
+        revokedKeyId.remove("metadataStatement");
+        List<ObjectNode> entries = entries();
+        entries.add(TestMetadataBLOBs.keyIdEntry("ab01", "FIDO_CERTIFIED"));
+        MetadataBLOBFactory metadataBLOBFactory = new MetadataBLOBFactory(new ObjectConverter());
+
+        TrustAnchorIndex overridden = TrustAnchorIndex.EMPTY.update(List.of(
+                metadataBLOBFactory.parse(TestMetadataBLOBs.blob(7, LocalDate.of(2026, 11, 1), List.of(revoked, revokedKeyId))),
+                metadataBLOBFactory.parse(TestMetadataBLOBs.blob(1, LocalDate.of(2026, 11, 1), entries))), TrustAnchorIndex.Precedence.FIRST_SOURCE);
+
+        assertThat(overridden.find(new AAGUID(aaguids.get(0)), false, false)).isEmpty();
+        assertThat(overridden.isRejected(new AAGUID(aaguids.get(0)), false, false)).isTrue();
+        assertThat(overridden.find(new byte[]{(byte) 0xab, 0x01}, false, false)).isEmpty();
+        assertThat(overridden.isRejected(new byte[]{(byte) 0xab, 0x01}, false, false)).isTrue();
+        assertThat(overridden.find(new AAGUID(aaguids.get(1)), false, false)).hasSize(1);
+    }
+}
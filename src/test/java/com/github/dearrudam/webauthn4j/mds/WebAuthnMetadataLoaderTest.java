@@ -0,0 +1,139 @@
+package com.github.dearrudam.webauthn4j.mds;
+
+import com.github.dearrudam.webauthn4j.metrics.InMemoryWebAuthnMetrics;
+import com.github.dearrudam.webauthn4j.metrics.WebAuthnMetrics;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.metadata.anchor.MetadataBLOBBasedTrustAnchorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebAuthnMetadataLoaderTest {
+
+    private static final AAGUID AAGUID = new AAGUID(TestMetadataBLOBs.AAGUID);
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final LocalMDSServer server = LocalMDSServer.start();
+
+    @TempDir
+    Path cacheDirectory;
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void startMetadataRefresher_loadsTheBLOBFromTheGivenURLThroughLatencyAndRedirects() {
+        server.publish(1, LocalDate.of(2099, 1, 1), 100, AAGUID, TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Attestation Root"));
+        server.setLatency(Duration.ofMillis(20));
+        server.setRedirects(2);
+        InMemoryWebAuthnMetrics metrics = new InMemoryWebAuthnMetrics();
+
+        try (MetadataRefresher metadataRefresher = WebAuthnMetadataLoader.startMetadataRefresher(objectConverter, server.url(), server.trustAnchors(), cacheDirectory, Duration.ofHours(1), metrics)) {
+            assertThat(metadataRefresher.getRepository().find(AAGUID)).hasSize(1);
+            assertThat(metadataRefresher.getRepository().getIndex().getNos()).containsExactly(1);
+        }
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        assertThat(metrics.getMetadataOperation(WebAuthnMetrics.MetadataOperation.FETCH).quantile(0.5)).isGreaterThanOrEqualTo(Duration.ofMillis(60).toNanos());
+    }
+
+    @Test
+    void getMetadataBLOBBasedTrustAnchorRepository_reportsTheInjectedFailures() {
+        server.publish(1, LocalDate.of(2099, 1, 1), 10, AAGUID, TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Attestation Root"));
+        server.failNext(1, 503);
+
+        assertThatThrownBy(() -> WebAuthnMetadataLoader.getMetadataBLOBBasedTrustAnchorRepository(objectConverter, server.url(), server.trustAnchors(), cacheDirectory, WebAuthnMetrics.NOOP))
+                .hasMessageContaining("503");
+
+        assertThat(WebAuthnMetadataLoader.getMetadataBLOBBasedTrustAnchorRepository(objectConverter, server.url(), server.trustAnchors(), cacheDirectory, WebAuthnMetrics.NOOP).find(AAGUID))
+                .hasSize(1);
+    }
+
+    @Test
+    void metadataBLOBBasedTrustAnchorRepository_loadsTheConformanceEndpointsUnderTheServedRoot() {
+        server.publish(1, LocalDate.of(2099, 1, 1), 10, AAGUID, TestCertificates.selfSigned(TestCertificates.ecKeyPair(), "Attestation Root"));
+        server.publishEndpoints(List.of(server.url()));
+
+        MetadataBLOBBasedTrustAnchorRepository repository = WebAuthnMetadataLoader.metadataBLOBBasedTrustAnchorRepository(objectConverter, server.url(), "https://rp.example");
+
+        assertThat(repository.find(AAGUID)).hasSize(1);
+    }
+
+    @Test
+    void metadataBLOBBasedTrustAnchorRepository_checksTheBLOBSignerAgainstTheGivenCRLCache() {
+        KeyPair signingKeyPair = TestCertificates.ecKeyPair();
+        X509Certificate signingCertificate = TestMetadataBLOBs.signingCertificate(signingKeyPair, TestCertificates.crlDistributionPoint(server.url() + "root.crl"));
+        server.publish(TestMetadataBLOBs.signedBlob(1, LocalDate.of(2099, 1, 1), List.of(TestMetadataBLOBs.entry(TestMetadataBLOBs.AAGUID, "FIDO_CERTIFIED")),
+                signingKeyPair, signingCertificate));
+        server.publishEndpoints(List.of(server.url()));
+        Instant now = Instant.now();
+        server.publishCRL(TestMetadataBLOBs.crl(now.minus(Duration.ofHours(1)), now.plus(Duration.ofDays(1))));
+
+        try (CRLCache crlCache = new CRLCache(MetadataHttpClient.shared(), cacheDirectory.resolve("crl"))) {
+            assertThat(WebAuthnMetadataLoader.metadataBLOBBasedTrustAnchorRepository(objectConverter, server.url(), "https://rp.example", crlCache).find(AAGUID))
+                    .hasSize(1);
+            assertThat(crlCache.size()).isEqualTo(1);
+        }
+
+        server.publishCRL(TestMetadataBLOBs.crl(now.minus(Duration.ofHours(1)), now.plus(Duration.ofDays(1)), signingCertificate.getSerialNumber()));
+        try (CRLCache crlCache = new CRLCache(MetadataHttpClient.shared(), cacheDirectory.resolve("revoked"))) {
+            assertThat(WebAuthnMetadataLoader.metadataBLOBBasedTrustAnchorRepository(objectConverter, server.url(), "https://rp.example", crlCache).find(AAGUID))
+                    .as("the endpoint signed by a revoked certificate is left out")
+                    .isEmpty();
+        }
+    }
+
+    @Test
+    void startMergedMetadataRefresher_answersTheAuthenticatorsTheOverrideBLOBListsFromTheOverride() throws IOException {
+        AAGUID revoked = new AAGUID(UUID.randomUUID());
+        AAGUID added = new AAGUID(UUID.randomUUID());
+        server.publish(TestMetadataBLOBs.blob(1, LocalDate.of(2099, 1, 1), List.of(
+                TestMetadataBLOBs.entry(TestMetadataBLOBs.AAGUID, "FIDO_CERTIFIED"), TestMetadataBLOBs.entry(revoked.toString(), "FIDO_CERTIFIED"))));
+        server.publishEndpoints(List.of(server.url()));
+        ObjectNode revocation = TestMetadataBLOBs.entry(revoked.toString(), "REVOKED");
+        revocation.remove("metadataStatement");
+        Path overrideBLOB = Files.writeString(cacheDirectory.resolve("override.jwt"), TestMetadataBLOBs.blob(7, LocalDate.of(2099, 1, 1), List.of(
+                revocation, TestMetadataBLOBs.entry(added.toString(), "FIDO_CERTIFIED"))));
+
+        try (CRLCache crlCache = new CRLCache(MetadataHttpClient.shared(), cacheDirectory.resolve("crl"));
+             MetadataRefresher metadataRefresher = WebAuthnMetadataLoader.startMergedMetadataRefresher(objectConverter, server.url(), "https://rp.example",
+                     overrideBLOB, crlCache, Duration.ofHours(1))) {
+            RefreshableTrustAnchorRepository repository = metadataRefresher.getRepository();
+            assertThat(repository.getIndex().getNos()).containsExactly(7, 1);
+            assertThat(repository.find(AAGUID)).hasSize(1);
+            assertThat(repository.find(added)).hasSize(1);
+            assertThat(repository.find(revoked)).isEmpty();
+            assertThat(repository.isRejected(revoked)).isTrue();
+
+            // no provider kept the BLOB it was loaded from, so a refresh fetches the endpoint again
+            int requests = server.getRequestCount();
+            assertThat(metadataRefresher.refresh()).isFalse();
+            assertThat(server.getRequestCount()).isGreaterThan(requests);
+        }
+    }
+
+    @Test
+    void getMDSTrustAnchors_isTheRootOfTheMDSBLOBChain() {
+        assertThat(WebAuthnMetadataLoader.getMDSTrustAnchors())
+                .singleElement()
+                .satisfies(trustAnchor -> assertThat(trustAnchor.getTrustedCert().getSubjectX500Principal().getName())
+                        .isEqualTo("CN=GlobalSign,O=GlobalSign,OU=GlobalSign Root CA - R3"));
+    }
+}